@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task.property;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+
+/**
+ * The {@link ReplacerBenchmark} measures all default {@link Replacer}'s on a generated file, with
+ * and without the prefilter of the keys. A plist contains the keys of the {@link Replacer}'s, a
+ * source file none of them. The content is generated with a fixed seed.
+ *
+ * <pre>
+ *   gradle jmh -Pjmh=ReplacerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplacerBenchmark {
+
+  @Param({ "true", "false" })
+  public boolean prefilter;
+
+  @Param({ "plist", "source" })
+  public String  content;
+
+  @Param({ "65536" })
+  public int     size;
+
+
+  private Replacer[]  replacers;
+  private String      input;
+  private Environment environment;
+
+  /**
+   * Creates a {@link Replacer} with the same pattern and values, but without keys. The inline flag
+   * doesn't change the matches.
+   *
+   * @param replacer
+   */
+  private static Replacer withoutKeys(Replacer replacer) {
+    return new Replacer("*", "(?-i)" + replacer.getPattern().pattern()) {
+
+      @Override
+      protected String getValue(String name, String value, Environment environment) {
+        return replacer.getValue(name, value, environment);
+      }
+    };
+  }
+
+  /**
+   * Generates the content with a fixed seed.
+   *
+   * @param content
+   * @param size
+   */
+  private static String generate(String content, int size) {
+    Random random = new Random(4711);
+    StringBuilder builder = new StringBuilder(size + 256);
+    while (builder.length() < size) {
+      int value = random.nextInt(1000);
+      if ("plist".equals(content)) {
+        builder.append(String.format("  <key>Item%d</key>\n  <string>%d</string>\n", value, value));
+        if (random.nextInt(64) == 0) {
+          builder.append(String.format("  <key>CFBundleVersion</key>\n  <string>1.%d</string>\n", value));
+        }
+      } else {
+        builder.append(String.format("    int value%d = compute(%d, \"text\"); // comment\n", value, value));
+      }
+    }
+    return builder.toString();
+  }
+
+  @Setup
+  public void setup() {
+    this.replacers = this.prefilter ? ReplacerBuilder.DEFAULTS
+        : Arrays.stream(ReplacerBuilder.DEFAULTS).map(ReplacerBenchmark::withoutKeys).toArray(Replacer[]::new);
+    this.input = ReplacerBenchmark.generate(this.content, this.size);
+
+    Map<String, String> map = new HashMap<>();
+    map.put(Build.GIT_VERSION, "3.4.5");
+    map.put(Build.BUILDNUMBER, "77");
+    this.environment = Environment.of(map);
+  }
+
+  @Benchmark
+  public void replace(Blackhole blackhole) {
+    for (Replacer replacer : this.replacers) {
+      blackhole.consume(replacer.replace(this.input, this.environment, new ChangeSet()));
+    }
+  }
+}
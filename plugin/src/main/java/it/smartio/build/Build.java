@@ -21,6 +21,16 @@ public interface Build {
 
 
   String PLATFORM                  = "PLATFORM";
+  String MAKE_JOBS                 = "MAKE_JOBS";
+  String CACHE_DIR                 = "CACHE_DIR";
+  String CACHE_SIZE                = "CACHE_SIZE";
+  String CACHE_LINKS               = "CACHE_LINKS";
+  String PROCESS_WORKER            = "PROCESS_WORKER";
+  String COPY_LINKS                = "COPY_LINKS";
+  String ARCHIVE_THREADS           = "ARCHIVE_THREADS";
+  String ARCHIVE_LEVEL             = "ARCHIVE_LEVEL";
+  String PROPERTY_DRY_RUN          = "PROPERTY_DRY_RUN";
+  String PROPERTY_REPORT           = "PROPERTY_REPORT";
   String BUILDNUMBER               = "BUILD_NUMBER";
 
   String QT_ROOT                   = "QT_ROOT";
@@ -40,12 +40,14 @@ public interface Environment {
   String get(String name);
 
   /**
-   * Get the environment variables as map.
+   * Get the environment variables as an unmodifiable map. Implementations may return the same
+   * instance as long as the variables are unchanged.
    */
   Map<String, String> toMap();
 
   /**
-   * Creates a new {@link Environment} adding the {@link Map} for fallback's.
+   * Creates a new {@link Environment} adding the {@link Map} for fallback's. The variables of the
+   * map are copied, the layer shares the variables of this {@link Environment}.
    *
    * @param map
    */
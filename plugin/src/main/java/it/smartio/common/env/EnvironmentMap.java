@@ -15,12 +15,14 @@
 
 package it.smartio.common.env;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * The {@link EnvironmentMap} provides a simple map of environment variables. The is read-only, it
- * is not possible to change the values of the environment variable.
+ * is not possible to change the values of the environment variable. The map is copied on
+ * construction, so that it can be shared without further copies.
  */
 class EnvironmentMap implements Environment {
 
@@ -32,7 +34,7 @@ class EnvironmentMap implements Environment {
    * @param map
    */
   public EnvironmentMap(Map<String, String> map) {
-    this.map = map;
+    this.map = map.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(map));
   }
 
   /**
@@ -60,7 +62,7 @@ class EnvironmentMap implements Environment {
    */
   @Override
   public Map<String, String> toMap() {
-    return new HashMap<>(this.map);
+    return this.map;
   }
 
   /**
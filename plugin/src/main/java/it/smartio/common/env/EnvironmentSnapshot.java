@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.env;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link EnvironmentSnapshot} memoizes the flattened variables of an {@link Environment} layer.
+ * The snapshot remains valid as long as the parent provides the same flattened map, so that the
+ * variables of a layer are only copied once, instead of on each call of
+ * {@link Environment#toMap()}.
+ */
+final class EnvironmentSnapshot {
+
+  private final Map<String, String> parent;
+  private final Map<String, String> variables;
+
+  /**
+   * Constructs an instance of {@link EnvironmentSnapshot}.
+   *
+   * @param parent
+   * @param variables
+   */
+  private EnvironmentSnapshot(Map<String, String> parent, Map<String, String> variables) {
+    this.parent = parent;
+    this.variables = variables;
+  }
+
+  /**
+   * Gets the flattened variables.
+   */
+  public final Map<String, String> getVariables() {
+    return this.variables;
+  }
+
+  /**
+   * Returns <code>true</code> if the snapshot has been created from the parent variables.
+   *
+   * @param parent
+   */
+  public final boolean isValid(Map<String, String> parent) {
+    return this.parent == parent;
+  }
+
+  /**
+   * Creates an immutable {@link EnvironmentSnapshot} of the local variables on top of the parent
+   * variables.
+   *
+   * @param parent
+   * @param local
+   */
+  public static EnvironmentSnapshot of(Map<String, String> parent, Map<String, String> local) {
+    if (local.isEmpty()) {
+      return new EnvironmentSnapshot(parent, parent);
+    }
+    Map<String, String> variables = new HashMap<>(parent);
+    variables.putAll(local);
+    return new EnvironmentSnapshot(parent, Collections.unmodifiableMap(variables));
+  }
+}
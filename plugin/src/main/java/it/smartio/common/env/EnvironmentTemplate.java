@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.env;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link EnvironmentTemplate} is a compiled pattern with indexed or named placeholder's, e.g.
+ * <code>$1</code> or <code>$name</code>. The pattern is parsed once into literal and variable
+ * segments, that can be rendered many times against an {@link Environment}. Unknown variables are
+ * kept as placeholder.
+ */
+public class EnvironmentTemplate {
+
+  private static final int                              CACHE_SIZE    = 4096;
+  private static final int                              CACHE_PATTERN = 1024;
+
+  private static final Map<String, EnvironmentTemplate> CACHE         = new ConcurrentHashMap<>();
+
+
+  private final String[] literals;
+  private final String[] names;
+  private final int      length;
+
+  /**
+   * Constructs an instance of {@link EnvironmentTemplate}. The literals have one more element than
+   * the names, the template starts and ends with a literal.
+   *
+   * @param literals
+   * @param names
+   * @param length
+   */
+  private EnvironmentTemplate(String[] literals, String[] names, int length) {
+    this.literals = literals;
+    this.names = names;
+    this.length = length;
+  }
+
+  /**
+   * Returns <code>true</code> if the template has no placeholder's.
+   */
+  public final boolean isConstant() {
+    return this.names.length == 0;
+  }
+
+  /**
+   * Renders the template with the parameter values.
+   *
+   * @param environment
+   */
+  public final String render(Environment environment) {
+    if (isConstant()) {
+      return this.literals[0];
+    }
+    return render(environment, new StringBuilder(this.length + (16 * this.names.length))).toString();
+  }
+
+  /**
+   * Renders the template with the parameter values to the {@link StringBuilder}.
+   *
+   * @param environment
+   * @param builder
+   */
+  public final StringBuilder render(Environment environment, StringBuilder builder) {
+    builder.append(this.literals[0]);
+    for (int index = 0; index < this.names.length; index++) {
+      String value = environment.get(this.names[index]);
+      if (value == null) {
+        builder.append('$').append(this.names[index]);
+      } else {
+        builder.append(value);
+      }
+      builder.append(this.literals[index + 1]);
+    }
+    return builder;
+  }
+
+  /**
+   * Returns <code>true</code> if the character starts a named placeholder.
+   *
+   * @param c
+   */
+  private static boolean isNameStart(char c) {
+    return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'));
+  }
+
+  /**
+   * Returns <code>true</code> if the character is part of a named placeholder.
+   *
+   * @param c
+   */
+  private static boolean isNamePart(char c) {
+    return EnvironmentTemplate.isNameStart(c) || EnvironmentTemplate.isDigit(c) || (c == '_');
+  }
+
+  /**
+   * Returns <code>true</code> if the character is a digit.
+   *
+   * @param c
+   */
+  private static boolean isDigit(char c) {
+    return (c >= '0') && (c <= '9');
+  }
+
+  /**
+   * Parses the pattern into a {@link EnvironmentTemplate}.
+   *
+   * @param pattern
+   */
+  public static EnvironmentTemplate compile(String pattern) {
+    List<String> literals = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+
+    int offset = 0;
+    int index = pattern.indexOf('$');
+    while ((index >= 0) && (index < pattern.length() - 1)) {
+      int start = index + 1;
+      int end = start;
+      char c = pattern.charAt(start);
+      if (EnvironmentTemplate.isDigit(c)) {
+        while ((end < pattern.length()) && EnvironmentTemplate.isDigit(pattern.charAt(end))) {
+          end++;
+        }
+      } else if (EnvironmentTemplate.isNameStart(c)) {
+        while ((end < pattern.length()) && EnvironmentTemplate.isNamePart(pattern.charAt(end))) {
+          end++;
+        }
+      }
+
+      if (end > start) {
+        literals.add(pattern.substring(offset, index));
+        names.add(pattern.substring(start, end));
+        offset = end;
+      }
+      index = pattern.indexOf('$', (end > start) ? end : start);
+    }
+    literals.add(pattern.substring(offset));
+
+    int length = literals.stream().mapToInt(String::length).sum();
+    return new EnvironmentTemplate(literals.toArray(new String[0]), names.toArray(new String[0]), length);
+  }
+
+  /**
+   * Gets the compiled {@link EnvironmentTemplate} of the pattern. Short patterns are cached, large
+   * texts like the content of files are compiled on each call.
+   *
+   * @param pattern
+   */
+  public static EnvironmentTemplate of(String pattern) {
+    if (pattern.length() > EnvironmentTemplate.CACHE_PATTERN) {
+      return EnvironmentTemplate.compile(pattern);
+    }
+
+    EnvironmentTemplate template = EnvironmentTemplate.CACHE.get(pattern);
+    if (template == null) {
+      if (EnvironmentTemplate.CACHE.size() >= EnvironmentTemplate.CACHE_SIZE) {
+        EnvironmentTemplate.CACHE.clear();
+      }
+      template = EnvironmentTemplate.compile(pattern);
+      EnvironmentTemplate.CACHE.put(pattern, template);
+    }
+    return template;
+  }
+}
@@ -18,12 +18,15 @@ package it.smartio.common.env;
 import java.util.Map;
 
 /**
- * The {@link EnvironmentTree} class.
+ * The {@link EnvironmentTree} layers the variables on top of a parent {@link Environment}. The
+ * flattened variables are memoized, until the variables of the parent change.
  */
 class EnvironmentTree extends EnvironmentMap {
 
   private final Environment parent;
 
+  private volatile EnvironmentSnapshot snapshot;
+
   /**
    * Constructs an instance of {@link EnvironmentTree}.
    *
@@ -68,7 +71,11 @@ class EnvironmentTree extends EnvironmentMap {
   @Override
   public Map<String, String> toMap() {
     Map<String, String> variables = getDelegate().toMap();
-    variables.putAll(super.toMap());
-    return variables;
+    EnvironmentSnapshot current = this.snapshot;
+    if ((current == null) || !current.isValid(variables)) {
+      current = EnvironmentSnapshot.of(variables, super.toMap());
+      this.snapshot = current;
+    }
+    return current.getVariables();
   }
 }
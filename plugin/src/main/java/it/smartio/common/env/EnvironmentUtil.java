@@ -25,8 +25,7 @@ import java.util.regex.Pattern;
  */
 public abstract class EnvironmentUtil {
 
-  private static final Pattern NAMES  = Pattern.compile("\\(\\?<([a-z][a-z_0-9]*)>", Pattern.CASE_INSENSITIVE);
-  private static final Pattern PARAMS = Pattern.compile("\\$([0-9]+|[a-z][a-z_0-9]*)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern NAMES = Pattern.compile("\\(\\?<([a-z][a-z_0-9]*)>", Pattern.CASE_INSENSITIVE);
 
   /**
    * Constructs an instance of {@link EnvironmentUtil}.
@@ -54,22 +53,6 @@ public abstract class EnvironmentUtil {
    * @param environment
    */
   public static String replace(String pattern, Environment environment) {
-    StringBuffer buffer = new StringBuffer();
-    int offset = 0;
-
-    Matcher matcher = EnvironmentUtil.PARAMS.matcher(pattern);
-    while (matcher.find()) {
-      String name = matcher.group(1);
-      String value = environment.get(name);
-      buffer.append(pattern.substring(offset, matcher.start(1) - 1));
-      if (value == null) {
-        buffer.append("$" + name);
-      } else {
-        buffer.append(value);
-      }
-      offset = matcher.end(1);
-    }
-    buffer.append(pattern.substring(offset, pattern.length()));
-    return buffer.toString();
+    return EnvironmentTemplate.of(pattern).render(environment);
   }
 }
@@ -22,13 +22,16 @@ import java.util.stream.Collectors;
 
 
 /**
- * The {@link EnvironmentVariables} provides additional environment variables.
+ * The {@link EnvironmentVariables} provides additional environment variables. The flattened
+ * variables are memoized, until a variable is set or the variables of the parent change.
  */
 public class EnvironmentVariables implements Environment {
 
   private final Map<String, String> variables;
   private final Environment         environment;
 
+  private volatile EnvironmentSnapshot snapshot;
+
   /**
    * Constructs an instance of {@link EnvironmentVariables}.
    *
@@ -63,7 +66,7 @@ public class EnvironmentVariables implements Environment {
    */
   public final void setVariable(String name, String value) {
     this.variables.put(name, value);
-    this.variables.put(name, value);
+    this.snapshot = null;
   }
 
   /**
@@ -91,9 +94,13 @@ public class EnvironmentVariables implements Environment {
    */
   @Override
   public final Map<String, String> toMap() {
-    Map<String, String> map = new HashMap<>(this.environment.toMap());
-    map.putAll(this.variables);
-    return map;
+    Map<String, String> map = this.environment.toMap();
+    EnvironmentSnapshot current = this.snapshot;
+    if ((current == null) || !current.isValid(map)) {
+      current = EnvironmentSnapshot.of(map, this.variables);
+      this.snapshot = current;
+    }
+    return current.getVariables();
   }
 
 
@@ -39,13 +39,20 @@ public interface TaskContext {
    */
   TaskLogger getLogger();
 
+  /**
+   * Gets the task listener.
+   */
+  default TaskListener getListener() {
+    return TaskListener.NONE;
+  }
+
   /**
    * Creates a wrapped {@link TaskContext}.
    *
    * @param environment
    */
   default TaskContext wrap(Environment environment) {
-    return TaskContext.wrap(getWorkingDir(), environment, getLogger());
+    return TaskContext.wrap(getWorkingDir(), environment, getLogger(), getListener());
   }
 
   /**
@@ -55,7 +62,7 @@ public interface TaskContext {
    * @param environment
    */
   default TaskContext wrap(File workingDir, Environment environment) {
-    return TaskContext.wrap(workingDir, environment, getLogger());
+    return TaskContext.wrap(workingDir, environment, getLogger(), getListener());
   }
 
   /**
@@ -66,6 +73,18 @@ public interface TaskContext {
    * @param logger
    */
   static TaskContext wrap(File workingDir, Environment environment, TaskLogger logger) {
+    return TaskContext.wrap(workingDir, environment, logger, TaskListener.NONE);
+  }
+
+  /**
+   * Creates a wrapped {@link TaskContext}.
+   *
+   * @param workingDir
+   * @param environment
+   * @param logger
+   * @param listener
+   */
+  static TaskContext wrap(File workingDir, Environment environment, TaskLogger logger, TaskListener listener) {
     return new TaskContext() {
 
       @Override
@@ -82,6 +101,11 @@ public interface TaskContext {
       public final TaskLogger getLogger() {
         return logger;
       }
+
+      @Override
+      public final TaskListener getListener() {
+        return listener;
+      }
     };
   }
 }
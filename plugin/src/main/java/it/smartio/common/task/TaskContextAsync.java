@@ -21,20 +21,41 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import it.smartio.common.env.Environment;
 
 /**
- * The {@link TaskContextAsync} class.
+ * The {@link TaskContextAsync} class. The output of the processes is read by a dedicated thread per
+ * stream, so that any number of processes can run at the same time without blocking on a full pipe.
+ * The lines are collected in a bounded buffer and written by a single thread to the console.
  */
 public abstract class TaskContextAsync implements TaskContext, Closeable {
 
-  private final File            workingDir;
-  private final Environment     environment;
-  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private static final int     CAPACITY = 4096;
+  private static final Line    CLOSE    = new Line(null, null);
+
+
+  private final File                workingDir;
+  private final Environment         environment;
+
+  private final ExecutorService     executor;
+  private final BlockingQueue<Line> buffer;
+  private final Thread              writer;
+
+  private final AtomicLong          lines    = new AtomicLong();
+  private final AtomicLong          stalls   = new AtomicLong();
+  private final AtomicInteger       peak     = new AtomicInteger();
+
+  private TaskListener              listener = TaskListener.NONE;
 
   /**
    * Constructs an instance of {@link TaskContextAsync}.
@@ -45,6 +66,15 @@ public abstract class TaskContextAsync implements TaskContext, Closeable {
   protected TaskContextAsync(File workingDir, Environment environment) {
     this.workingDir = workingDir;
     this.environment = environment;
+    this.executor = Executors.newCachedThreadPool(r -> {
+      Thread thread = new Thread(r, "smartio-output");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.buffer = new ArrayBlockingQueue<>(TaskContextAsync.CAPACITY);
+    this.writer = new Thread(this::write, "smartio-console");
+    this.writer.setDaemon(true);
+    this.writer.start();
   }
 
   /**
@@ -63,6 +93,44 @@ public abstract class TaskContextAsync implements TaskContext, Closeable {
     return this.environment;
   }
 
+  /**
+   * Gets the task listener.
+   */
+  @Override
+  public final TaskListener getListener() {
+    return this.listener;
+  }
+
+  /**
+   * Sets the task listener.
+   *
+   * @param listener
+   */
+  public final void setListener(TaskListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Gets the number of lines written to the console.
+   */
+  public final long getLines() {
+    return this.lines.get();
+  }
+
+  /**
+   * Gets the number of lines, that had to wait for free space in the buffer.
+   */
+  public final long getStalls() {
+    return this.stalls.get();
+  }
+
+  /**
+   * Gets the maximum number of lines, that have been in the buffer at the same time.
+   */
+  public final int getPeak() {
+    return this.peak.get();
+  }
+
   /**
    * Setup the console to read the input stream as standard error.
    *
@@ -70,13 +138,84 @@ public abstract class TaskContextAsync implements TaskContext, Closeable {
    * @param error
    */
   protected final void redirectStreams(InputStream input, InputStream error) {
-    this.executor.submit(new AsyncInputStream(input, System.out::println));
-    this.executor.submit(new AsyncInputStream(error, System.err::println));
+    redirectStreams("", input, error);
+  }
+
+  /**
+   * Setup the console to read the input stream as standard error. Each line is prefixed with the
+   * provided text.
+   *
+   * @param prefix
+   * @param input
+   * @param error
+   */
+  protected final void redirectStreams(String prefix, InputStream input, InputStream error) {
+    this.executor.submit(new AsyncInputStream(input, prefix, System.out));
+    this.executor.submit(new AsyncInputStream(error, prefix, System.err));
   }
 
+  /**
+   * Adds the line to the buffer, waits if the buffer is full.
+   *
+   * @param line
+   */
+  private void offer(Line line) throws InterruptedException {
+    if (!this.buffer.offer(line)) {
+      this.stalls.incrementAndGet();
+      this.buffer.put(line);
+    }
+    this.peak.accumulateAndGet(this.buffer.size(), Math::max);
+  }
+
+  /**
+   * Writes the buffered lines to the console, until the context is closed.
+   */
+  private void write() {
+    try {
+      for (Line line = this.buffer.take(); line != TaskContextAsync.CLOSE; line = this.buffer.take()) {
+        line.stream.println(line.text);
+        this.lines.incrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits until the output of all processes has been written, before the context is closed.
+   */
   @Override
   public final void close() throws IOException {
-    this.executor.shutdownNow();
+    this.executor.shutdown();
+    try {
+      if (!this.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        this.executor.shutdownNow();
+      }
+      this.buffer.put(TaskContextAsync.CLOSE);
+      this.writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+
+    if (getStalls() > 0) {
+      getLogger().onInfo("Output: {} lines, {} stalled on a full buffer (peak {} lines)", getLines(), getStalls(),
+          getPeak());
+    }
+  }
+
+  /**
+   * The {@link Line} of an output stream.
+   */
+  private static class Line {
+
+    private final PrintStream stream;
+    private final String      text;
+
+    private Line(PrintStream stream, String text) {
+      this.stream = stream;
+      this.text = text;
+    }
   }
 
   /**
@@ -84,17 +223,27 @@ public abstract class TaskContextAsync implements TaskContext, Closeable {
    */
   private class AsyncInputStream implements Runnable {
 
-    private final InputStream      stream;
-    private final Consumer<String> consumer;
+    private final InputStream stream;
+    private final String      prefix;
+    private final PrintStream target;
 
-    public AsyncInputStream(InputStream stream, Consumer<String> consumer) {
+    public AsyncInputStream(InputStream stream, String prefix, PrintStream target) {
       this.stream = stream;
-      this.consumer = consumer;
+      this.prefix = prefix;
+      this.target = target;
     }
 
     @Override
     public void run() {
-      new BufferedReader(new InputStreamReader(this.stream)).lines().forEach(this.consumer);
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(this.stream))) {
+        for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+          offer(new Line(this.target, this.prefix + text));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
     }
   }
 }
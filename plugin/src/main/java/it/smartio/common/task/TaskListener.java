@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.task;
+
+/**
+ * The {@link TaskListener} is notified about the execution of the tasks and processes. The
+ * timestamps are milliseconds since the epoch.
+ */
+public interface TaskListener {
+
+  /**
+   * The {@link TaskListener} that ignores all notifications.
+   */
+  TaskListener NONE = new TaskListener() {};
+
+  /**
+   * Notifies that a task has been started.
+   *
+   * @param name
+   * @param started
+   */
+  default void onTaskStarted(String name, long started) {}
+
+  /**
+   * Notifies that a task has been completed. The error is <code>null</code> and the exit code is 0
+   * on success. On failure the exit code is the one of the failed process, or -1 if the error hasn't
+   * been caused by a process.
+   *
+   * @param name
+   * @param started
+   * @param completed
+   * @param exitCode
+   * @param error
+   */
+  default void onTaskCompleted(String name, long started, long completed, int exitCode, Throwable error) {}
+
+  /**
+   * Notifies that a process has been completed. The CPU time in milliseconds and the peak resident
+   * memory in bytes include the descendants of the process. They are -1, if not available on the
+   * current operating system.
+   *
+   * @param command
+   * @param started
+   * @param completed
+   * @param exitCode
+   * @param cpuTime
+   * @param peakMemory
+   */
+  default void onProcessCompleted(String command, long started, long completed, int exitCode, long cpuTime,
+      long peakMemory) {}
+}
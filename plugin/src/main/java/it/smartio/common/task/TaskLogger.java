@@ -46,4 +46,47 @@ public interface TaskLogger {
    * @param error
    */
   void onRedirect(InputStream input, InputStream error);
+
+  /**
+   * Setup the console to read the input stream as standard error. Each line is prefixed with the
+   * provided text.
+   *
+   * @param prefix
+   * @param input
+   * @param error
+   */
+  default void onRedirect(String prefix, InputStream input, InputStream error) {
+    onRedirect(input, error);
+  }
+
+  /**
+   * Creates a {@link TaskLogger} that prefixes all messages and the output of the processes.
+   *
+   * @param prefix
+   * @param logger
+   */
+  static TaskLogger prefix(String prefix, TaskLogger logger) {
+    return new TaskLogger() {
+
+      @Override
+      public final void onInfo(String message, Object... arguments) {
+        logger.onInfo(prefix + message, arguments);
+      }
+
+      @Override
+      public final void onError(Throwable throwable, String message, Object... arguments) {
+        logger.onError(throwable, prefix + message, arguments);
+      }
+
+      @Override
+      public final void onRedirect(InputStream input, InputStream error) {
+        logger.onRedirect(prefix, input, error);
+      }
+
+      @Override
+      public final void onRedirect(String text, InputStream input, InputStream error) {
+        logger.onRedirect(prefix + text, input, error);
+      }
+    };
+  }
 }
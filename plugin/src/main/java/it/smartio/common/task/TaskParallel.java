@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@link TaskParallel} implements a {@link Task} that executes the sub-tasks concurrently. The
+ * number of concurrent sub-tasks is limited, the first failure cancels all other sub-tasks.
+ */
+public class TaskParallel implements Task {
+
+  private final List<Task> tasks;
+  private final int        parallel;
+
+  /**
+   * Constructs an instance of {@link TaskParallel}.
+   *
+   * @param tasks
+   * @param parallel
+   */
+  public TaskParallel(List<? extends Task> tasks, int parallel) {
+    this.tasks = new ArrayList<>(tasks);
+    this.parallel = parallel;
+  }
+
+  /**
+   * Handles the sub-tasks concurrently.
+   *
+   * @param context
+   */
+  @Override
+  public final void handle(TaskContext context) throws IOException {
+    if ((this.parallel <= 1) || (this.tasks.size() < 2)) {
+      for (Task task : this.tasks) {
+        task.handle(context);
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallel, this.tasks.size()));
+    CompletionService<Task> service = new ExecutorCompletionService<>(executor);
+    try {
+      for (Task task : this.tasks) {
+        service.submit(() -> {
+          task.handle(context);
+          return task;
+        });
+      }
+      for (int index = 0; index < this.tasks.size(); index++) {
+        service.take().get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new RuntimeException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
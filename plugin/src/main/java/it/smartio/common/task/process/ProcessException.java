@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.task.process;
+/**
+ * The {@link ProcessException} is thrown if a process finished with an error.
+ */
+public class ProcessException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int         exitCode;
+
+  /**
+   * Constructs an instance of {@link ProcessException}.
+   *
+   * @param exitCode
+   */
+  public ProcessException(int exitCode) {
+    super(String.format("Process finished with the exit code %s!", exitCode));
+    this.exitCode = exitCode;
+  }
+
+  /**
+   * Gets the exit code of the process.
+   */
+  public final int getExitCode() {
+    return this.exitCode;
+  }
+
+  /**
+   * Gets the exit code of the process that caused the error: 0 if there is no error, -1 if the error
+   * hasn't been caused by a process.
+   *
+   * @param error
+   */
+  public static int getExitCode(Throwable error) {
+    if (error == null) {
+      return 0;
+    }
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ProcessException) {
+        return ((ProcessException) cause).getExitCode();
+      }
+    }
+    return -1;
+  }
+}
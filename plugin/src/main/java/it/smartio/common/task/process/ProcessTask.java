@@ -86,13 +86,16 @@ public abstract class ProcessTask implements Task {
    * Print the environment to the {@link TaskContext}
    *
    * @param process
+   * @param variables
    */
-  private String printEnvironment(ProcessBuilder process) {
+  private String printEnvironment(ProcessBuilder process, boolean variables) {
     Map<String, String> e = process.environment();
     StringBuilder builder = new StringBuilder();
-    builder.append(e.keySet().stream().sorted().map(k -> String.format("export %s=%s", k, e.get(k)))
-        .collect(Collectors.joining("\n")));
-    builder.append("\n");
+    if (variables) {
+      builder.append(e.keySet().stream().sorted().map(k -> String.format("export %s=%s", k, e.get(k)))
+          .collect(Collectors.joining("\n")));
+      builder.append("\n");
+    }
     builder.append(String.format("WorkingDir: %s\n", process.directory()));
     builder.append(String.format("Command Line: %s\n", String.join(" ", process.command())));
     return builder.toString();
@@ -112,22 +115,86 @@ public abstract class ProcessTask implements Task {
     builder.environment().putAll(context.getEnvironment().toMap());
     updateEnvironmentVariables(builder.environment(), shell);
 
-    context.getLogger().onInfo(printEnvironment(builder));
+    ProcessWorker worker = null;
+    if (ProcessWorker.isEnabled(context.getEnvironment())) {
+      try {
+        worker = ProcessWorker.acquire();
+      } catch (IOException e) {
+        context.getLogger().onError(e, "Couldn't start the process worker, fallback to a new process");
+      }
+    }
+    boolean changed = (worker == null) || !builder.environment().equals(worker.getEnvironment());
+    context.getLogger().onInfo(printEnvironment(builder, changed));
 
-    Process process = null;
+    String command = String.join(" ", shell.getCommand());
     try {
-      process = builder.start();
-      context.getLogger().onRedirect(process.getInputStream(), process.getErrorStream());
-
-      if ((process.waitFor() != 0) && this.throwIfFailed) {
-        throw new RuntimeException("Process finished with an error!");
+      int exitCode = (worker == null) ? execute(builder, command, context) : execute(worker, builder, command, context);
+      if ((exitCode != 0) && this.throwIfFailed) {
+        throw new ProcessException(exitCode);
       }
     } catch (InterruptedException e) {
       throw new IOException(e);
+    }
+  }
+
+  /**
+   * Executes the command in a new process. The resource usage of the process tree is sampled while
+   * the process is running.
+   *
+   * @param builder
+   * @param command
+   * @param context
+   */
+  private int execute(ProcessBuilder builder, String command, TaskContext context)
+      throws IOException, InterruptedException {
+    long started = System.currentTimeMillis();
+    int exitCode = -1;
+    Process process = null;
+    ProcessUsage usage = null;
+    try {
+      process = builder.start();
+      usage = ProcessUsage.of(process);
+      context.getLogger().onRedirect(process.getInputStream(), process.getErrorStream());
+      exitCode = process.waitFor();
+      return exitCode;
     } finally {
       if (process != null) {
-        process.destroy();
+        ProcessTree.destroy(process);
       }
+      if (usage != null) {
+        usage.close();
+      }
+      long cpuTime = (usage == null) ? -1 : usage.getCpuTime();
+      long peakMemory = (usage == null) ? -1 : usage.getPeakMemory();
+      context.getListener().onProcessCompleted(command, started, System.currentTimeMillis(), exitCode, cpuTime,
+          peakMemory);
+    }
+  }
+
+  /**
+   * Executes the command on the {@link ProcessWorker}. The resource usage of the children of the
+   * worker is sampled while the command is running. The worker is terminated, if the command couldn't
+   * be completed.
+   *
+   * @param worker
+   * @param builder
+   * @param command
+   * @param context
+   */
+  private int execute(ProcessWorker worker, ProcessBuilder builder, String command, TaskContext context)
+      throws IOException, InterruptedException {
+    long started = System.currentTimeMillis();
+    int exitCode = -1;
+    try {
+      exitCode = worker.exec(builder.command(), builder.directory(), builder.environment(), context.getLogger());
+      ProcessWorker.release(worker);
+      return exitCode;
+    } catch (IOException | InterruptedException | RuntimeException e) {
+      worker.close();
+      throw e;
+    } finally {
+      context.getListener().onProcessCompleted(command, started, System.currentTimeMillis(), exitCode,
+          worker.getCpuTime(), worker.getPeakMemory());
     }
   }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.task.process;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import it.smartio.util.env.OS;
+
+/**
+ * The {@link ProcessTree} terminates a {@link Process} together with all its descendants.
+ * {@link Process#destroy()} only signals the direct child, so the commands started by a shell or by
+ * make would continue as orphans, when a task is cancelled.
+ */
+final class ProcessTree {
+
+  /**
+   * Constructs an instance of {@link ProcessTree}.
+   */
+  private ProcessTree() {}
+
+  /**
+   * Gets the id of the process, or -1 if not available.
+   *
+   * @param process
+   */
+  static long getPid(Process process) {
+    try {
+      // Java 9+
+      return (Long) Process.class.getMethod("pid").invoke(process);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Java 8 on POSIX
+    }
+    try {
+      Field field = process.getClass().getDeclaredField("pid");
+      field.setAccessible(true);
+      return field.getInt(process);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Gets the ids of all descendants of the process, using <code>ps</code>. The children are listed
+   * before their parent.
+   *
+   * @param pid
+   */
+  static List<Long> getDescendants(long pid) throws IOException {
+    Map<Long, List<Long>> children = new HashMap<>();
+    Process ps = new ProcessBuilder("ps", "-A", "-o", "pid=", "-o", "ppid=").redirectErrorStream(true).start();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(ps.getInputStream()))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length == 2) {
+          long ppid = Long.parseLong(fields[1]);
+          children.computeIfAbsent(ppid, p -> new ArrayList<>()).add(Long.parseLong(fields[0]));
+        }
+      }
+    } catch (NumberFormatException e) {
+      throw new IOException(e);
+    } finally {
+      ps.destroy();
+    }
+
+    List<Long> descendants = new ArrayList<>();
+    ProcessTree.collect(pid, children, descendants);
+    descendants.remove(descendants.size() - 1);
+    return descendants;
+  }
+
+  /**
+   * Collects the process and its descendants in post order.
+   *
+   * @param pid
+   * @param children
+   * @param pids
+   */
+  private static void collect(long pid, Map<Long, List<Long>> children, List<Long> pids) {
+    for (long child : children.getOrDefault(pid, Collections.emptyList())) {
+      if (!pids.contains(child)) {
+        ProcessTree.collect(child, children, pids);
+      }
+    }
+    pids.add(pid);
+  }
+
+  /**
+   * Terminates the process and all its descendants, if it is still running.
+   *
+   * @param process
+   */
+  static void destroy(Process process) {
+    if (!process.isAlive()) {
+      return;
+    }
+
+    long pid = ProcessTree.getPid(process);
+    try {
+      if (pid > 0) {
+        List<String> command = new ArrayList<>();
+        if (OS.isWindows()) {
+          command.add("taskkill");
+          command.add("/F");
+          command.add("/T");
+          command.add("/PID");
+          command.add(Long.toString(pid));
+        } else {
+          command.add("kill");
+          command.add("-KILL");
+          ProcessTree.getDescendants(pid).forEach(p -> command.add(Long.toString(p)));
+          command.add(Long.toString(pid));
+        }
+        Process kill = new ProcessBuilder(command).redirectErrorStream(true).start();
+        kill.getInputStream().close();
+        kill.waitFor(10, TimeUnit.SECONDS);
+      }
+    } catch (IOException e) {
+      // Fallback to the direct child
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      process.destroyForcibly();
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.task.process;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link ProcessUsage} samples the resource usage of a process tree from the Linux /proc file
+ * system, while the process is running. The values are -1 on other operating systems.
+ *
+ * The CPU time of a process includes its terminated children, as soon as they have been waited
+ * for. The running descendants are added, so that each process is only credited with its own tree,
+ * even if several processes run concurrently. The peak memory is the largest resident set size of a
+ * single process of the tree. The samples of all processes are taken every 100 ms by a shared thread,
+ * so the usage of the last interval before the process terminates is missing.
+ *
+ * For a long-lived {@link ProcessWorker}, only the children of the shell are sampled. The CPU time
+ * is the difference to the ticks of the shell at the start, and a last sample is taken on
+ * {@link #close()}, when the children have been waited for by the shell.
+ */
+class ProcessUsage implements Closeable {
+
+  private static final Path                     PROC     = Paths.get("/proc");
+  private static final long                     INTERVAL = 100;
+  private static final long                     CLK_TCK  =
+      Files.exists(ProcessUsage.PROC) ? ProcessUsage.getClockTicks() : 100;
+
+  private static final ScheduledExecutorService SAMPLER  = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "smartio-usage");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+
+  private final long                            pid;
+  private final boolean                         children;
+  private final long                            initial;
+  private final ScheduledFuture<?>              future;
+
+  private volatile long                         cpuTime    = -1;
+  private volatile long                         peakMemory = -1;
+
+  /**
+   * Constructs an instance of {@link ProcessUsage}.
+   *
+   * @param pid
+   * @param children
+   */
+  private ProcessUsage(long pid, boolean children) {
+    this.pid = pid;
+    this.children = children;
+    this.initial = children ? Math.max(0, ProcessUsage.getCpuTicks(pid, new ArrayList<>())) : 0;
+    this.future = ProcessUsage.SAMPLER.scheduleWithFixedDelay(this::sample, ProcessUsage.INTERVAL,
+        ProcessUsage.INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gets the CPU time in milliseconds, or -1 if not available.
+   */
+  public final long getCpuTime() {
+    return this.cpuTime;
+  }
+
+  /**
+   * Gets the peak resident set size in bytes, or -1 if not available.
+   */
+  public final long getPeakMemory() {
+    return this.peakMemory;
+  }
+
+  /**
+   * Takes a sample of the process tree. Returns <code>false</code> if the process doesn't exist.
+   */
+  private synchronized boolean sample() {
+    List<Long> pids = new ArrayList<>();
+    long ticks = ProcessUsage.getCpuTicks(this.pid, pids);
+    if (ticks < 0) {
+      return false;
+    }
+    this.cpuTime = Math.max(this.cpuTime, Math.max(0, ticks - this.initial) * 1000 / ProcessUsage.CLK_TCK);
+
+    long memory = -1;
+    for (long child : this.children ? pids.subList(1, pids.size()) : pids) {
+      memory = Math.max(memory, ProcessUsage.getPeakMemory(child));
+    }
+    this.peakMemory = Math.max(this.peakMemory, memory);
+    return true;
+  }
+
+  /**
+   * Stops the sampling. The sampling must be stopped, when the process has been terminated.
+   */
+  @Override
+  public final void close() {
+    this.future.cancel(false);
+    if (this.children) {
+      sample();
+    }
+  }
+
+  /**
+   * Gets the CPU ticks of the process tree and collects the ids of the processes, or -1 if the
+   * process doesn't exist. The ticks include the user and system time of the process and of its
+   * waited-for children.
+   *
+   * @param pid
+   * @param pids
+   */
+  private static long getCpuTicks(long pid, List<Long> pids) {
+    String[] fields = ProcessUsage.getStat(pid);
+    if (fields == null) {
+      return -1;
+    }
+    pids.add(pid);
+
+    // utime, stime, cutime and cstime are the fields 14-17, counting from the pid
+    long ticks = 0;
+    for (int index = 11; index < 15; index++) {
+      ticks += Long.parseLong(fields[index]);
+    }
+    for (long child : ProcessUsage.getChildren(pid)) {
+      ticks += Math.max(0, getCpuTicks(child, pids));
+    }
+    return ticks;
+  }
+
+  /**
+   * Reads the fields of /proc/[pid]/stat after the executable name, or <code>null</code>.
+   *
+   * @param pid
+   */
+  private static String[] getStat(long pid) {
+    try {
+      Path path = ProcessUsage.PROC.resolve(Long.toString(pid)).resolve("stat");
+      String content = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII);
+      // Skip the executable name, it may contain spaces
+      return content.substring(content.lastIndexOf(')') + 2).split(" ");
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the ids of the child processes from /proc/[pid]/task/[pid]/children.
+   *
+   * @param pid
+   */
+  private static List<Long> getChildren(long pid) {
+    List<Long> children = new ArrayList<>();
+    String id = Long.toString(pid);
+    try {
+      Path path = ProcessUsage.PROC.resolve(id).resolve("task").resolve(id).resolve("children");
+      String content = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+      for (String child : content.isEmpty() ? new String[0] : content.split(" ")) {
+        children.add(Long.parseLong(child));
+      }
+    } catch (IOException | RuntimeException e) {
+      // Not supported by the kernel or already terminated
+    }
+    return children;
+  }
+
+  /**
+   * Gets the peak resident set size (VmHWM) of the process in bytes, or -1.
+   *
+   * @param pid
+   */
+  private static long getPeakMemory(long pid) {
+    try {
+      Path path = ProcessUsage.PROC.resolve(Long.toString(pid)).resolve("status");
+      for (String line : Files.readAllLines(path, StandardCharsets.US_ASCII)) {
+        if (line.startsWith("VmHWM:")) {
+          return Long.parseLong(line.substring(6).replace("kB", "").trim()) * 1024;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // Already terminated
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the clock ticks per second of the kernel.
+   */
+  private static long getClockTicks() {
+    try {
+      Process process = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+        return Long.parseLong(reader.readLine().trim());
+      }
+    } catch (IOException | RuntimeException e) {
+      return 100;
+    }
+  }
+
+  /**
+   * Starts the sampling of the process tree. Returns <code>null</code> if not supported.
+   *
+   * @param process
+   */
+  static ProcessUsage of(Process process) {
+    long pid = ProcessTree.getPid(process);
+    return ((pid > 0) && Files.exists(ProcessUsage.PROC.resolve("self"))) ? new ProcessUsage(pid, false) : null;
+  }
+
+  /**
+   * Starts the sampling of the children of a running shell. Returns <code>null</code> if not
+   * supported.
+   *
+   * @param process
+   */
+  static ProcessUsage ofChildren(Process process) {
+    long pid = ProcessTree.getPid(process);
+    return ((pid > 0) && Files.exists(ProcessUsage.PROC.resolve("self"))) ? new ProcessUsage(pid, true) : null;
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.common.task.process;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.common.task.TaskLogger;
+import it.smartio.util.env.OS;
+
+/**
+ * The {@link ProcessWorker} is a long-lived shell, that executes the commands sent over its
+ * standard input. This avoids to setup a new process environment for each of many short-lived
+ * commands. The end of a command is detected by a unique marker, written with the exit code to the
+ * output streams of the shell.
+ *
+ * Each command is executed in a subshell with its own environment variables, so that any idle
+ * worker can be used. The variables are passed to <code>env</code>, instead of being exported by
+ * the shell, because the shell rejects names that aren't valid identifiers. A worker executes only one command at the same time. If a worker is closed,
+ * the running command and all its descendants are terminated too.
+ */
+public class ProcessWorker implements Closeable {
+
+  private static final Deque<ProcessWorker> IDLE = new ArrayDeque<>();
+  private static final List<ProcessWorker>  ALL  = new ArrayList<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(ProcessWorker::terminate));
+  }
+
+
+  private final Process             process;
+  private final Writer              writer;
+  private final String              marker;
+
+  private volatile Command          command;
+  private Map<String, String>       environment;
+  private long                      cpuTime    = -1;
+  private long                      peakMemory = -1;
+
+  /**
+   * Constructs an instance of {@link ProcessWorker}.
+   */
+  private ProcessWorker() throws IOException {
+    this.marker = "#smartio-" + UUID.randomUUID();
+
+    ProcessBuilder builder = new ProcessBuilder("sh");
+    builder.environment().clear();
+    this.process = builder.start();
+    this.writer = new OutputStreamWriter(this.process.getOutputStream(), StandardCharsets.UTF_8);
+
+    startPump(this.process.getInputStream(), false);
+    startPump(this.process.getErrorStream(), true);
+  }
+
+  /**
+   * Gets the environment variables of the last command, or <code>null</code>.
+   */
+  public final Map<String, String> getEnvironment() {
+    return this.environment;
+  }
+
+  /**
+   * Gets the CPU time in milliseconds of the last command, or -1 if not available.
+   */
+  public final long getCpuTime() {
+    return this.cpuTime;
+  }
+
+  /**
+   * Gets the peak resident memory in bytes of the last command, or -1 if not available.
+   */
+  public final long getPeakMemory() {
+    return this.peakMemory;
+  }
+
+  /**
+   * Returns <code>true</code> if the shell is still running.
+   */
+  public final boolean isAlive() {
+    return this.process.isAlive();
+  }
+
+  /**
+   * Executes the command in the working directory with the environment variables and returns the
+   * exit code. The output of the command is redirected to the {@link TaskLogger}.
+   *
+   * @param commands
+   * @param workingDir
+   * @param environment
+   * @param logger
+   */
+  public final int exec(List<String> commands, File workingDir, Map<String, String> environment, TaskLogger logger)
+      throws IOException, InterruptedException {
+    Command current = new Command();
+    this.command = current;
+    this.environment = new HashMap<>(environment);
+
+    logger.onRedirect(current.input, current.error);
+
+    String line = commands.stream().map(ProcessWorker::quote).collect(Collectors.joining(" "));
+    String variables = environment.entrySet().stream()
+        .map(e -> ProcessWorker.quote(e.getKey() + "=" + e.getValue()) + " ").collect(Collectors.joining());
+    String directory = ProcessWorker.quote((workingDir == null) ? "." : workingDir.getAbsolutePath());
+
+    ProcessUsage usage = ProcessUsage.ofChildren(this.process);
+    try {
+      this.writer.write(String.format("( cd %s && exec env -i %s%s ) </dev/null; echo \"%s $?\"; echo \"%s\" >&2\n",
+          directory, variables, line, this.marker, this.marker));
+      this.writer.flush();
+
+      current.completed.await();
+      this.command = null;
+    } finally {
+      if (usage != null) {
+        usage.close();
+      }
+      this.cpuTime = (usage == null) ? -1 : usage.getCpuTime();
+      this.peakMemory = (usage == null) ? -1 : usage.getPeakMemory();
+    }
+    return current.exitCode;
+  }
+
+  /**
+   * Starts a thread, that pumps the output of the shell to the current command.
+   *
+   * @param stream
+   * @param error
+   */
+  private void startPump(InputStream stream, boolean error) {
+    Thread thread = new Thread(() -> pump(stream, error), "smartio-worker");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Pumps the output of the shell to the current command, until the marker is found.
+   *
+   * @param stream
+   * @param error
+   */
+  private void pump(InputStream stream, boolean error) {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        Command current = this.command;
+        if (current == null) {
+          continue;
+        }
+
+        OutputStream output = error ? current.errorSink : current.inputSink;
+        int index = line.indexOf(this.marker);
+        if (index < 0) {
+          output.write((line + "\n").getBytes());
+          continue;
+        }
+
+        if (index > 0) {
+          output.write((line.substring(0, index) + "\n").getBytes());
+        }
+        if (!error) {
+          current.exitCode = Integer.parseInt(line.substring(index + this.marker.length()).trim());
+        }
+        output.close();
+        current.completed.countDown();
+      }
+    } catch (IOException | RuntimeException e) {
+      // The shell has been terminated
+    }
+
+    Command current = this.command;
+    if (current != null) {
+      try {
+        (error ? current.errorSink : current.inputSink).close();
+      } catch (IOException e) {}
+      current.completed.countDown();
+    }
+  }
+
+  /**
+   * Terminates the shell.
+   */
+  @Override
+  public final void close() {
+    ProcessTree.destroy(this.process);
+    synchronized (ProcessWorker.IDLE) {
+      ProcessWorker.ALL.remove(this);
+    }
+  }
+
+  /**
+   * Quotes the text for the shell.
+   *
+   * @param text
+   */
+  private static String quote(String text) {
+    return "'" + text.replace("'", "'\\''") + "'";
+  }
+
+  /**
+   * Returns <code>true</code> if the commands should be executed by a {@link ProcessWorker}.
+   * Requires a POSIX shell.
+   *
+   * @param environment
+   */
+  public static boolean isEnabled(Environment environment) {
+    return !OS.isWindows() && environment.isSet(Build.PROCESS_WORKER)
+        && Boolean.parseBoolean(environment.get(Build.PROCESS_WORKER));
+  }
+
+  /**
+   * Acquires an idle {@link ProcessWorker}, or starts a new one.
+   */
+  public static ProcessWorker acquire() throws IOException {
+    synchronized (ProcessWorker.IDLE) {
+      while (!ProcessWorker.IDLE.isEmpty()) {
+        ProcessWorker worker = ProcessWorker.IDLE.pop();
+        if (worker.isAlive()) {
+          return worker;
+        }
+        ProcessWorker.ALL.remove(worker);
+      }
+    }
+
+    ProcessWorker worker = new ProcessWorker();
+    synchronized (ProcessWorker.IDLE) {
+      ProcessWorker.ALL.add(worker);
+    }
+    return worker;
+  }
+
+  /**
+   * Releases the {@link ProcessWorker}, so that it can be used by other commands.
+   *
+   * @param worker
+   */
+  public static void release(ProcessWorker worker) {
+    if (!worker.isAlive()) {
+      worker.close();
+      return;
+    }
+    synchronized (ProcessWorker.IDLE) {
+      ProcessWorker.IDLE.push(worker);
+    }
+  }
+
+  /**
+   * Terminates the idle workers. A busy worker executes a command of another pipeline in the same
+   * JVM, it is terminated by the shutdown hook of the JVM.
+   */
+  public static void shutdown() {
+    List<ProcessWorker> workers;
+    synchronized (ProcessWorker.IDLE) {
+      workers = new ArrayList<>(ProcessWorker.IDLE);
+      ProcessWorker.IDLE.clear();
+    }
+    workers.forEach(ProcessWorker::close);
+  }
+
+  /**
+   * Terminates all workers, when the JVM is shut down.
+   */
+  private static void terminate() {
+    List<ProcessWorker> workers;
+    synchronized (ProcessWorker.IDLE) {
+      workers = new ArrayList<>(ProcessWorker.ALL);
+      ProcessWorker.IDLE.clear();
+    }
+    workers.forEach(ProcessWorker::close);
+  }
+
+  /**
+   * The {@link Command} connects the output of the shell with the {@link TaskLogger}, while a
+   * command is executed.
+   */
+  private static class Command {
+
+    private final PipedOutputStream inputSink  = new PipedOutputStream();
+    private final PipedOutputStream errorSink  = new PipedOutputStream();
+    private final PipedInputStream  input;
+    private final PipedInputStream  error;
+    private final CountDownLatch    completed = new CountDownLatch(2);
+
+    private volatile int            exitCode  = -1;
+
+    private Command() throws IOException {
+      this.input = new PipedInputStream(this.inputSink, 65536);
+      this.error = new PipedInputStream(this.errorSink, 65536);
+    }
+  }
+}
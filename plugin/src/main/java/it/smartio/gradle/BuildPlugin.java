@@ -142,7 +142,8 @@ public class BuildPlugin implements Plugin<Project> {
   }
 
   /**
-   * Install all pipeline related tasks. Parses the pipeline configuration
+   * Install all pipeline related tasks. Parses the pipeline configuration. A failed pipeline can be
+   * resumed with the parameter 'resume'.
    *
    * @param project
    * @param config
@@ -154,7 +155,7 @@ public class BuildPlugin implements Plugin<Project> {
           String taskName = String.format("%s-%s", p.name, s.name);
           project.task(taskName).doLast(t -> {
             Pipeline pipeline = new Pipeline(config, project);
-            pipeline.exec(p.name, s.name);
+            pipeline.exec(p.name, s.name, config.hasParameter("resume"));
           });
         }
       }
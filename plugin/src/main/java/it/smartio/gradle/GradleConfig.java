@@ -49,6 +49,12 @@ public abstract class GradleConfig {
   public String password;
   public String branch;
 
+  public Integer depth;
+  public String  filter;
+  public Boolean singleBranch;
+  public String  reference;
+  public String  mirrorDir;
+
 
   public List<String> developer;
 
@@ -62,6 +68,21 @@ public abstract class GradleConfig {
 
   public String       vcvarsall;
 
+  public Integer      makeJobs;
+
+  public String       cacheDir;
+  public Integer      cacheSize;
+  public Boolean      cacheLinks;
+  public Boolean      copyLinks;
+
+  public Integer      archiveThreads;
+  public Integer      archiveLevel;
+
+  public Boolean      propertyDryRun;
+  public String       propertyReport;
+
+  public Boolean      processWorker;
+
   public String       androidSdkRoot;
   public String       androidNdkVersion;
   public String       androidNdkPlatform;
@@ -172,6 +193,27 @@ public abstract class GradleConfig {
     if (hasParameter("modules")) {
       env.put(Git.MODULES, getParameter("modules"));
     }
+    if (hasParameter("push")) {
+      env.put(Git.PUSH, Boolean.TRUE.toString());
+    }
+    if (hasParameter("dryRun")) {
+      env.put(Git.DRY_RUN, Boolean.TRUE.toString());
+    }
+    if (this.depth != null) {
+      env.put(Git.DEPTH, Integer.toString(this.depth));
+    }
+    if (this.filter != null) {
+      env.put(Git.FILTER, this.filter);
+    }
+    if (this.singleBranch != null) {
+      env.put(Git.SINGLE, Boolean.toString(this.singleBranch));
+    }
+    if (this.reference != null) {
+      env.put(Git.REFERENCE, this.reference);
+    }
+    if (this.mirrorDir != null) {
+      env.put(Git.MIRROR, this.mirrorDir);
+    }
     return env;
   }
   /**
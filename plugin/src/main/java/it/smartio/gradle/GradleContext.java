@@ -64,6 +64,11 @@ public class GradleContext extends TaskContextAsync {
       redirectStreams(input, error);
     }
 
+    @Override
+    public void onRedirect(String prefix, InputStream input, InputStream error) {
+      redirectStreams(prefix, input, error);
+    }
+
     @Override
     public void onInfo(String message, Object... arguments) {
       this.logger.warn(message, arguments);
@@ -21,16 +21,22 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.LinkedHashMap;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import it.smartio.build.Build;
 import it.smartio.build.QtPlatform;
 import it.smartio.common.env.Environment;
 import it.smartio.common.env.EnvironmentVariables;
 import it.smartio.util.env.OS;
+import it.smartio.util.file.FileSystem;
 import it.smartio.util.git.Repository;
 import it.smartio.util.git.RepositoryBuilder;
 import it.smartio.util.version.Revision;
@@ -88,28 +94,34 @@ public class GradleEnvironment extends EnvironmentVariables {
   }
 
   /**
-   * Parses the working directory for a GIT repository to get the versioning information.
+   * Applies the versioning information of the GIT repository.
+   *
+   * @param revision
+   */
+  private void parseRepository(Revision revision) {
+    setVariable(Build.GIT_HASH, revision.getHash());
+    setVariable(Build.GIT_DATE, revision.getISOTime());
+    setVariable(Build.GIT_VERSION, revision.toString("0.0.0"));
+
+    if (isSet(Build.BUILDNUMBER)) {
+      Version version = revision.build(get(Build.BUILDNUMBER));
+      revision = revision.build(version);
+    } else {
+      setVariable(Build.BUILDNUMBER, revision.getBuild());
+    }
+    setVariable(Build.REVISION, revision.toString("0.0.0+0")); // Used by IPA,AAB & APK
+  }
+
+  /**
+   * Loads the {@link Revision} of the GIT repository on the working directory. The number of
+   * commits and the nearest tag are cached by the repository.
    *
    * @param workingDir
    */
-  private void parseRepository(File workingDir) throws IOException {
+  private static Revision loadRevision(File workingDir) throws IOException {
     RepositoryBuilder builder = new RepositoryBuilder(workingDir);
     try (Repository repo = builder.enableMonitor().build()) {
-      Revision revision = repo.getRevision(Version.NONE);
-
-      setVariable(Build.GIT_HASH, revision.getHash());
-      setVariable(Build.GIT_DATE, revision.getISOTime());
-      setVariable(Build.GIT_VERSION, revision.toString("0.0.0"));
-
-      if (isSet(Build.BUILDNUMBER)) {
-        Version version = revision.build(get(Build.BUILDNUMBER));
-        revision = revision.build(version);
-      } else {
-        setVariable(Build.BUILDNUMBER, revision.getBuild());
-      }
-      setVariable(Build.REVISION, revision.toString("0.0.0+0")); // Used by IPA,AAB & APK
-
-      repo.catchAndThrow();
+      return repo.getRevision(Version.NONE);
     }
   }
 
@@ -127,6 +139,74 @@ public class GradleEnvironment extends EnvironmentVariables {
     }
   }
 
+  /**
+   * Parses the environment variables for the make processes and the process workers.
+   *
+   * @param config
+   * @param environment
+   */
+  private void parseMake(GradleConfig config, Environment environment) {
+    if (!environment.isSet(Build.MAKE_JOBS) && (config.makeJobs != null)) {
+      setVariable(Build.MAKE_JOBS, config.makeJobs.toString());
+    }
+    if (!environment.isSet(Build.PROCESS_WORKER) && (config.processWorker != null)) {
+      setVariable(Build.PROCESS_WORKER, config.processWorker.toString());
+    }
+  }
+
+  /**
+   * Parses the environment variables for the build cache and the hard links of copies.
+   *
+   * @param config
+   * @param workingDir
+   * @param environment
+   */
+  private void parseCache(GradleConfig config, File workingDir, Environment environment) {
+    if (!environment.isSet(Build.CACHE_DIR) && (config.cacheDir != null)) {
+      setVariable(Build.CACHE_DIR, FileSystem.getFile(config.cacheDir, workingDir).getAbsolutePath());
+    }
+    if (!environment.isSet(Build.CACHE_SIZE) && (config.cacheSize != null)) {
+      setVariable(Build.CACHE_SIZE, config.cacheSize.toString());
+    }
+    if (!environment.isSet(Build.CACHE_LINKS) && (config.cacheLinks != null)) {
+      setVariable(Build.CACHE_LINKS, config.cacheLinks.toString());
+    }
+    if (!environment.isSet(Build.COPY_LINKS) && (config.copyLinks != null)) {
+      setVariable(Build.COPY_LINKS, config.copyLinks.toString());
+    }
+  }
+
+  /**
+   * Parses the environment variables for the compression of archives.
+   *
+   * @param config
+   * @param environment
+   */
+  private void parseArchive(GradleConfig config, Environment environment) {
+    if (!environment.isSet(Build.ARCHIVE_THREADS) && (config.archiveThreads != null)) {
+      setVariable(Build.ARCHIVE_THREADS, config.archiveThreads.toString());
+    }
+    if (!environment.isSet(Build.ARCHIVE_LEVEL) && (config.archiveLevel != null)) {
+      setVariable(Build.ARCHIVE_LEVEL, config.archiveLevel.toString());
+    }
+  }
+
+  /**
+   * Parses the environment variables for the replacement of properties.
+   *
+   * @param config
+   * @param workingDir
+   * @param environment
+   */
+  private void parseProperty(GradleConfig config, File workingDir, Environment environment) {
+    if (!environment.isSet(Build.PROPERTY_DRY_RUN) && (config.propertyDryRun != null)) {
+      setVariable(Build.PROPERTY_DRY_RUN, config.propertyDryRun.toString());
+    }
+    if (!environment.isSet(Build.PROPERTY_REPORT) && (config.propertyReport != null)) {
+      setVariable(Build.PROPERTY_REPORT, FileSystem.getFile(config.propertyReport, workingDir).getAbsolutePath());
+    }
+  }
+
   /**
    * Parses the environment variables for Android.
    *
@@ -272,26 +352,39 @@ public class GradleEnvironment extends EnvironmentVariables {
   }
 
   /**
-   * Parses the working directory for a GIT repository to get the versioning information.
+   * Applies the branding properties of the working directory.
+   *
+   * @param props
+   */
+  private void parseBrandings(Properties props) {
+    if (props != null) {
+      setVariable(Build.PRODUCT_NAME, props.getProperty("name"));
+      setVariable(Build.PRODUCT_FILE, props.getProperty("file"));
+      setVariable(Build.IOS_EXPORT_ID, props.getProperty("ios.id"));
+      setVariable(Build.ANDROID_ID, props.getProperty("android.id"));
+    }
+  }
+
+  /**
+   * Loads the branding properties of the working directory, or <code>null</code> if not available.
    *
    * @param workingDir
    */
-  private void parseBrandings(File workingDir) throws IOException {
+  private static Properties loadBrandings(File workingDir) {
     File buildProperties = new File(workingDir, "platform/build.properties");
     if (buildProperties.exists()) {
       Properties props = new Properties();
-      try {
-        props.load(new FileReader(buildProperties));
-        setVariable(Build.PRODUCT_NAME, props.getProperty("name"));
-        setVariable(Build.PRODUCT_FILE, props.getProperty("file"));
-        setVariable(Build.IOS_EXPORT_ID, props.getProperty("ios.id"));
-        setVariable(Build.ANDROID_ID, props.getProperty("android.id"));
+      try (Reader reader = new FileReader(buildProperties)) {
+        props.load(reader);
+        return props;
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
+    return null;
   }
 
+
   /**
    * Parses the {@link GradleConfig} and the GIT repository on the working directory to provide more
    * variables to the environment.
@@ -305,16 +398,34 @@ public class GradleEnvironment extends EnvironmentVariables {
 
     // Creates the default environment variables().
     env.parseDefaults(workingDir, environment);
-    env.parseRepository(workingDir);
 
-    env.parseWindows(config, environment);
-    env.parseAndroid(config, environment);
-    env.parseiOS(config, environment);
-
-    env.parseQt(config, environment);
-
-    env.parseRevisionFile(env.get(Build.TARGET_DIR));
-    env.parseBrandings(workingDir);
+    // The probes on the file system are independent, the results are applied in order
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Revision> revision = executor.submit(() -> GradleEnvironment.loadRevision(workingDir));
+      Future<Properties> brandings = executor.submit(() -> GradleEnvironment.loadBrandings(workingDir));
+
+      env.parseMake(config, environment);
+      env.parseCache(config, workingDir, environment);
+      env.parseArchive(config, environment);
+      env.parseProperty(config, workingDir, environment);
+      env.parseWindows(config, environment);
+      env.parseAndroid(config, environment);
+      env.parseiOS(config, environment);
+
+      env.parseQt(config, environment);
+
+      env.parseRepository(revision.get());
+      env.parseRevisionFile(env.get(Build.TARGET_DIR));
+      env.parseBrandings(brandings.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
 
 
     // Publish the local variables on the Gradle System Environment.
@@ -25,18 +25,27 @@ import java.io.PrintWriter;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import it.smartio.build.Build;
 import it.smartio.build.QtPlatform;
 import it.smartio.common.env.Environment;
+import it.smartio.common.task.Task;
+import it.smartio.common.task.TaskContext;
 import it.smartio.common.task.TaskContextAsync;
+import it.smartio.common.task.process.ProcessWorker;
+import it.smartio.common.task.TaskParallel;
 import it.smartio.gradle.config.PipelineConfig;
 import it.smartio.gradle.config.StageConfig;
 import it.smartio.task.TaskBuilder;
 import it.smartio.task.TaskFactory;
+import it.smartio.task.TaskJournal;
+import it.smartio.task.TaskTrace;
 import it.smartio.task.cpp.AndroidDeployTask;
 import it.smartio.task.cpp.AndroidInstallTask;
+import it.smartio.task.cpp.MakeJobs;
 import it.smartio.task.cpp.MakeTask;
 import it.smartio.task.cpp.QMakeTask;
 import it.smartio.task.file.ArchiveTask;
@@ -80,18 +89,28 @@ public class Pipeline {
   }
 
   /**
-   * Parses the stages from the {@link GradleConfig}.
+   * Parses the pipeline from the {@link GradleConfig}.
    *
    * @param name
-   * @param stage
    */
-  private Stream<StageConfig> getStages(String name, String stage) {
+  private PipelineConfig getPipeline(String name) {
     Optional<PipelineConfig> optional = config.getPipelines().stream().filter(c -> c.name.equals(name)).findFirst();
     if (!optional.isPresent()) {
       project.getLogger().warn("Pipeline '{}' not found!", name);
       throw new RuntimeException(String.format("Pipeline '%s' not found!", name));
     }
-    return optional.get().getStages().stream().filter(s -> s.name.equals(stage));
+    return optional.get();
+  }
+
+  /**
+   * Parses the stages from the {@link PipelineConfig}. If no stage is defined, all stages of the
+   * pipeline are returned.
+   *
+   * @param pipeline
+   * @param stage
+   */
+  private Stream<StageConfig> getStages(PipelineConfig pipeline, String stage) {
+    return pipeline.getStages().stream().filter(s -> (stage == null) || s.name.equals(stage));
   }
 
   /**
@@ -101,28 +120,85 @@ public class Pipeline {
    * @param stage
    */
   public final void exec(String name, String stage) {
+    exec(name, stage, false);
+  }
+
+  /**
+   * Executes a pipeline from the {@link GradleConfig}. If the pipeline is resumed, the tasks that
+   * have been completed by the previous failed execution are skipped, as long as they are still
+   * valid.
+   *
+   * @param name
+   * @param stage
+   * @param resume
+   */
+  public final void exec(String name, String stage, boolean resume) {
+    RepositoryBuilder.resetMirrors();
+
     Logger logger = project.getLogger();
     File workingDir = config.getWorkingDir();
     Environment environment = config.getEnvironment(logger, workingDir);
+    String id = (stage == null) ? name : String.format("%s-%s", name, stage);
+
+    TaskJournal journal;
+    try {
+      journal = TaskJournal.of(id, environment, resume);
+    } catch (IOException e) {
+      logger.error("Couldn't read the journal of '{}'", id, e);
+      journal = TaskJournal.NONE;
+    }
+
+    try {
+      PropertyTask.resetReport(environment, workingDir);
+    } catch (IOException e) {
+      logger.error("Couldn't remove the property report of '{}'", id, e);
+    }
 
     Arguments arguments = new Arguments(config.getProject().getProperties());
 
-    TaskBuilder builder = new TaskBuilder(name);
-    getStages(name, stage).forEach(s -> {
-      TaskBuilder taskBuilder = builder.addTask(s.name);
+    PipelineConfig pipeline = getPipeline(name);
+    TaskBuilder builder = new TaskBuilder(name).setParallel(pipeline.parallel).setJournal(journal);
+    getStages(pipeline, stage).forEach(s -> {
+      TaskBuilder taskBuilder = builder.addTask(s.name).after(s.after);
 
       s.cmds.forEach(c -> taskBuilder.addTask(c, factory.createTask(c, arguments.merge(s.args), workingDir)));
-      s.getTasks().stream().filter(t -> QtPlatform.isSupported(t.device, environment)).forEach(t -> taskBuilder
-          .addTask(t.name, factory.createTask(t.name, arguments.merge(s.args).merge(t.args), workingDir)));
+      s.getTasks().stream().filter(t -> QtPlatform.isSupported(t.device, environment))
+          .forEach(t -> taskBuilder
+              .addTask(t.name, factory.createTask(t.name, arguments.merge(s.args).merge(t.args), workingDir))
+              .after(t.after));
     });
 
+    TaskTrace trace = new TaskTrace();
     logger.warn("Pipeline '{}-{}': starting...", name, stage);
     try (TaskContextAsync context = new GradleContext(logger, workingDir, environment)) {
+      context.setListener(trace);
       builder.build().handle(context);
+      journal.clear();
       logger.warn("Pipeline '{}-{}': completed!", name, stage);
     } catch (Throwable e) {
       logger.error("Pipeline '{}-{}': terminated!", name, stage, e);
       throw new RuntimeException(e);
+    } finally {
+      ProcessWorker.shutdown();
+      writeTrace(trace, environment, id);
+    }
+  }
+
+  /**
+   * Writes the timing of the tasks as Chrome trace to the target directory.
+   *
+   * @param trace
+   * @param environment
+   * @param name
+   */
+  private void writeTrace(TaskTrace trace, Environment environment, String name) {
+    Logger logger = project.getLogger();
+    logger.warn("Slowest tasks:\n{}", trace.getSummary(10));
+    File file = new File(environment.get(Build.TARGET_DIR), name + ".trace.json");
+    try {
+      trace.write(file);
+    } catch (IOException e) {
+      logger.error("Couldn't write the trace '{}'", file, e);
     }
   }
 
@@ -162,7 +238,7 @@ public class Pipeline {
       }
     }).setDescription("Applies the GIT revision number to the files");;
 
-    factory.add("archive", (a, w) -> new ArchiveTask(a.get("archive"), a.asList("sources")))
+    factory.add("archive", (a, w) -> new ArchiveTask(a.get("archive"), a.asList("sources"))).setCacheable()
         .setDescription("Archive the sources to the specified archiver file.");
 
     factory.add("qmake", (a, w) -> {
@@ -173,54 +249,23 @@ public class Pipeline {
       }
 
       File projectFile = new File(projectDir, module + ".pro");
-      return c -> {
-        Set<QtPlatform> platforms = QtPlatform.getPlatforms(c.getEnvironment());
-        platforms.stream().map(p -> new QMakeTask(p, module, projectFile)).forEach(t -> {
-          try {
-            t.handle(c);
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
-        });
-      };
+      return c -> Pipeline.handlePlatforms(a, c, p -> new QMakeTask(p, module, projectFile));
     }).setDescription("Invokes the QMake command to the defined modules.");
 
     factory.add("clean", (a, w) -> c -> {
       String module = a.get("module");
-      Set<QtPlatform> platforms = QtPlatform.getPlatforms(c.getEnvironment());
-      platforms.stream().map(p -> new MakeTask(p, module, "clean")).forEach(t -> {
-        try {
-          t.handle(c);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      });
+      Pipeline.handlePlatforms(a, c, p -> new MakeTask(p, module, "clean"));
     }).setDescription("Clean the modules");
 
     factory.add("make", (a, w) -> c -> {
       String module = a.get("module");
-      Set<QtPlatform> platforms = QtPlatform.getPlatforms(c.getEnvironment());
-      platforms.stream().map(p -> new MakeTask(p, module)).forEach(t -> {
-        try {
-          t.handle(c);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      });
+      Pipeline.handlePlatforms(a, c, p -> new MakeTask(p, module));
     }).setDescription("Invoke the make command on the modules");
 
     factory.add("install", (a, w) -> c -> {
       String module = a.get("module");
-      Set<QtPlatform> platforms = QtPlatform.getPlatforms(c.getEnvironment());
-      platforms.stream()
-          .map(p -> p.isAndroid() ? new AndroidInstallTask(p, module) : new MakeTask(p, module, "install"))
-          .forEach(t -> {
-            try {
-              t.handle(c);
-            } catch (IOException e) {
-              e.printStackTrace();
-            }
-          });
+      Pipeline.handlePlatforms(a, c,
+          p -> p.isAndroid() ? new AndroidInstallTask(p, module) : new MakeTask(p, module, "install"));
     }).setDescription("Installs the modules to the target directory.");
 
     factory.add("android", (a, w) -> new AndroidDeployTask(NAME_APP, a.get("module")))
@@ -234,7 +279,7 @@ public class Pipeline {
         .setDescription("Generates the braning informations");
 
     factory.add("package", (a, w) -> new PackageTask(a.get("source"), a.get("packages"), a.get("artifacts"),
-        a.get("modulePath"), a.asList("modules"))).setDescription("Creates the repository packages");
+        a.get("modulePath"), a.asList("modules"))).setCacheable().setDescription("Creates the repository packages");
     factory.add("repogen", (a, w) -> new RepositoryTask(a.get("packages"), a.get("repository")))
         .setDescription("Generates the repository for the installer");
 
@@ -242,4 +287,35 @@ public class Pipeline {
 
     return factory;
   }
+
+  /**
+   * Handles the {@link Task} for each available {@link QtPlatform}. If the argument 'parallel' is
+   * greater than 1, the platforms are processed concurrently and their make processes share the
+   * job slots of the {@link MakeJobs}. The first failing platform fails the task.
+   *
+   * @param arguments
+   * @param context
+   * @param function
+   */
+  private static void handlePlatforms(Arguments arguments, TaskContext context, Function<QtPlatform, Task> function)
+      throws IOException {
+    Set<QtPlatform> platforms = QtPlatform.getPlatforms(context.getEnvironment());
+    Object value = arguments.get("parallel", 1);
+    int parallel = Math.min(Integer.parseInt(value.toString()), platforms.size());
+
+    if (parallel <= 1) {
+      for (QtPlatform platform : platforms) {
+        function.apply(platform).handle(context);
+      }
+      return;
+    }
+
+    List<Task> tasks = platforms.stream().map(function).collect(Collectors.toList());
+    MakeJobs.register(parallel);
+    try {
+      new TaskParallel(tasks, parallel).handle(context);
+    } finally {
+      MakeJobs.unregister(parallel);
+    }
+  }
 }
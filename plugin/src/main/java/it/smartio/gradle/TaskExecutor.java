@@ -50,8 +50,7 @@ public interface TaskExecutor {
     }
     logger.warn("Environment variables loaded!");
 
-    GradleContext context = new GradleContext(logger, workingDir, environment);
-    try {
+    try (GradleContext context = new GradleContext(logger, workingDir, environment)) {
       task.handle(context);
     } catch (IOException e) {
       e.printStackTrace();
@@ -67,6 +66,10 @@ public interface TaskExecutor {
   static void execGit(GitTask task, GradleConfig config) {
     Logger logger = config.getProject().getLogger();
     Environment environment = Environment.of(config.toGitEnv());
-    task.handle(new GradleContext(logger, config.getWorkingDir(), environment));
+    try (GradleContext context = new GradleContext(logger, config.getWorkingDir(), environment)) {
+      task.handle(context);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
   }
 }
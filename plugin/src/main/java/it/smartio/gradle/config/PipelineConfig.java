@@ -37,7 +37,8 @@ public class PipelineConfig {
 
   public String              name;
   public List<String>        device;
-  public Map<String, String> env = new HashMap<>();
+  public Map<String, String> env      = new HashMap<>();
+  public int                 parallel = 1;
 
 
   private final ListProperty<StageConfig> stages;
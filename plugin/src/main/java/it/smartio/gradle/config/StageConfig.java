@@ -37,6 +37,7 @@ public class StageConfig {
 
   public String         name;
   public List<String>   device;
+  public List<String>   after;
 
   public List<String>   cmds;
   public Map<String, ?> args = new HashMap<>();
@@ -48,6 +49,7 @@ public class StageConfig {
   public StageConfig(Project project) {
     this.project = project;
     this.device = new ArrayList<>();
+    this.after = new ArrayList<>();
     this.cmds = new ArrayList<>();
     this.tasks = project.getObjects().listProperty(TaskConfig.class).empty();
   }
@@ -31,10 +31,12 @@ public class TaskConfig {
 
   public String         name;
   public List<String>   device;
+  public List<String>   after;
   public Map<String, ?> args = new HashMap<>();
 
   @Inject
   public TaskConfig(Project project) {
     this.device = new ArrayList<>();
+    this.after = new ArrayList<>();
   }
 }
@@ -16,8 +16,9 @@
 package it.smartio.task;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
 
 import it.smartio.common.task.Task;
 import it.smartio.util.Builder;
@@ -30,6 +31,10 @@ public class TaskBuilder implements Builder<Task> {
   private final String            name;
   private final Task              task;
   private final List<TaskBuilder> nodes = new ArrayList<>();
+  private final List<String>      after = new ArrayList<>();
+
+  private int                     parallel;
+  private TaskJournal             journal;
 
   /**
    * Constructs an instance of {@link TaskBuilder}.
@@ -75,11 +80,73 @@ public class TaskBuilder implements Builder<Task> {
     return builder;
   }
 
+  /**
+   * Declares the names of the sibling tasks, that must be completed before this task can start.
+   *
+   * @param names
+   */
+  public final TaskBuilder after(String... names) {
+    return after(Arrays.asList(names));
+  }
+
+  /**
+   * Declares the names of the sibling tasks, that must be completed before this task can start.
+   *
+   * @param names
+   */
+  public final TaskBuilder after(List<String> names) {
+    if (names != null) {
+      this.after.addAll(names);
+    }
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of tasks that are executed concurrently. The limit is global for the
+   * tree, nested stages and tasks share the same slots.
+   *
+   * @param parallel
+   */
+  public final TaskBuilder setParallel(int parallel) {
+    this.parallel = parallel;
+    return this;
+  }
+
+  /**
+   * Sets the {@link TaskJournal} to record the completed tasks. The journal is inherited by all
+   * nested tasks.
+   *
+   * @param journal
+   */
+  public final TaskBuilder setJournal(TaskJournal journal) {
+    this.journal = journal;
+    return this;
+  }
+
   /**
    * Builds an instance of {@link Task}.
    */
   @Override
   public final Task build() {
-    return new TaskTree(name, task, nodes.stream().map(n -> (TaskTree) n.build()).collect(Collectors.toList()));
+    Semaphore slots = (this.parallel > 1) ? new Semaphore(this.parallel, true) : null;
+    return build(name, slots, (this.journal == null) ? TaskJournal.NONE : this.journal);
+  }
+
+  /**
+   * Builds an instance of {@link TaskTree}, using the id, the slots and the journal of the parent.
+   * The id of a nested task contains its index in the parent, because the names of the tasks are
+   * not unique.
+   *
+   * @param id
+   * @param slots
+   * @param journal
+   */
+  private TaskTree build(String id, Semaphore slots, TaskJournal journal) {
+    List<TaskTree> children = new ArrayList<>();
+    for (int index = 0; index < nodes.size(); index++) {
+      String child = String.format("%s/%d.%s", id, index, nodes.get(index).name);
+      children.add(nodes.get(index).build(child, slots, journal));
+    }
+    return new TaskTree(id, name, task, children, after, slots, journal);
   }
 }
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.util.file.FileSystem;
+
+/**
+ * The {@link TaskCache} is a content-addressed store for the outputs of a {@link TaskCacheable}.
+ * The outputs are stored by the hash of the inputs and of the environment variables read by the
+ * task, so that they can be restored on a clean workspace or after switching branches. The names of
+ * the variables are stored per input hash, because they are only known after the task has been
+ * executed. The least recently used entries are removed, if the cache exceeds the maximum size.
+ *
+ * The outputs are copied, unless hard links are enabled. Hard links are only safe if the restored
+ * files are never modified in place.
+ */
+public class TaskCache {
+
+  private static final String ENTRY     = "entry.properties";
+  private static final String SIZE      = "size";
+  private static final String OUTPUT    = "output.";
+  private static final String VARIABLES = ".variables";
+  private static final String ALL       = "*";
+
+  private static final long   MEGA_BYTE = 1024 * 1024;
+
+
+  private final File    cacheDir;
+  private final long    maxSize;
+  private final boolean links;
+
+  /**
+   * Constructs an instance of {@link TaskCache}.
+   *
+   * @param cacheDir
+   * @param maxSize
+   * @param links
+   */
+  public TaskCache(File cacheDir, long maxSize, boolean links) {
+    this.cacheDir = cacheDir;
+    this.maxSize = maxSize;
+    this.links = links;
+  }
+
+  /**
+   * Restores the outputs of the entry, replacing the existing outputs. Returns <code>false</code>
+   * if there is no entry for the inputs and the current values of the variables, or if the entry
+   * has been stored for other outputs. The variables are read from the {@link TaskEnvironment}, so
+   * that they are recorded as if the task has read them.
+   *
+   * @param inputHash
+   * @param environment
+   * @param outputs
+   */
+  public final boolean restore(String inputHash, TaskEnvironment environment, List<File> outputs)
+      throws IOException {
+    Set<String> names = getVariables(inputHash);
+    if (names == null) {
+      return false;
+    }
+
+    File entry = new File(this.cacheDir, TaskCache.getKey(inputHash, names, environment));
+    if (!new File(entry, TaskCache.ENTRY).exists() || !TaskCache.isStoredFor(entry, outputs)) {
+      return false;
+    }
+
+    for (int index = 0; index < outputs.size(); index++) {
+      FileSystem.delete(outputs.get(index));
+      copy(new File(entry, Integer.toString(index)).toPath(), outputs.get(index).toPath(), this.links);
+    }
+    entry.setLastModified(System.currentTimeMillis());
+    return true;
+  }
+
+  /**
+   * Stores the outputs for the inputs and the variables read by the task. Outputs are only stored
+   * if all of them exist.
+   *
+   * @param inputHash
+   * @param environment
+   * @param outputs
+   */
+  public final void store(String inputHash, TaskEnvironment environment, List<File> outputs) throws IOException {
+    if (!outputs.stream().allMatch(File::exists)) {
+      return;
+    }
+
+    Set<String> names = new TreeSet<>(environment.getVariables().keySet());
+    if (environment.isMapped()) {
+      names.add(TaskCache.ALL);
+    }
+    Set<String> stored = getVariables(inputHash);
+    if ((stored == null) || !stored.containsAll(names)) {
+      if (stored != null) {
+        names.addAll(stored);
+      }
+      setVariables(inputHash, names);
+    } else {
+      names = stored;
+    }
+
+    String key = TaskCache.getKey(inputHash, names, environment);
+    File entry = new File(this.cacheDir, key);
+    if (entry.exists()) {
+      return;
+    }
+
+    File temp = new File(this.cacheDir, key + ".tmp" + System.nanoTime());
+    temp.mkdirs();
+    try {
+      long size = 0;
+      for (int index = 0; index < outputs.size(); index++) {
+        size += copy(outputs.get(index).toPath(), new File(temp, Integer.toString(index)).toPath(), false);
+      }
+
+      Properties properties = new Properties();
+      properties.setProperty(TaskCache.SIZE, Long.toString(size));
+      for (int index = 0; index < outputs.size(); index++) {
+        properties.setProperty(TaskCache.OUTPUT + index, outputs.get(index).getName());
+      }
+      try (Writer writer = new FileWriter(new File(temp, TaskCache.ENTRY))) {
+        properties.store(writer, null);
+      }
+
+      try {
+        Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+        // The entry has been stored concurrently
+      }
+    } finally {
+      FileSystem.delete(temp);
+    }
+
+    evict();
+  }
+
+  /**
+   * Returns <code>true</code> if the entry has been stored for outputs with the same names, so that
+   * an entry of an other layout of the outputs is never copied over the outputs.
+   *
+   * @param entry
+   * @param outputs
+   */
+  private static boolean isStoredFor(File entry, List<File> outputs) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = new FileReader(new File(entry, TaskCache.ENTRY))) {
+      properties.load(reader);
+    }
+    for (int index = 0; index < outputs.size(); index++) {
+      if (!outputs.get(index).getName().equals(properties.getProperty(TaskCache.OUTPUT + index))) {
+        return false;
+      }
+    }
+    return !properties.containsKey(TaskCache.OUTPUT + outputs.size());
+  }
+
+  /**
+   * Gets the names of the variables stored for the input hash, or <code>null</code>.
+   *
+   * @param inputHash
+   */
+  private Set<String> getVariables(String inputHash) throws IOException {
+    Path path = new File(this.cacheDir, inputHash + TaskCache.VARIABLES).toPath();
+    if (!Files.exists(path)) {
+      return null;
+    }
+    return Files.readAllLines(path, StandardCharsets.UTF_8).stream().filter(n -> !n.isEmpty())
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Stores the names of the variables for the input hash.
+   *
+   * @param inputHash
+   * @param names
+   */
+  private void setVariables(String inputHash, Set<String> names) throws IOException {
+    this.cacheDir.mkdirs();
+    Path path = new File(this.cacheDir, inputHash + TaskCache.VARIABLES).toPath();
+    Path temp = new File(this.cacheDir, inputHash + ".tmp" + System.nanoTime()).toPath();
+    Files.write(temp, names, StandardCharsets.UTF_8);
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Computes the key of an entry from the input hash and the current values of the variables.
+   *
+   * @param inputHash
+   * @param names
+   * @param environment
+   */
+  private static String getKey(String inputHash, Set<String> names, Environment environment) {
+    Map<String, String> values = new TreeMap<>();
+    values.put("<inputs>", inputHash);
+    for (String name : names) {
+      if (TaskCache.ALL.equals(name)) {
+        values.put(name, TaskFingerprint.getHash(environment.toMap()));
+      } else {
+        values.put(name, environment.isSet(name) ? "=" + environment.get(name) : "<unset>");
+      }
+    }
+    return TaskFingerprint.getHash(values);
+  }
+
+  /**
+   * Removes the least recently used entries, until the cache doesn't exceed the maximum size.
+   */
+  protected final void evict() throws IOException {
+    File[] files = this.cacheDir.listFiles(f -> new File(f, TaskCache.ENTRY).exists());
+    if ((this.maxSize <= 0) || (files == null)) {
+      return;
+    }
+
+    List<File> entries = new ArrayList<>();
+    long total = 0;
+    for (File entry : files) {
+      entries.add(entry);
+      total += TaskCache.getSize(entry);
+    }
+
+    entries.sort(Comparator.comparingLong(File::lastModified));
+    for (File entry : entries) {
+      if (total <= this.maxSize) {
+        break;
+      }
+      total -= TaskCache.getSize(entry);
+      FileSystem.delete(entry);
+    }
+  }
+
+  /**
+   * Gets the size of the entry.
+   *
+   * @param entry
+   */
+  private static long getSize(File entry) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = new FileReader(new File(entry, TaskCache.ENTRY))) {
+      properties.load(reader);
+    }
+    return Long.parseLong(properties.getProperty(TaskCache.SIZE, "0"));
+  }
+
+  /**
+   * Copies the file or directory from source to target and returns the number of bytes. If
+   * possible the files are linked instead of copied.
+   *
+   * @param source
+   * @param target
+   * @param link
+   */
+  private static long copy(Path source, Path target, boolean link) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(source)) {
+      paths = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    long size = 0;
+    for (Path path : paths) {
+      Path file = target.resolve(source.relativize(path).toString());
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      size += Files.size(path);
+      if (link) {
+        try {
+          Files.deleteIfExists(file);
+          Files.createLink(file, path);
+          continue;
+        } catch (IOException | UnsupportedOperationException e) {
+          // Fallback to a copy, e.g. if the cache is on a different file system
+        }
+      }
+      Files.copy(path, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+    return size;
+  }
+
+  /**
+   * Gets the {@link TaskCache} defined by the environment, or <code>null</code> if no cache is
+   * defined.
+   *
+   * @param environment
+   */
+  public static TaskCache of(Environment environment) {
+    if (!environment.isSet(Build.CACHE_DIR)) {
+      return null;
+    }
+
+    File cacheDir = new File(environment.get(Build.CACHE_DIR));
+    long maxSize = environment.isSet(Build.CACHE_SIZE)
+        ? Long.parseLong(environment.get(Build.CACHE_SIZE)) * TaskCache.MEGA_BYTE : 0;
+    boolean links = environment.isSet(Build.CACHE_LINKS) && Boolean.parseBoolean(environment.get(Build.CACHE_LINKS));
+    return new TaskCache(cacheDir, maxSize, links);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.io.IOException;
+
+import it.smartio.common.task.TaskContext;
+
+/**
+ * The {@link TaskCacheable} marks a deterministic {@link TaskIncremental}, whose outputs can be
+ * restored from the {@link TaskCache}. The outputs must only depend on the declared inputs.
+ */
+public class TaskCacheable implements TaskIncremental {
+
+  private final String          name;
+  private final TaskIncremental task;
+
+  /**
+   * Constructs an instance of {@link TaskCacheable}.
+   *
+   * @param name
+   * @param task
+   */
+  public TaskCacheable(String name, TaskIncremental task) {
+    this.name = name;
+    this.task = task;
+  }
+
+  /**
+   * Declares the inputs and outputs of the task, including the name of the task.
+   *
+   * @param fingerprint
+   * @param context
+   */
+  @Override
+  public final void declare(TaskFingerprint fingerprint, TaskContext context) throws IOException {
+    fingerprint.addValue("task", this.name);
+    this.task.declare(fingerprint, context);
+  }
+
+  /**
+   * Executes the task.
+   *
+   * @param context
+   */
+  @Override
+  public final void handle(TaskContext context) throws IOException {
+    this.task.handle(context);
+  }
+}
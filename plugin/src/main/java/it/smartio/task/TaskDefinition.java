@@ -29,6 +29,7 @@ public class TaskDefinition {
   private final TaskCreator creator;
 
   private String            description;
+  private boolean           cacheable;
 
   /**
    * Constructs an instance of {@link TaskDefinition}.
@@ -56,13 +57,25 @@ public class TaskDefinition {
   }
 
   /**
-   * Creates the Task.
+   * Returns <code>true</code> if the outputs of the task can be restored from the build cache.
+   */
+  public final boolean isCacheable() {
+    return cacheable;
+  }
+
+  /**
+   * Creates the Task. The {@link TaskIncremental} of a cacheable definition is wrapped as
+   * {@link TaskCacheable}.
    *
    * @param arguments
    * @param workingDir
    */
   protected final Task create(Arguments arguments, File workingDir) {
-    return creator.create(arguments, workingDir);
+    Task task = creator.create(arguments, workingDir);
+    if (cacheable && (task instanceof TaskIncremental)) {
+      return new TaskCacheable(name, (TaskIncremental) task);
+    }
+    return task;
   }
 
   /**
@@ -70,6 +83,11 @@ public class TaskDefinition {
    */
   public class Builder {
 
+    public final Builder setCacheable() {
+      TaskDefinition.this.cacheable = true;
+      return this;
+    }
+
     public final void setDescription(String description) {
       TaskDefinition.this.description = description;
     }
@@ -17,6 +17,7 @@ package it.smartio.task;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -27,7 +28,9 @@ import it.smartio.common.task.TaskLogger;
 
 
 /**
- * The {@link TaskEnvironment} class.
+ * The {@link TaskEnvironment} records the variables read by a task. Checking a variable with
+ * {@link #isSet(String)} records its value as well. Reading all variables with {@link #toMap()}
+ * marks the environment as mapped, so that any new or changed variable affects the task.
  */
 public class TaskEnvironment implements Environment, Closeable {
 
@@ -35,6 +38,7 @@ public class TaskEnvironment implements Environment, Closeable {
   private final Map<String, String> logged;
   private final Environment         environment;
 
+  private volatile boolean          mapped;
 
   /**
    * Constructs an instance of {@link TaskEnvironment}.
@@ -43,7 +47,7 @@ public class TaskEnvironment implements Environment, Closeable {
    */
   public TaskEnvironment(TaskContext context) {
     this.logger = context.getLogger();
-    this.logged = new HashMap<>();
+    this.logged = Collections.synchronizedMap(new HashMap<>());
     this.environment = context.getEnvironment();
   }
 
@@ -54,7 +58,9 @@ public class TaskEnvironment implements Environment, Closeable {
    */
   @Override
   public final boolean isSet(String name) {
-    return this.environment.isSet(name);
+    boolean isSet = this.environment.isSet(name);
+    this.logged.put(name, isSet ? this.environment.get(name) : null);
+    return isSet;
   }
 
   /**
@@ -74,13 +80,38 @@ public class TaskEnvironment implements Environment, Closeable {
    */
   @Override
   public final Map<String, String> toMap() {
+    this.mapped = true;
     return this.environment.toMap();
   }
 
+  /**
+   * Gets the variables, that have been read from the environment.
+   */
+  public final Map<String, String> getVariables() {
+    synchronized (this.logged) {
+      return new HashMap<>(this.logged);
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if all variables have been read from the environment.
+   */
+  public final boolean isMapped() {
+    return this.mapped;
+  }
+
+  /**
+   * Gets the wrapped {@link Environment}, to access the variables without recording them.
+   */
+  final Environment getEnvironment() {
+    return this.environment;
+  }
+
   @Override
   public void close() throws IOException {
-    if (!this.logged.isEmpty()) {
-      this.logger.onInfo(this.logged.entrySet().stream().map(e -> String.format("  %s = %s", e.getKey(), e.getValue()))
+    Map<String, String> logged = getVariables();
+    if (!logged.isEmpty()) {
+      this.logger.onInfo(logged.entrySet().stream().map(e -> String.format("  %s = %s", e.getKey(), e.getValue()))
           .collect(Collectors.joining("\n")));
     }
   }
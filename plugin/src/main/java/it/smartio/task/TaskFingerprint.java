@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The {@link TaskFingerprint} collects the inputs and outputs of a {@link TaskIncremental} and
+ * computes their hashes. Files are hashed by name and content, directories by the relative paths and
+ * the content of all files. The location of the working directory doesn't affect the hashes.
+ *
+ * The hashes are computed once. The stamp of the files, computed from the sizes and modification
+ * times, allows to detect unchanged files without reading their content.
+ */
+public class TaskFingerprint {
+
+  private final Map<String, String> values  = new TreeMap<>();
+  private final List<File>          inputs  = new ArrayList<>();
+  private final List<File>          outputs = new ArrayList<>();
+
+  private String                    inputHash;
+  private String                    outputHash;
+
+  /**
+   * Adds a named value, e.g. a parameter of the task.
+   *
+   * @param name
+   * @param value
+   */
+  public final TaskFingerprint addValue(String name, Object value) {
+    this.values.put(name, String.valueOf(value));
+    this.inputHash = null;
+    return this;
+  }
+
+  /**
+   * Adds an input file or directory.
+   *
+   * @param file
+   */
+  public final TaskFingerprint addInput(File file) {
+    this.inputs.add(file);
+    this.inputHash = null;
+    return this;
+  }
+
+  /**
+   * Adds an output file or directory.
+   *
+   * @param file
+   */
+  public final TaskFingerprint addOutput(File file) {
+    this.outputs.add(file);
+    this.outputHash = null;
+    return this;
+  }
+
+  /**
+   * Gets the declared outputs.
+   */
+  public final List<File> getOutputs() {
+    return Collections.unmodifiableList(this.outputs);
+  }
+
+  /**
+   * Gets the hash of the values and the inputs.
+   */
+  public final String getInputHash() throws IOException {
+    if (this.inputHash == null) {
+      MessageDigest digest = TaskFingerprint.newDigest();
+      for (Map.Entry<String, String> entry : this.values.entrySet()) {
+        TaskFingerprint.update(digest, entry.getKey() + "=" + entry.getValue());
+      }
+      for (File file : this.inputs) {
+        TaskFingerprint.update(digest, file);
+      }
+      this.inputHash = TaskFingerprint.toHex(digest.digest());
+    }
+    return this.inputHash;
+  }
+
+  /**
+   * Gets the hash of the outputs.
+   */
+  public final String getOutputHash() throws IOException {
+    if (this.outputHash == null) {
+      MessageDigest digest = TaskFingerprint.newDigest();
+      for (File file : this.outputs) {
+        TaskFingerprint.update(digest, file);
+      }
+      this.outputHash = TaskFingerprint.toHex(digest.digest());
+    }
+    return this.outputHash;
+  }
+
+  /**
+   * Resets the hash of the outputs, after the outputs have been changed by the task.
+   */
+  public final void resetOutputs() {
+    this.outputHash = null;
+  }
+
+  /**
+   * Computes the stamp of the values, the inputs and the outputs. The files are only identified by
+   * their relative path, size and modification time.
+   */
+  public final String getStamp() throws IOException {
+    MessageDigest digest = TaskFingerprint.newDigest();
+    for (Map.Entry<String, String> entry : this.values.entrySet()) {
+      TaskFingerprint.update(digest, entry.getKey() + "=" + entry.getValue());
+    }
+    for (File file : this.inputs) {
+      TaskFingerprint.stamp(digest, file);
+    }
+    TaskFingerprint.update(digest, "<outputs>");
+    for (File file : this.outputs) {
+      TaskFingerprint.stamp(digest, file);
+    }
+    return TaskFingerprint.toHex(digest.digest());
+  }
+
+  /**
+   * Computes the hash of the variables.
+   *
+   * @param variables
+   */
+  static String getHash(Map<String, String> variables) {
+    MessageDigest digest = TaskFingerprint.newDigest();
+    new TreeMap<>(variables).forEach((k, v) -> TaskFingerprint.update(digest, k + "=" + v));
+    return TaskFingerprint.toHex(digest.digest());
+  }
+
+  /**
+   * Creates a new {@link MessageDigest}.
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Updates the digest with the text.
+   *
+   * @param digest
+   * @param text
+   */
+  private static void update(MessageDigest digest, String text) {
+    digest.update(text.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Updates the digest with the file or directory.
+   *
+   * @param digest
+   * @param file
+   */
+  private static void update(MessageDigest digest, File file) throws IOException {
+    TaskFingerprint.update(digest, file.getName());
+    if (!file.exists()) {
+      TaskFingerprint.update(digest, "<missing>");
+      return;
+    }
+
+    Path root = file.toPath();
+    byte[] buffer = new byte[65536];
+    for (Path path : TaskFingerprint.getFiles(root)) {
+      TaskFingerprint.update(digest, root.relativize(path).toString());
+      try (InputStream stream = Files.newInputStream(path)) {
+        for (int length = stream.read(buffer); length > 0; length = stream.read(buffer)) {
+          digest.update(buffer, 0, length);
+        }
+      }
+    }
+  }
+
+  /**
+   * Updates the digest with the size and modification time of the file or the files of the
+   * directory.
+   *
+   * @param digest
+   * @param file
+   */
+  private static void stamp(MessageDigest digest, File file) throws IOException {
+    TaskFingerprint.update(digest, file.getName());
+    if (!file.exists()) {
+      TaskFingerprint.update(digest, "<missing>");
+      return;
+    }
+
+    Path root = file.toPath();
+    for (Path path : TaskFingerprint.getFiles(root)) {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      TaskFingerprint.update(digest,
+          String.format("%s:%s:%s", root.relativize(path), attributes.size(), attributes.lastModifiedTime()));
+    }
+  }
+
+  /**
+   * Gets the sorted regular files of the file or directory.
+   *
+   * @param root
+   */
+  private static List<Path> getFiles(Path root) throws IOException {
+    try (Stream<Path> stream = Files.walk(root)) {
+      return stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Converts the bytes to a hex string.
+   *
+   * @param bytes
+   */
+  private static String toHex(byte[] bytes) {
+    StringBuilder builder = new StringBuilder();
+    for (byte b : bytes) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.io.IOException;
+
+import it.smartio.common.task.Task;
+import it.smartio.common.task.TaskContext;
+
+/**
+ * The {@link TaskIncremental} is a {@link Task} that declares its inputs and outputs. The task is
+ * skipped, if neither the inputs, the outputs nor the environment variables read by the task have
+ * changed since the last execution.
+ */
+public interface TaskIncremental extends Task {
+
+  /**
+   * Declares the inputs and outputs of the task on the {@link TaskFingerprint}.
+   *
+   * @param fingerprint
+   * @param context
+   */
+  void declare(TaskFingerprint fingerprint, TaskContext context) throws IOException;
+}
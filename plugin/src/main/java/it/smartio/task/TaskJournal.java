@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.common.task.Task;
+import it.smartio.common.task.TaskContext;
+
+/**
+ * The {@link TaskJournal} records the tasks of a pipeline, that have been completed successfully,
+ * with their fingerprint. When a failed pipeline is resumed, the completed tasks are skipped as long
+ * as their fingerprint is still valid. The fingerprint of a task is computed by the
+ * {@link TaskFingerprint} from the GIT revision and the environment variables read by the task, so
+ * that changes of other tasks to the working directory don't invalidate it. Without a GIT revision
+ * there is no reliable fingerprint, so the tasks are executed again. A {@link TaskIncremental} isn't
+ * recorded, because its {@link TaskState} already detects whether it is up-to-date, without hashing
+ * the inputs and outputs once more.
+ *
+ * The journal is appended after each task, so that the progress survives an abort of the build.
+ */
+public class TaskJournal {
+
+  public static final TaskJournal NONE = new TaskJournal(null, new HashMap<>());
+
+
+  private static final String      ALL          = "*";
+  private static final String      NO_VARIABLES = "-";
+
+
+  private final File               file;
+  private final Map<String, Entry> completed;
+
+  /**
+   * Constructs an instance of {@link TaskJournal}.
+   *
+   * @param file
+   * @param completed
+   */
+  private TaskJournal(File file, Map<String, Entry> completed) {
+    this.file = file;
+    this.completed = completed;
+  }
+
+  /**
+   * Returns <code>true</code> if the task has been completed by a previous execution and the
+   * fingerprint is still valid.
+   *
+   * @param id
+   * @param task
+   * @param context
+   */
+  public final boolean isCompleted(String id, Task task, TaskContext context) throws IOException {
+    if (task instanceof TaskIncremental) {
+      return false;
+    }
+
+    Entry entry;
+    synchronized (this.completed) {
+      entry = this.completed.get(id);
+    }
+    return (entry != null) && entry.fingerprint.equals(TaskJournal.getFingerprint(entry.names, context));
+  }
+
+  /**
+   * Records the task as completed, with the variables read by the task.
+   *
+   * @param id
+   * @param task
+   * @param context
+   * @param environment
+   */
+  public final void complete(String id, Task task, TaskContext context, TaskEnvironment environment)
+      throws IOException {
+    if ((this.file == null) || (task instanceof TaskIncremental)) {
+      return;
+    }
+
+    Set<String> names = new TreeSet<>(environment.getVariables().keySet());
+    if (environment.isMapped()) {
+      names.add(TaskJournal.ALL);
+    }
+    String fingerprint = TaskJournal.getFingerprint(names, context);
+    if (fingerprint == null) {
+      return;
+    }
+    synchronized (this.completed) {
+      this.completed.put(id, new Entry(fingerprint, names));
+      this.file.getParentFile().mkdirs();
+      try (PrintWriter writer = new PrintWriter(new FileWriter(this.file, true))) {
+        String variables = names.isEmpty() ? TaskJournal.NO_VARIABLES : String.join(",", names);
+        writer.printf("%s %s %s%n", fingerprint, variables, id);
+      }
+    }
+  }
+
+  /**
+   * Removes the journal, e.g. after the pipeline has been completed successfully.
+   */
+  public final void clear() {
+    synchronized (this.completed) {
+      this.completed.clear();
+      if (this.file != null) {
+        this.file.delete();
+      }
+    }
+  }
+
+  /**
+   * Computes the fingerprint of the GIT revision and the current values of the named variables, or
+   * <code>null</code> if there is no GIT revision.
+   *
+   * @param names
+   * @param context
+   */
+  private static String getFingerprint(Set<String> names, TaskContext context) throws IOException {
+    Environment environment = context.getEnvironment();
+    if (!environment.isSet(Build.GIT_HASH)) {
+      return null;
+    }
+
+    TaskFingerprint fingerprint = new TaskFingerprint();
+    fingerprint.addValue("<revision>", environment.get(Build.GIT_HASH));
+    for (String name : names) {
+      if (TaskJournal.ALL.equals(name)) {
+        fingerprint.addValue(name, TaskFingerprint.getHash(environment.toMap()));
+      } else {
+        fingerprint.addValue(name, environment.isSet(name) ? environment.get(name) : null);
+      }
+    }
+    return fingerprint.getInputHash();
+  }
+
+  /**
+   * Creates a {@link TaskJournal} for the named pipeline in the build directory. If the pipeline is
+   * resumed, the tasks completed by the previous execution are loaded, otherwise the journal is
+   * started from scratch.
+   *
+   * @param name
+   * @param environment
+   * @param resume
+   */
+  public static TaskJournal of(String name, Environment environment, boolean resume) throws IOException {
+    if (!environment.isSet(Build.BUILD_DIR)) {
+      return TaskJournal.NONE;
+    }
+
+    File file = new File(new File(environment.get(Build.BUILD_DIR), ".journal"), name + ".journal");
+    Map<String, Entry> completed = new HashMap<>();
+    if (!resume) {
+      file.delete();
+    } else if (file.exists()) {
+      try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          String[] values = line.split(" ", 3);
+          if (values.length == 3) {
+            Set<String> names = new TreeSet<>();
+            if (!TaskJournal.NO_VARIABLES.equals(values[1])) {
+              names.addAll(Arrays.asList(values[1].split(",")));
+            }
+            completed.put(values[2], new Entry(values[0], names));
+          }
+        }
+      }
+    }
+    return new TaskJournal(file, completed);
+  }
+
+
+  /**
+   * The {@link Entry} of a completed task, the fingerprint and the names of the variables.
+   */
+  private static class Entry {
+
+    private final String      fingerprint;
+    private final Set<String> names;
+
+    /**
+     * Constructs an instance of {@link Entry}.
+     *
+     * @param fingerprint
+     * @param names
+     */
+    private Entry(String fingerprint, Set<String> names) {
+      this.fingerprint = fingerprint;
+      this.names = names;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import it.smartio.common.task.TaskContext;
+import it.smartio.common.task.TaskLogger;
+
+/**
+ * The {@link TaskScheduler} executes the sibling nodes of a {@link TaskTree}, respecting the
+ * declared dependencies. Nodes without pending dependencies are started concurrently, the number of
+ * tasks actually executed is limited by the slots shared by the whole tree. The first failure
+ * cancels all pending and running nodes, including their processes. The messages and the process
+ * output of concurrent nodes are prefixed with the name of the node.
+ */
+class TaskScheduler {
+
+  private final List<TaskTree> nodes;
+  private final boolean        parallel;
+
+  /**
+   * Constructs an instance of {@link TaskScheduler}.
+   *
+   * @param nodes
+   * @param parallel
+   */
+  TaskScheduler(List<TaskTree> nodes, boolean parallel) {
+    this.nodes = nodes;
+    this.parallel = parallel;
+  }
+
+  /**
+   * Resolves the dependencies of each node as the indices of the sibling nodes. Dependencies on
+   * unknown nodes are ignored, e.g. if a task has been filtered for the current device.
+   */
+  private List<List<Integer>> getDependencies() {
+    List<List<Integer>> dependencies = new ArrayList<>();
+    for (TaskTree node : this.nodes) {
+      List<Integer> indices = new ArrayList<>();
+      for (int index = 0; index < this.nodes.size(); index++) {
+        TaskTree other = this.nodes.get(index);
+        if ((other != node) && node.getAfter().contains(other.getName())) {
+          indices.add(index);
+        }
+      }
+      dependencies.add(indices);
+    }
+    return dependencies;
+  }
+
+  /**
+   * Gets the reverse dependencies, the indices of the nodes that depend on a node.
+   *
+   * @param dependencies
+   */
+  private List<List<Integer>> getDependents(List<List<Integer>> dependencies) {
+    List<List<Integer>> dependents = new ArrayList<>();
+    this.nodes.forEach(n -> dependents.add(new ArrayList<>()));
+    for (int index = 0; index < dependencies.size(); index++) {
+      for (int dependency : dependencies.get(index)) {
+        dependents.get(dependency).add(index);
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Sorts the nodes topologically. Independent nodes keep the declared order.
+   *
+   * @param dependencies
+   */
+  private List<Integer> sort(List<List<Integer>> dependencies) {
+    List<List<Integer>> dependents = getDependents(dependencies);
+    int[] pending = dependencies.stream().mapToInt(List::size).toArray();
+
+    TreeSet<Integer> ready = new TreeSet<>();
+    for (int index = 0; index < pending.length; index++) {
+      if (pending[index] == 0) {
+        ready.add(index);
+      }
+    }
+
+    List<Integer> sorted = new ArrayList<>();
+    while (!ready.isEmpty()) {
+      int index = ready.pollFirst();
+      sorted.add(index);
+      for (int dependent : dependents.get(index)) {
+        if (--pending[dependent] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+
+    if (sorted.size() < this.nodes.size()) {
+      throw new IllegalStateException("Cyclic dependency between the tasks!");
+    }
+    return sorted;
+  }
+
+  /**
+   * Executes the nodes on the {@link TaskContext}.
+   *
+   * @param context
+   */
+  public final void handle(TaskContext context) {
+    List<List<Integer>> dependencies = getDependencies();
+    List<Integer> sorted = sort(dependencies);
+
+    if (!this.parallel || (this.nodes.size() < 2)) {
+      sorted.forEach(i -> this.nodes.get(i).handle(context));
+      return;
+    }
+
+    List<List<Integer>> dependents = getDependents(dependencies);
+    int[] pending = dependencies.stream().mapToInt(List::size).toArray();
+
+    // The threads only wait for the slots of the tree, so they are not limited here
+    ExecutorService executor = Executors.newCachedThreadPool();
+    CompletionService<Integer> service = new ExecutorCompletionService<>(executor);
+    try {
+      int running = 0;
+      for (int index : sorted) {
+        if (pending[index] == 0) {
+          submit(service, index, context);
+          running++;
+        }
+      }
+
+      while (running > 0) {
+        Future<Integer> future = service.take();
+        running--;
+
+        int index = future.get();
+        for (int dependent : dependents.get(index)) {
+          if (--pending[dependent] == 0) {
+            submit(service, dependent, context);
+            running++;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new RuntimeException(cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Submits the node for execution.
+   *
+   * @param service
+   * @param index
+   * @param context
+   */
+  private void submit(CompletionService<Integer> service, int index, TaskContext context) {
+    TaskTree node = this.nodes.get(index);
+    TaskLogger logger = TaskLogger.prefix(String.format("[%s] ", node.getName()), context.getLogger());
+    TaskContext nodeContext = TaskContext.wrap(context.getWorkingDir(), context.getEnvironment(), logger,
+        context.getListener());
+    service.submit(() -> {
+      node.handle(nodeContext);
+      return index;
+    });
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.common.task.Task;
+import it.smartio.common.task.TaskContext;
+
+/**
+ * The {@link TaskState} stores the fingerprint of the last successful execution of a
+ * {@link TaskIncremental} in the build directory.
+ */
+public class TaskState {
+
+  private static final String STATE_DIR = ".tasks";
+
+  private static final String INPUTS    = "inputs";
+  private static final String OUTPUTS   = "outputs";
+  private static final String STAMP     = "stamp";
+  private static final String ALL       = "environment";
+  private static final String SET       = "env.";
+  private static final String UNSET     = "unset.";
+
+
+  private final File       file;
+  private final Properties properties;
+
+  /**
+   * Constructs an instance of {@link TaskState}.
+   *
+   * @param file
+   * @param properties
+   */
+  private TaskState(File file, Properties properties) {
+    this.file = file;
+    this.properties = properties;
+  }
+
+  /**
+   * Returns <code>true</code> if the task has been executed successfully with the same
+   * fingerprint, and the environment variables read by the task are unchanged. The content of the
+   * files is only hashed, if their sizes or modification times have been changed. If the content is
+   * unchanged, the new stamp is stored.
+   *
+   * @param fingerprint
+   * @param environment
+   */
+  public final boolean isUpToDate(TaskFingerprint fingerprint, Environment environment) throws IOException {
+    if (this.properties.isEmpty()) {
+      return false;
+    }
+
+    for (String key : this.properties.stringPropertyNames()) {
+      if (key.startsWith(TaskState.SET)) {
+        String name = key.substring(TaskState.SET.length());
+        if (!environment.isSet(name) || !this.properties.getProperty(key).equals(environment.get(name))) {
+          return false;
+        }
+      } else if (key.startsWith(TaskState.UNSET)) {
+        if (environment.isSet(key.substring(TaskState.UNSET.length()))) {
+          return false;
+        }
+      }
+    }
+
+    String all = this.properties.getProperty(TaskState.ALL);
+    if ((all != null) && !all.equals(TaskFingerprint.getHash(environment.toMap()))) {
+      return false;
+    }
+
+    String stamp = fingerprint.getStamp();
+    if (stamp.equals(this.properties.getProperty(TaskState.STAMP))) {
+      return true;
+    }
+
+    if (fingerprint.getInputHash().equals(this.properties.getProperty(TaskState.INPUTS))
+        && fingerprint.getOutputHash().equals(this.properties.getProperty(TaskState.OUTPUTS))) {
+      this.properties.setProperty(TaskState.STAMP, stamp);
+      store();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Saves the fingerprint and the environment variables read by the task.
+   *
+   * @param fingerprint
+   * @param environment
+   */
+  public final void save(TaskFingerprint fingerprint, TaskEnvironment environment) throws IOException {
+    this.properties.clear();
+    this.properties.setProperty(TaskState.INPUTS, fingerprint.getInputHash());
+    this.properties.setProperty(TaskState.OUTPUTS, fingerprint.getOutputHash());
+    this.properties.setProperty(TaskState.STAMP, fingerprint.getStamp());
+    environment.getVariables().forEach((name, value) -> {
+      if (value == null) {
+        this.properties.setProperty(TaskState.UNSET + name, "");
+      } else {
+        this.properties.setProperty(TaskState.SET + name, value);
+      }
+    });
+    if (environment.isMapped()) {
+      this.properties.setProperty(TaskState.ALL, TaskFingerprint.getHash(environment.getEnvironment().toMap()));
+    }
+    store();
+  }
+
+  /**
+   * Writes the state to the file.
+   */
+  private void store() throws IOException {
+    this.file.getParentFile().mkdirs();
+    try (Writer writer = new FileWriter(this.file)) {
+      this.properties.store(writer, null);
+    }
+  }
+
+  /**
+   * Removes the stored state.
+   */
+  public final void clear() {
+    this.properties.clear();
+    this.file.delete();
+  }
+
+  /**
+   * Loads the {@link TaskState} from the build directory.
+   *
+   * @param buildDir
+   * @param id
+   */
+  public static TaskState load(File buildDir, String id) throws IOException {
+    File stateDir = new File(buildDir, TaskState.STATE_DIR);
+    File file = new File(stateDir, id.replaceAll("[^A-Za-z0-9._-]", "_") + ".properties");
+
+    Properties properties = new Properties();
+    if (file.exists()) {
+      try (Reader reader = new FileReader(file)) {
+        properties.load(reader);
+      }
+    }
+    return new TaskState(file, properties);
+  }
+
+  /**
+   * Handles the {@link Task}. A {@link TaskIncremental} is skipped if it is up-to-date. Requires
+   * the {@link Build#BUILD_DIR} to store the state, otherwise the task is always executed. The
+   * outputs of a {@link TaskCacheable} are restored from or stored to the {@link TaskCache}.
+   *
+   * @param id
+   * @param task
+   * @param context
+   */
+  public static void handle(String id, Task task, TaskContext context) throws IOException {
+    // The variables of the state are accessed without recording them as read by the task
+    TaskEnvironment env = (context.getEnvironment() instanceof TaskEnvironment)
+        ? (TaskEnvironment) context.getEnvironment() : new TaskEnvironment(context);
+    Environment environment = env.getEnvironment();
+    if (!(task instanceof TaskIncremental) || !environment.isSet(Build.BUILD_DIR)) {
+      task.handle(context);
+      return;
+    }
+
+    File buildDir = new File(environment.get(Build.BUILD_DIR));
+    TaskContext taskContext = (env == context.getEnvironment()) ? context : context.wrap(env);
+
+    TaskFingerprint fingerprint = new TaskFingerprint();
+    ((TaskIncremental) task).declare(fingerprint, taskContext);
+
+    TaskState state = TaskState.load(buildDir, id);
+    if (state.isUpToDate(fingerprint, environment)) {
+      context.getLogger().onInfo("Task '{}': up-to-date", id);
+      return;
+    }
+
+    state.clear();
+    TaskCache cache = (task instanceof TaskCacheable) ? TaskCache.of(environment) : null;
+    if ((cache != null) && cache.restore(fingerprint.getInputHash(), env, fingerprint.getOutputs())) {
+      context.getLogger().onInfo("Task '{}': restored from cache", id);
+    } else {
+      task.handle(taskContext);
+      if (cache != null) {
+        cache.store(fingerprint.getInputHash(), env, fingerprint.getOutputs());
+      }
+    }
+    fingerprint.resetOutputs();
+    state.save(fingerprint, env);
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+import javax.json.JsonWriterFactory;
+import javax.json.stream.JsonGenerator;
+
+import it.smartio.common.task.TaskListener;
+
+/**
+ * The {@link TaskTrace} records the timing of the tasks and processes. The recorded events can be
+ * written in the Chrome trace event format, to be viewed with chrome://tracing or Perfetto.
+ */
+public class TaskTrace implements TaskListener {
+
+  private final List<Event> events = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * Notifies that a task has been completed.
+   *
+   * @param name
+   * @param started
+   * @param completed
+   * @param exitCode
+   * @param error
+   */
+  @Override
+  public final void onTaskCompleted(String name, long started, long completed, int exitCode, Throwable error) {
+    Map<String, Object> args = new HashMap<>();
+    if (error != null) {
+      args.put("error", String.valueOf(error.getMessage()));
+      args.put("exitCode", exitCode);
+    }
+    this.events.add(new Event(name, "task", started, completed, args));
+  }
+
+  /**
+   * Notifies that a process has been completed.
+   *
+   * @param command
+   * @param started
+   * @param completed
+   * @param exitCode
+   * @param cpuTime
+   * @param peakMemory
+   */
+  @Override
+  public final void onProcessCompleted(String command, long started, long completed, int exitCode, long cpuTime,
+      long peakMemory) {
+    Map<String, Object> args = new HashMap<>();
+    args.put("exitCode", exitCode);
+    if (cpuTime >= 0) {
+      args.put("cpuTime", cpuTime);
+    }
+    if (peakMemory >= 0) {
+      args.put("peakMemory", peakMemory);
+    }
+    this.events.add(new Event(command, "process", started, completed, args));
+  }
+
+  /**
+   * Gets a summary of the slowest tasks.
+   *
+   * @param limit
+   */
+  public final String getSummary(int limit) {
+    List<Event> tasks;
+    synchronized (this.events) {
+      tasks = this.events.stream().filter(e -> "task".equals(e.category)).collect(Collectors.toList());
+    }
+    return tasks.stream().sorted(Comparator.comparingLong(Event::getDuration).reversed()).limit(limit)
+        .map(e -> String.format("  %8d ms\t%s", e.getDuration(), e.name)).collect(Collectors.joining("\n"));
+  }
+
+  /**
+   * Writes the events as Chrome trace to the file.
+   *
+   * @param file
+   */
+  public final void write(File file) throws IOException {
+    JsonArrayBuilder array = Json.createArrayBuilder();
+    synchronized (this.events) {
+      for (Event event : this.events) {
+        JsonObjectBuilder args = Json.createObjectBuilder();
+        event.args.forEach((k, v) -> {
+          if (v instanceof Number) {
+            args.add(k, ((Number) v).longValue());
+          } else {
+            args.add(k, v.toString());
+          }
+        });
+
+        JsonObjectBuilder object = Json.createObjectBuilder();
+        object.add("name", event.name);
+        object.add("cat", event.category);
+        object.add("ph", "X");
+        object.add("ts", event.started * 1000);
+        object.add("dur", event.getDuration() * 1000);
+        object.add("pid", 1);
+        object.add("tid", event.thread);
+        object.add("args", args);
+        array.add(object);
+      }
+    }
+
+    Map<String, Boolean> config = new HashMap<>();
+    config.put(JsonGenerator.PRETTY_PRINTING, true);
+    JsonWriterFactory factory = Json.createWriterFactory(config);
+
+    file.getParentFile().mkdirs();
+    try (JsonWriter writer = factory.createWriter(new FileWriter(file))) {
+      writer.writeObject(Json.createObjectBuilder().add("traceEvents", array).add("displayTimeUnit", "ms").build());
+    }
+  }
+
+  /**
+   * The {@link Event} of a completed task or process.
+   */
+  private static class Event {
+
+    private final String              name;
+    private final String              category;
+    private final long                started;
+    private final long                completed;
+    private final long                thread;
+    private final Map<String, Object> args;
+
+    private Event(String name, String category, long started, long completed, Map<String, Object> args) {
+      this.name = name;
+      this.category = category;
+      this.started = started;
+      this.completed = completed;
+      this.thread = Thread.currentThread().getId();
+      this.args = args;
+    }
+
+    private long getDuration() {
+      return this.completed - this.started;
+    }
+  }
+}
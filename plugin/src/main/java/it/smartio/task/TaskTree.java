@@ -15,30 +15,82 @@
 
 package it.smartio.task;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
 import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
+import it.smartio.common.task.process.ProcessException;
 
 /**
  * The {@link TaskTree} class.
  */
 public class TaskTree implements Task {
 
+  private final String         id;
   private final String         name;
   private final Task           task;
   private final List<TaskTree> nodes;
+  private final List<String>   after;
+  private final Semaphore      slots;
+  private final TaskJournal    journal;
 
   /**
    * Constructs an instance of {@link TaskTree}.
    *
    * @param name
    * @param task
+   * @param nodes
    */
   public TaskTree(String name, Task task, List<TaskTree> nodes) {
+    this(name, name, task, nodes, Collections.emptyList(), null, TaskJournal.NONE);
+  }
+
+  /**
+   * Constructs an instance of {@link TaskTree}. The slots limit the tasks executed concurrently in
+   * the whole tree, the nodes are executed sequentially if <code>null</code>.
+   *
+   * @param id
+   * @param name
+   * @param task
+   * @param nodes
+   * @param after
+   * @param slots
+   * @param journal
+   */
+  public TaskTree(String id, String name, Task task, List<TaskTree> nodes, List<String> after, Semaphore slots,
+      TaskJournal journal) {
+    this.id = id;
     this.name = name;
     this.task = task;
     this.nodes = nodes;
+    this.after = after;
+    this.slots = slots;
+    this.journal = journal;
+  }
+
+  /**
+   * Gets the unique id of the task, the path of names from the root. Each name below the root is
+   * prefixed by the index of the task in its parent, so that tasks with the same name have
+   * different ids.
+   */
+  public final String getId() {
+    return this.id;
+  }
+
+  /**
+   * Gets the name of the task.
+   */
+  public final String getName() {
+    return this.name;
+  }
+
+  /**
+   * Gets the names of the sibling tasks, this task depends on.
+   */
+  public final List<String> getAfter() {
+    return this.after;
   }
 
   /**
@@ -48,22 +100,39 @@ public class TaskTree implements Task {
    */
   @Override
   public void handle(TaskContext context) {
+    long started = System.currentTimeMillis();
+    context.getListener().onTaskStarted(this.name, started);
     if (this.task != null) {
       context.getLogger().onInfo("Task '{}': starting...", this.name);
     }
     try {
       if (this.task != null) {
-        try (TaskEnvironment env = new TaskEnvironment(context)) {
-          this.task.handle(context.wrap(env));
+        if (this.journal.isCompleted(this.id, this.task, context)) {
+          context.getLogger().onInfo("Task '{}': completed by a previous run", this.name);
+        } else {
+          if (this.slots != null) {
+            this.slots.acquire();
+          }
+          try (TaskEnvironment env = new TaskEnvironment(context)) {
+            TaskState.handle(this.id, this.task, context.wrap(env));
+            this.journal.complete(this.id, this.task, context, env);
+          } finally {
+            if (this.slots != null) {
+              this.slots.release();
+            }
+          }
         }
       }
 
-      this.nodes.forEach(n -> n.handle(context));
+      new TaskScheduler(this.nodes, this.slots != null).handle(context);
 
       if (this.task != null) {
         context.getLogger().onInfo("Task '{}': completed!", this.name);
       }
+      context.getListener().onTaskCompleted(this.name, started, System.currentTimeMillis(), 0, null);
     } catch (Throwable e) {
+      int exitCode = ProcessException.getExitCode(e);
+      context.getListener().onTaskCompleted(this.name, started, System.currentTimeMillis(), exitCode, e);
       if (this.task != null) {
         context.getLogger().onError(e, "Task '{}': terminated!", this.name);
       }
@@ -33,7 +33,7 @@ public class AndroidInstallTask extends MakeTask {
     String suffix = (this.platform.abi == null) ? "" : "-" + this.platform.abi;
     File buildPath = new File(context.getEnvironment().get(Build.BUILD_DIR), this.moduleName);
     buildPath = new File(buildPath, this.platform.arch + suffix);
-    tasks.add(new AndroidShellTask(buildPath, "android-build"));
+    tasks.add(MakeJobs.wrap(new AndroidShellTask(buildPath, "android-build")));
   }
 
   /**
@@ -30,6 +30,7 @@ public class MakeBuilder extends CppBuilder {
 
   private File                      root;
   private String                    command;
+  private int                       jobs = Runtime.getRuntime().availableProcessors();
 
   private final Map<String, String> options = new HashMap<>();
 
@@ -58,6 +59,14 @@ public class MakeBuilder extends CppBuilder {
     return this;
   }
 
+  /**
+   * Sets the number of parallel jobs.
+   */
+  public final MakeBuilder setJobs(int jobs) {
+    this.jobs = jobs;
+    return this;
+  }
+
   /**
    * Sets a command option.
    */
@@ -80,7 +89,7 @@ public class MakeBuilder extends CppBuilder {
     } else {
       commands.add("make");
     }
-    commands.add("-j8");
+    commands.add("-j" + this.jobs);
 
     if (this.command != null) {
       commands.add(this.command);
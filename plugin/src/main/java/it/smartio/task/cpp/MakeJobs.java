@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task.cpp;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.common.task.Task;
+
+/**
+ * The {@link MakeJobs} implements a pool of job slots, shared by all make processes started by the
+ * same JVM. {@link Build#MAKE_JOBS} is the size of the pool, i.e. the total number of jobs of all
+ * concurrent make processes. A make process waits until at least one slot is free, and gets a fair
+ * share of the free slots. The share considers the make processes that have been registered to run
+ * concurrently, so that the first one doesn't acquire all slots.
+ *
+ * The pool doesn't coordinate with other JVMs on the same host, e.g. other agents or Gradle daemons.
+ * The jobs of a make process are fixed when it is started, the slots released by other processes
+ * are only distributed to the make processes started afterwards.
+ */
+public abstract class MakeJobs {
+
+  private static final int    PROCESSORS = Runtime.getRuntime().availableProcessors();
+  private static final Object LOCK       = new Object();
+
+  private static int          used       = 0;
+  private static int          running    = 0;
+  private static int          waiting    = 0;
+  private static int          registered = 0;
+
+  /**
+   * Constructs an instance of {@link MakeJobs}.
+   */
+  private MakeJobs() {}
+
+  /**
+   * Gets the size of the pool. If {@link Build#MAKE_JOBS} is not defined, the number of processors
+   * is used.
+   *
+   * @param environment
+   */
+  public static int getLimit(Environment environment) {
+    if (environment.isSet(Build.MAKE_JOBS)) {
+      return Math.max(1, Integer.parseInt(environment.get(Build.MAKE_JOBS)));
+    }
+    return MakeJobs.PROCESSORS;
+  }
+
+  /**
+   * Registers the number of make processes, that are going to run concurrently.
+   *
+   * @param processes
+   */
+  public static void register(int processes) {
+    synchronized (MakeJobs.LOCK) {
+      MakeJobs.registered += processes;
+    }
+  }
+
+  /**
+   * Unregisters the make processes, after they have been completed.
+   *
+   * @param processes
+   */
+  public static void unregister(int processes) {
+    synchronized (MakeJobs.LOCK) {
+      MakeJobs.registered -= processes;
+    }
+  }
+
+  /**
+   * Acquires the job slots for a make process. Waits until at least one of the slots is free.
+   *
+   * @param limit
+   */
+  public static int acquire(int limit) throws InterruptedException {
+    synchronized (MakeJobs.LOCK) {
+      MakeJobs.waiting++;
+      try {
+        while (MakeJobs.used >= limit) {
+          MakeJobs.LOCK.wait();
+        }
+      } finally {
+        MakeJobs.waiting--;
+      }
+
+      MakeJobs.running++;
+      int processes = Math.max(MakeJobs.running + MakeJobs.waiting, MakeJobs.registered);
+      int share = Math.max(1, limit / processes);
+      int jobs = Math.min(share, limit - MakeJobs.used);
+      MakeJobs.used += jobs;
+      return jobs;
+    }
+  }
+
+  /**
+   * Releases the job slots of a make process.
+   *
+   * @param jobs
+   */
+  public static void release(int jobs) {
+    synchronized (MakeJobs.LOCK) {
+      MakeJobs.running--;
+      MakeJobs.used -= jobs;
+      MakeJobs.LOCK.notifyAll();
+    }
+  }
+
+  /**
+   * Wraps the {@link Task} of a make process, so that it holds the job slots while it is running.
+   * The acquired number of jobs is provided as {@link Build#MAKE_JOBS} to the task.
+   *
+   * @param task
+   */
+  public static Task wrap(Task task) {
+    return c -> {
+      int jobs;
+      try {
+        jobs = MakeJobs.acquire(MakeJobs.getLimit(c.getEnvironment()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+      try {
+        String value = Integer.toString(jobs);
+        task.handle(c.wrap(c.getEnvironment().map(Collections.singletonMap(Build.MAKE_JOBS, value))));
+      } finally {
+        MakeJobs.release(jobs);
+      }
+    };
+  }
+}
@@ -66,10 +66,10 @@ public class MakeTask extends TaskList {
 
     if (this.platform.isAndroid()) {
       buildPath = new File(buildPath, this.platform.arch + "-" + this.platform.abi);
-      tasks.add(new MakeShellTask(buildPath));
+      tasks.add(MakeJobs.wrap(new MakeShellTask(buildPath)));
     } else {
       buildPath = new File(buildPath, this.platform.arch);
-      tasks.add(new MakeShellTask(buildPath));
+      tasks.add(MakeJobs.wrap(new MakeShellTask(buildPath)));
     }
   }
 
@@ -94,6 +94,9 @@ public class MakeTask extends TaskList {
     protected MakeBuilder getShellBuilder(TaskContext context) {
       MakeBuilder builder = new MakeBuilder(this.buildDir);
       builder.setCommand(MakeTask.this.command);
+      if (context.getEnvironment().isSet(Build.MAKE_JOBS)) {
+        builder.setJobs(Integer.parseInt(context.getEnvironment().get(Build.MAKE_JOBS)));
+      }
       if (OS.isWindows()) {
         // For the JOM compiler on windows
         builder.setRoot(new File(context.getEnvironment().get(Build.QT_ROOT)));
@@ -20,16 +20,20 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
 import it.smartio.common.env.EnvironmentUtil;
 import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
+import it.smartio.task.TaskFingerprint;
+import it.smartio.task.TaskIncremental;
 import it.smartio.util.archive.Assembly;
 
 
 /**
  * The {@link ArchiveTask} class.
  */
-public class ArchiveTask implements Task {
+public class ArchiveTask implements TaskIncremental {
 
   private final String       archive;
   private final List<String> patterns;
@@ -57,19 +61,55 @@ public class ArchiveTask implements Task {
   }
 
   /**
-   * Invokes the {@link Task}.
+   * Creates the {@link Assembly} of the archive.
    *
    * @param context
    */
-  @Override
-  public void handle(TaskContext context) throws IOException {
-    Path path = toPath(this.archive, context);
-
+  private Assembly toAssembly(TaskContext context) {
+    Environment environment = context.getEnvironment();
     Assembly assembly = Assembly.of(context.getWorkingDir());
-    assembly.setArchive(path.toFile());
+    assembly.setArchive(toPath(this.archive, context).toFile());
+    if (environment.isSet(Build.ARCHIVE_THREADS)) {
+      assembly.setThreads(Integer.parseInt(environment.get(Build.ARCHIVE_THREADS)));
+    }
+    if (environment.isSet(Build.ARCHIVE_LEVEL)) {
+      assembly.setLevel(Integer.parseInt(environment.get(Build.ARCHIVE_LEVEL)));
+    }
     for (String pattern : this.patterns) {
       assembly.addPattern(EnvironmentUtil.replace(pattern, context.getEnvironment()).trim());
     }
+    return assembly;
+  }
+
+  /**
+   * Declares the sources as inputs and the archive as output.
+   *
+   * @param fingerprint
+   * @param context
+   */
+  @Override
+  public final void declare(TaskFingerprint fingerprint, TaskContext context) throws IOException {
+    Assembly assembly = toAssembly(context);
+    fingerprint.addValue("archive", assembly.archive().getName());
+    if (context.getEnvironment().isSet(Build.ARCHIVE_LEVEL)) {
+      fingerprint.addValue("level", context.getEnvironment().get(Build.ARCHIVE_LEVEL));
+    }
+    for (int index = 0; index < this.patterns.size(); index++) {
+      String pattern = EnvironmentUtil.replace(this.patterns.get(index), context.getEnvironment());
+      fingerprint.addValue("pattern" + index, pattern);
+    }
+    assembly.getInputs().forEach(fingerprint::addInput);
+    fingerprint.addOutput(assembly.archive());
+  }
+
+  /**
+   * Invokes the {@link Task}.
+   *
+   * @param context
+   */
+  @Override
+  public void handle(TaskContext context) throws IOException {
+    Assembly assembly = toAssembly(context);
 
     context.getLogger().onInfo("Create Archive: '{}'", assembly.archive());
     assembly.build(m -> context.getLogger().onInfo(m));
@@ -22,16 +22,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
 import it.smartio.common.env.EnvironmentUtil;
-import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
+import it.smartio.task.TaskFingerprint;
+import it.smartio.task.TaskIncremental;
 import it.smartio.util.file.FileTreeCopying;
 
 /**
  * The {@link CopyTask} copies a directory or a file. In case of a directory the whole directory is
- * copied recursively.
+ * copied recursively. The copy is skipped if neither the source nor the target have changed.
  */
-public class CopyTask implements Task {
+public class CopyTask implements TaskIncremental {
 
   private final String source;
   private final String target;
@@ -58,6 +61,20 @@ public class CopyTask implements Task {
     return path.isAbsolute() ? path : context.getWorkingDir().toPath().resolve(path);
   }
 
+  /**
+   * Declares the source as input and the target as output.
+   *
+   * @param fingerprint
+   * @param context
+   */
+  @Override
+  public final void declare(TaskFingerprint fingerprint, TaskContext context) throws IOException {
+    fingerprint.addValue("source", this.source);
+    fingerprint.addValue("target", this.target);
+    fingerprint.addInput(toPath(this.source, context).toFile());
+    fingerprint.addOutput(toPath(this.target, context).toFile());
+  }
+
   /**
    * Handles the copy request.
    */
@@ -82,11 +99,14 @@ public class CopyTask implements Task {
     }
 
     if (isDirectory) {
-      FileTreeCopying.copyFileTree(sourcePath, targetPath);
+      Environment env = context.getEnvironment();
+      boolean links = env.isSet(Build.COPY_LINKS) && Boolean.parseBoolean(env.get(Build.COPY_LINKS));
+      FileTreeCopying copying = FileTreeCopying.copy(sourcePath, targetPath, links);
+      context.getLogger().onInfo("Copied {} files ({} bytes) from '{}' to '{}', {} files up-to-date",
+          copying.getFiles(), copying.getBytes(), sourcePath, targetPath, copying.getSkipped());
     } else {
       Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+      context.getLogger().onInfo("Copied from '{}' to '{}'", sourcePath, targetPath);
     }
-
-    context.getLogger().onInfo("Copied from '{}' to '{}'", sourcePath, targetPath);
   }
 }
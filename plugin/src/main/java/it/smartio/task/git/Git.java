@@ -29,6 +29,15 @@ public interface Git {
   String PASSWORD = "GIT_PASSWORD";
 
   String MODULES  = "GIT_MODULES";
+  String THREADS  = "GIT_THREADS";
+  String PUSH     = "GIT_PUSH";
+  String DRY_RUN  = "GIT_DRY_RUN";
+
+  String DEPTH     = "GIT_DEPTH";
+  String FILTER    = "GIT_FILTER";
+  String SINGLE    = "GIT_SINGLE_BRANCH";
+  String REFERENCE = "GIT_REFERENCE";
+  String MIRROR    = "GIT_MIRROR";
 
   public enum Release {
     None,
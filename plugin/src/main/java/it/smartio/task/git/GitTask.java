@@ -56,6 +56,26 @@ public class GitTask implements Task {
       builder.addSubModules(environment.get(Git.MODULES).split(","));
     }
 
+    if (environment.isSet(Git.THREADS)) {
+      builder.setThreads(Integer.parseInt(environment.get(Git.THREADS)));
+    }
+
+    if (environment.isSet(Git.DEPTH)) {
+      builder.setDepth(Integer.parseInt(environment.get(Git.DEPTH)));
+    }
+    if (environment.isSet(Git.FILTER)) {
+      builder.setFilter(environment.get(Git.FILTER));
+    }
+    if (environment.isSet(Git.SINGLE)) {
+      builder.setSingleBranch(Boolean.parseBoolean(environment.get(Git.SINGLE)));
+    }
+    if (environment.isSet(Git.REFERENCE)) {
+      builder.setReference(new File(environment.get(Git.REFERENCE)));
+    }
+    if (environment.isSet(Git.MIRROR)) {
+      builder.setMirror(new File(environment.get(Git.MIRROR)));
+    }
+
     try (Repository repo = builder.enableMonitor().build()) {
       handleRequest(repo, context);
       repo.catchAndThrow();
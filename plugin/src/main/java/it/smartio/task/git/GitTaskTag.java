@@ -17,6 +17,7 @@ package it.smartio.task.git;
 
 import java.io.IOException;
 
+import it.smartio.common.env.Environment;
 import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
 import it.smartio.util.git.Repository;
@@ -45,11 +46,14 @@ public class GitTaskTag extends GitTask {
     // version = version.build(context.getEnvironment().get(Build.BUILDNUMBER));
 
     request.commit(String.format("Commit %s", version.toString("0.00.0+0")));
-    request.tag(String.format("version/%s/%s", version.toString("0.00"), version.getPatch()));
-
-
-    // if (this.push) {
-    // repo.push();
-    // }
+    request.tagAll(String.format("version/%s/%s", version.toString("0.00"), version.getPatch()));
+
+    Environment environment = context.getEnvironment();
+    if (environment.isSet(Git.PUSH) && Boolean.parseBoolean(environment.get(Git.PUSH))) {
+      boolean dryRun = environment.isSet(Git.DRY_RUN) && Boolean.parseBoolean(environment.get(Git.DRY_RUN));
+      for (String update : request.push(dryRun)) {
+        context.getLogger().onInfo("GIT {} {}", dryRun ? "Would push" : "Pushed", update);
+      }
+    }
   }
 }
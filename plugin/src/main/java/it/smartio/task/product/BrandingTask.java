@@ -31,6 +31,8 @@ import it.smartio.common.env.Environment;
 import it.smartio.common.env.EnvironmentVariables;
 import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
+import it.smartio.task.TaskCacheable;
+import it.smartio.task.TaskState;
 import it.smartio.task.property.PropertyTask;
 import it.smartio.util.version.Version;
 
@@ -126,8 +128,10 @@ public class BrandingTask implements Task {
       new PropertyTask().handle(c.wrap(env));
 
       TaskContext context = c.wrap(workingDir, env);
-      new BrandingTaskAndroid().handle(context);
-      new BrandingTaskIOS().handle(context);
+      TaskState.handle("branding-android-" + workingDir.getName(),
+          new TaskCacheable("branding-android", new BrandingTaskAndroid()), context);
+      TaskState.handle("branding-ios-" + workingDir.getName(), new TaskCacheable("branding-ios", new BrandingTaskIOS()),
+          context);
     } catch (IOException e) {
       c.getLogger().onError(e, e.getMessage());
     }
@@ -18,6 +18,7 @@ package it.smartio.task.product;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
@@ -31,6 +32,15 @@ import it.smartio.util.svg.SVGTools;
  */
 public class BrandingTaskAndroid extends BrandingTaskPlatform {
 
+  @Override
+  protected final File getTarget(File workingDir) {
+    return new File(workingDir, "android/res");
+  }
+
+  @Override
+  protected final List<File> getOutputs(File target) {
+    return PngAndroid.getOutputs(target);
+  }
 
   @Override
   protected void render(File logo, File icon, String background, String bgColor, TaskContext context)
@@ -58,7 +68,6 @@ public class BrandingTaskAndroid extends BrandingTaskPlatform {
       renderer = new SvgAndroid(svgIcon, svgLogo, svgIconRound);
     }
 
-    File target = context.getWorkingDir();
-    renderer.render(new File(target, "android/res"));
+    renderer.render(getTarget(context.getWorkingDir()));
   }
 }
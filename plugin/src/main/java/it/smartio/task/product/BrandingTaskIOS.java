@@ -18,6 +18,7 @@ package it.smartio.task.product;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
@@ -31,6 +32,15 @@ import it.smartio.util.svg.SVGTools;
  */
 public class BrandingTaskIOS extends BrandingTaskPlatform {
 
+  @Override
+  protected final File getTarget(File workingDir) {
+    return new File(workingDir, "ios");
+  }
+
+  @Override
+  protected final List<File> getOutputs(File target) {
+    return PngApple.getOutputs(target);
+  }
 
   @Override
   protected void render(File logo, File icon, String background, String bgColor, TaskContext context)
@@ -51,7 +61,6 @@ public class BrandingTaskIOS extends BrandingTaskPlatform {
       renderer = new SvgApple(svgIcon, svgLogo);
     }
 
-    File target = context.getWorkingDir();
-    renderer.render(new File(target, "ios"));
+    renderer.render(getTarget(context.getWorkingDir()));
   }
 }
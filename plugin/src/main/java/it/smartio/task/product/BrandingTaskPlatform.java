@@ -17,16 +17,49 @@ package it.smartio.task.product;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
-import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
+import it.smartio.task.TaskFingerprint;
+import it.smartio.task.TaskIncremental;
 import it.smartio.util.file.FileSystem;
 
 
 /**
- * The {@link BrandingTaskPlatform} is used to create all Android & iOS branding details.
+ * The {@link BrandingTaskPlatform} is used to create all Android & iOS branding details. The images
+ * are only rendered if the icon, the logo or the background have changed.
  */
-public abstract class BrandingTaskPlatform implements Task {
+public abstract class BrandingTaskPlatform implements TaskIncremental {
+
+  /**
+   * Gets the PNG or SVG image of the named variable.
+   *
+   * @param variable
+   * @param context
+   */
+  private static File getImage(String variable, TaskContext context) {
+    String name = context.getEnvironment().get(variable);
+    File image = FileSystem.getFile(new File(name + ".png"), context.getWorkingDir());
+    if (!image.exists()) {
+      image = FileSystem.getFile(new File(name + ".svg"), context.getWorkingDir());
+    }
+    return image;
+  }
+
+  /**
+   * Declares the icon and the logo as inputs and the rendered images as outputs. Only the rendered
+   * files are outputs, the other files of the target are changed by other tasks.
+   *
+   * @param fingerprint
+   * @param context
+   */
+  @Override
+  public final void declare(TaskFingerprint fingerprint, TaskContext context) throws IOException {
+    fingerprint.addValue("background", context.getEnvironment().get(Branding.BACKGROUND));
+    fingerprint.addInput(BrandingTaskPlatform.getImage(Branding.ICON, context));
+    fingerprint.addInput(BrandingTaskPlatform.getImage(Branding.LOGO, context));
+    getOutputs(getTarget(context.getWorkingDir())).forEach(fingerprint::addOutput);
+  }
 
   /**
    * Applies the sub-tasks to branding the applications for the customer.
@@ -35,22 +68,27 @@ public abstract class BrandingTaskPlatform implements Task {
    */
   @Override
   public final void handle(TaskContext context) throws IOException {
-    String iconName = context.getEnvironment().get(Branding.ICON);
-    String logoName = context.getEnvironment().get(Branding.LOGO);
-    File icon = FileSystem.getFile(new File(iconName + ".png"), context.getWorkingDir());
-    if (!icon.exists()) {
-      icon = FileSystem.getFile(new File(iconName + ".svg"), context.getWorkingDir());
-    }
-    File logo = FileSystem.getFile(new File(logoName + ".png"), context.getWorkingDir());
-    if (!logo.exists()) {
-      logo = FileSystem.getFile(new File(logoName + ".svg"), context.getWorkingDir());
-    }
+    File icon = BrandingTaskPlatform.getImage(Branding.ICON, context);
+    File logo = BrandingTaskPlatform.getImage(Branding.LOGO, context);
     String background = context.getEnvironment().get(Branding.BACKGROUND);
     String bgColor = background == null ? "#ffffff" : background;
 
     render(logo, icon, background, bgColor, context);
   }
 
+  /**
+   * Gets the target directory of the rendered images.
+   *
+   * @param workingDir
+   */
+  protected abstract File getTarget(File workingDir);
+
+  /**
+   * Gets the rendered files of the target directory.
+   *
+   * @param target
+   */
+  protected abstract List<File> getOutputs(File target);
 
   protected abstract void render(File logo, File icon, String background, String bgColor, TaskContext context)
       throws IOException;
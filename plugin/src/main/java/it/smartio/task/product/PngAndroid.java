@@ -20,12 +20,17 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The {@link PngAndroid} class.
  */
 public class PngAndroid implements Renderer {
 
+  private static final String[] IMAGES = { "icon.png", "round.png", "landscape.png", "screen.png" };
+
+
   private final Image icon;
   private final Image logo;
   private final Image rounded;
@@ -78,6 +83,24 @@ public class PngAndroid implements Renderer {
     }
   }
 
+  /**
+   * Gets the files, that are rendered for a custom Android build. The {@link SvgAndroid} renders
+   * the same files.
+   *
+   * @param workingDir
+   */
+  public static List<File> getOutputs(File workingDir) {
+    List<File> files = new ArrayList<>();
+    for (Drawable drawable : Drawable.values()) {
+      String name = drawable.name.isEmpty() ? "" : "-" + drawable.name;
+      File folder = new File(workingDir, String.format("drawable%s", name));
+      for (String image : PngAndroid.IMAGES) {
+        files.add(new File(folder, image));
+      }
+    }
+    return files;
+  }
+
   private enum Drawable {
 
     NONE("", 36f, 800, 480),
@@ -21,7 +21,9 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.json.Json;
@@ -121,6 +123,27 @@ public class PngApple implements Renderer {
     }
   }
 
+  /**
+   * Gets the files, that are rendered for a custom iOS build. The {@link SvgApple} renders the
+   * same files.
+   *
+   * @param workingDir
+   */
+  public static List<File> getOutputs(File workingDir) {
+    List<File> files = new ArrayList<>();
+    File launch = new File(workingDir, "Images.launch");
+    for (LaunchImage launcher : LaunchImage.values()) {
+      files.add(new File(launch, String.format("LaunchImage-iOS7%s.png", launcher.idiom)));
+    }
+
+    File appicon = new File(workingDir, "Images.xcassets/AppIcon.appiconset");
+    for (IconSet e : IconSet.values()) {
+      files.add(new File(appicon, String.format("AppIcon%s@%sx~%s.png", e.size, e.scale, e.idiom)));
+    }
+    files.add(new File(appicon, "Contents.json"));
+    return files;
+  }
+
   private enum LaunchImage {
 
     DEFAULT("-568h@2x", 640, 960),
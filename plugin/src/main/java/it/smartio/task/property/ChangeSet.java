@@ -15,28 +15,191 @@
 
 package it.smartio.task.property;
 
-import java.util.HashSet;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import java.util.function.Consumer;
 
 /**
- * The {@link ChangeSet} class.
+ * The {@link ChangeSet} class collects the changes of a file. Each occurrence of a property is
+ * recorded with the byte offset and length of the replaced text, in the encoding of the file. Once
+ * a replacer has been committed, the offset and length of its changes refer to the new value in
+ * the content it has produced, also if further replacers are applied.
  */
 class ChangeSet {
 
-  private final Set<ChangeSet.Change> changeset = new HashSet<>();
+  private final Charset charset;
+
+  // Most files have no changes, the list is created for the first change
+  private List<ChangeSet.Change> changes;
+  // The number of changes, that have been committed
+  private int                    committed;
+
+  /**
+   * Constructs an instance of {@link ChangeSet}.
+   */
+  public ChangeSet() {
+    this(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Constructs an instance of {@link ChangeSet}.
+   *
+   * @param charset
+   */
+  public ChangeSet(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Gets the {@link Charset} of the file.
+   */
+  public final Charset getCharset() {
+    return this.charset;
+  }
+
+  /**
+   * Gets all changes, in the order of the file.
+   */
+  public final List<ChangeSet.Change> getChanges() {
+    return (this.changes == null) ? Collections.emptyList() : Collections.unmodifiableList(this.changes);
+  }
 
   public final boolean isEmpty() {
-    return this.changeset.isEmpty();
+    return (this.changes == null) || this.changes.isEmpty();
   }
 
   public final void add(String property, String valueOld, String valueNew) {
-    this.changeset.add(new Change(property, valueOld, valueNew));
+    add(property, valueOld, valueNew, -1, -1);
   }
 
+  public final void add(String property, String valueOld, String valueNew, long offset, long length) {
+    if (this.changes == null) {
+      this.changes = new ArrayList<>();
+    }
+    this.changes.add(new Change(property, valueOld, valueNew, offset, length));
+  }
+
+  /**
+   * Commits the changes of a replacer, that refer to the replaced text of its input. The changes
+   * are moved to the new value in the output of the replacer, the changes of the previous replacers
+   * are moved by the length each change differs. A previous change, that overlaps a change of the
+   * replacer, covers the new value of both.
+   */
+  final void commit() {
+    if ((this.changes == null) || (this.committed == this.changes.size())) {
+      return;
+    }
+
+    List<ChangeSet.Change> edits = new ArrayList<>();
+    for (Change change : this.changes.subList(this.committed, this.changes.size())) {
+      if (change.OFFSET >= 0) {
+        edits.add(change);
+      }
+    }
+
+    // The ends of the replaced text and the sum of the differences before each edit
+    long[] ends = new long[edits.size()];
+    long[] deltas = new long[edits.size() + 1];
+    for (int index = 0; index < edits.size(); index++) {
+      Change edit = edits.get(index);
+      ends[index] = edit.OFFSET + edit.LENGTH;
+      deltas[index + 1] = deltas[index] + getLength(edit.NEW_VALUE) - edit.LENGTH;
+    }
+
+    int next = 0;
+    for (int index = 0; index < this.changes.size(); index++) {
+      Change change = this.changes.get(index);
+      if (change.OFFSET < 0) {
+        continue;
+      } else if (index >= this.committed) {
+        long offset = change.OFFSET + deltas[next++];
+        this.changes.set(index, new Change(change.PROPERTY, change.OLD_VALUE, change.NEW_VALUE, offset,
+            getLength(change.NEW_VALUE)));
+        continue;
+      }
+
+      // The edits ending before the change and the edits overlapping the change
+      long start = change.OFFSET;
+      long end = change.OFFSET + change.LENGTH;
+      int first = ChangeSet.count(ends, start);
+      int last = first;
+      while ((last < edits.size()) && (edits.get(last).OFFSET < end)) {
+        start = Math.min(start, edits.get(last).OFFSET);
+        end = Math.max(end, ends[last]);
+        last++;
+      }
+      start += deltas[first];
+      end += deltas[last];
+      this.changes.set(index, new Change(change.PROPERTY, change.OLD_VALUE, change.NEW_VALUE, start, end - start));
+    }
+    this.committed = this.changes.size();
+  }
+
+  /**
+   * Counts the sorted values, that are less than or equal to the value.
+   *
+   * @param values
+   * @param value
+   */
+  private static int count(long[] values, long value) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (values[middle] <= value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Performs the action for the first change of each property.
+   *
+   * @param action
+   */
   public final void forEach(Consumer<ChangeSet.Change> action) {
-    this.changeset.forEach(action);
+    if (this.changes != null) {
+      new LinkedHashSet<>(this.changes).forEach(action);
+    }
+  }
+
+  /**
+   * Gets the number of bytes, the text is encoded with.
+   *
+   * @param text
+   */
+  private long getLength(String text) {
+    return (text == null) ? 0 : getLength(text, 0, text.length());
+  }
+
+  /**
+   * Gets the number of bytes, the characters are encoded with.
+   *
+   * @param input
+   * @param start
+   * @param end
+   */
+  final long getLength(CharSequence input, int start, int end) {
+    if (this.charset.equals(StandardCharsets.ISO_8859_1)) {
+      return end - start;
+    } else if (!this.charset.equals(StandardCharsets.UTF_8)) {
+      return 2L * (end - start);
+    }
+
+    long length = 0;
+    for (int index = start; index < end; index++) {
+      char c = input.charAt(index);
+      length += (c < 0x80) ? 1 : (c < 0x800) || Character.isSurrogate(c) ? 2 : 3;
+    }
+    return length;
   }
 
   class Change {
@@ -44,6 +207,8 @@ class ChangeSet {
     public final String PROPERTY;
     public final String OLD_VALUE;
     public final String NEW_VALUE;
+    public final long   OFFSET;
+    public final long   LENGTH;
 
     /**
      * Constructs an instance of {@link ChangeSet}.
@@ -51,11 +216,15 @@ class ChangeSet {
      * @param property
      * @param valueOld
      * @param valueNew
+     * @param offset
+     * @param length
      */
-    private Change(String property, String valueOld, String valueNew) {
+    private Change(String property, String valueOld, String valueNew, long offset, long length) {
       this.PROPERTY = property;
       this.OLD_VALUE = valueOld;
       this.NEW_VALUE = valueNew;
+      this.OFFSET = offset;
+      this.LENGTH = length;
     }
 
     /**
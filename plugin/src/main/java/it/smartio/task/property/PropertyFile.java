@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.task.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.List;
+
+import it.smartio.common.env.Environment;
+
+/**
+ * The {@link PropertyFile} is the content of a file, that is processed by the {@link Replacer}'s.
+ * The encoding of the file is detected by its byte order mark, otherwise the file is decoded as
+ * UTF-8 if possible or as ISO-8859-1, which preserves any byte. The content is written with the
+ * same encoding, but only if it has been changed.
+ *
+ * Files larger than 8 MB are never read into memory, they are streamed through the replacers.
+ */
+class PropertyFile {
+
+  private static final long THRESHOLD = 8L << 20;
+  private static final int  CHUNK     = 1 << 20;
+
+  // Discards the content of a replacer, that is only checked for changes
+  private static final Writer DISCARD = new Writer() {
+
+    @Override
+    public Writer append(CharSequence csq) {
+      return this;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) {}
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  };
+
+
+  private final File    file;
+  private final Charset charset;
+  private final String  content;
+
+  /**
+   * Constructs an instance of {@link PropertyFile}.
+   *
+   * @param file
+   * @param charset
+   * @param content
+   */
+  private PropertyFile(File file, Charset charset, String content) {
+    this.file = file;
+    this.charset = charset;
+    this.content = content;
+  }
+
+  /**
+   * Gets the {@link File}.
+   */
+  public final File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Gets the {@link Charset} of the file.
+   */
+  public final Charset getCharset() {
+    return this.charset;
+  }
+
+  /**
+   * Gets the content of the file.
+   */
+  public final String getContent() {
+    return this.content;
+  }
+
+  /**
+   * Writes the content, if it differs from the content of the file. The content is written to a
+   * temporary file, that replaces the file, so that the file is never left partially written.
+   * Returns <code>true</code> if the file has been written.
+   *
+   * @param content
+   */
+  public final boolean write(String content) throws IOException {
+    if (this.content.equals(content)) {
+      return false;
+    }
+
+    Path path = this.file.toPath();
+    Path temp = Files.createTempFile(path.getParent(), "." + this.file.getName(), ".tmp");
+    try {
+      Files.write(temp, content.getBytes(this.charset));
+      PropertyFile.replace(temp, path);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return true;
+  }
+
+  /**
+   * Returns <code>true</code> if the file is too large to be read into memory. A large file is
+   * processed with {@link #replace(File, List, Environment, boolean)}.
+   *
+   * @param file
+   */
+  public static boolean isLarge(File file) {
+    return file.length() > PropertyFile.THRESHOLD;
+  }
+
+  /**
+   * Replaces the properties of a large file, without reading the whole content into memory. Each
+   * replacer first reads the content without writing it. Only a replacer, that changes a property,
+   * streams the content to a temporary file, the last one replaces the file. On a dry run the
+   * temporary files are created outside of the working directory and the file is never replaced.
+   *
+   * @param file
+   * @param replacers
+   * @param environment
+   * @param dryRun
+   */
+  public static ChangeSet replace(File file, List<Replacer> replacers, Environment environment, boolean dryRun)
+      throws IOException {
+    Path path = file.toPath();
+    Charset charset = PropertyFile.getCharset(path);
+    ChangeSet properties = new ChangeSet(charset);
+
+    Path input = path;
+    try {
+      for (Replacer replacer : replacers) {
+        if (!PropertyFile.isChanged(input, charset, replacer, environment)) {
+          continue;
+        }
+
+        String prefix = "." + file.getName();
+        Path output =
+            dryRun ? Files.createTempFile(prefix, ".tmp") : Files.createTempFile(path.getParent(), prefix, ".tmp");
+        try (Reader reader = Files.newBufferedReader(input, charset);
+            Writer writer = Files.newBufferedWriter(output, charset)) {
+          replacer.replace(reader, writer, environment, properties);
+        } finally {
+          if (input != path) {
+            Files.deleteIfExists(input);
+          }
+          input = output;
+        }
+      }
+
+      if (!properties.isEmpty() && !dryRun && (input != path)) {
+        PropertyFile.replace(input, path);
+      }
+    } finally {
+      if (input != path) {
+        Files.deleteIfExists(input);
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Returns <code>true</code> if the replacer changes any property of the file. The replaced
+   * content is discarded.
+   *
+   * @param path
+   * @param charset
+   * @param replacer
+   * @param environment
+   */
+  private static boolean isChanged(Path path, Charset charset, Replacer replacer, Environment environment)
+      throws IOException {
+    ChangeSet properties = new ChangeSet(charset);
+    try (Reader reader = Files.newBufferedReader(path, charset)) {
+      replacer.replace(reader, PropertyFile.DISCARD, environment, properties);
+    }
+    return !properties.isEmpty();
+  }
+
+  /**
+   * Replaces the file with the temporary file, keeping the permissions of the file.
+   *
+   * @param temp
+   * @param path
+   */
+  private static void replace(Path temp, Path path) throws IOException {
+    PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+    if (view != null) {
+      Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+    }
+
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Reads the file and detects its encoding.
+   *
+   * @param file
+   */
+  public static PropertyFile read(File file) throws IOException {
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Charset charset = PropertyFile.getCharset(bytes);
+    return new PropertyFile(file, charset, new String(bytes, charset));
+  }
+
+  /**
+   * Detects the {@link Charset} of the bytes. The byte order mark is kept as part of the content,
+   * so that it is written again.
+   *
+   * @param bytes
+   */
+  private static Charset getCharset(byte[] bytes) {
+    Charset charset = PropertyFile.getByteOrder(bytes);
+    if (charset != null) {
+      return charset;
+    }
+
+    try {
+      StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT).decode(ByteBuffer.wrap(bytes));
+      return StandardCharsets.UTF_8;
+    } catch (CharacterCodingException e) {
+      return StandardCharsets.ISO_8859_1;
+    }
+  }
+
+  /**
+   * Detects the {@link Charset} of a large file. The file is read in chunks, so that the content is
+   * validated as UTF-8 without reading it into memory. The file isn't mapped into memory, because a
+   * mapping blocks the replacement of the file on Windows until it is garbage collected.
+   *
+   * @param path
+   */
+  private static Charset getCharset(Path path) throws IOException {
+    return PropertyFile.getCharset(path, PropertyFile.CHUNK);
+  }
+
+  /**
+   * Detects the {@link Charset} of a large file, that is read in chunks of the size. A chunk must
+   * hold at least one character of 4 bytes.
+   *
+   * @param path
+   * @param chunk
+   */
+  static Charset getCharset(Path path, int chunk) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(2);
+      channel.read(header, 0);
+      Charset charset = PropertyFile.getByteOrder(header.array());
+      if (charset != null) {
+        return charset;
+      }
+
+      CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT);
+      CharBuffer chars = CharBuffer.allocate(8192);
+      ByteBuffer bytes = ByteBuffer.allocate(chunk);
+      boolean last = false;
+      while (!last) {
+        last = channel.read(bytes) < 0;
+        bytes.flip();
+        CoderResult result;
+        do {
+          chars.clear();
+          result = decoder.decode(bytes, chars, last);
+          if (result.isError()) {
+            return StandardCharsets.ISO_8859_1;
+          }
+        } while (result.isOverflow());
+        // An incomplete character at the end of the chunk is decoded with the next one
+        bytes.compact();
+      }
+      return StandardCharsets.UTF_8;
+    }
+  }
+
+  /**
+   * Detects the UTF-16 {@link Charset} by the byte order mark. Returns <code>null</code> if there
+   * is no byte order mark.
+   *
+   * @param bytes
+   */
+  private static Charset getByteOrder(byte[] bytes) {
+    if ((bytes.length >= 2) && ((bytes[0] & 0xFF) == 0xFE) && ((bytes[1] & 0xFF) == 0xFF)) {
+      return StandardCharsets.UTF_16BE;
+    } else if ((bytes.length >= 2) && ((bytes[0] & 0xFF) == 0xFF) && ((bytes[1] & 0xFF) == 0xFE)) {
+      return StandardCharsets.UTF_16LE;
+    }
+    return null;
+  }
+}
@@ -17,17 +17,45 @@ package it.smartio.task.property;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonWriter;
+import javax.json.JsonWriterFactory;
+import javax.json.stream.JsonGenerator;
+
+import it.smartio.build.Build;
 import it.smartio.common.env.Environment;
 import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
 import it.smartio.util.file.FileMatcher;
 import it.smartio.util.file.FilePattern;
+import it.smartio.util.file.FileSystem;
+import it.smartio.util.file.FileTreeMatching;
 
 /**
  * The {@link PropertyTask} implements a task to replace properties of files by the environment
@@ -35,6 +63,11 @@ import it.smartio.util.file.FilePattern;
  */
 public class PropertyTask implements Task {
 
+  private static final int          THRESHOLD = 16;
+  private static final List<String> IGNORES   = Arrays.asList(".git");
+  private static final Object       REPORT    = new Object();
+
+
   private final List<Replacer> replacers;
 
   /**
@@ -64,34 +97,221 @@ public class PropertyTask implements Task {
   }
 
   /**
-   * Applies the different replaces to all matching files.
+   * Applies the different replaces to all matching files. The files of all replacers are found
+   * with a single walk of the working directory. Each file is read once and passed through all of
+   * its replacers, many files are processed concurrently.
+   *
+   * On a dry run the files are not written. The changes can be written as JSON report, with the
+   * byte offset and length of each new value in the content, that is written after all replacers.
    *
    * @param context
    */
   @Override
   public final void handle(TaskContext context) throws IOException {
-    for (Replacer replacer : this.replacers) {
-      for (FileMatcher matcher : FilePattern.matches(context.getWorkingDir(), replacer.getFilePattern())) {
-        File file = matcher.getFile();
-        if (file.isDirectory()) {
-          continue;
-        }
+    Environment environment = context.getEnvironment();
+    boolean dryRun =
+        environment.isSet(Build.PROPERTY_DRY_RUN) && Boolean.parseBoolean(environment.get(Build.PROPERTY_DRY_RUN));
 
-        ChangeSet properties = new ChangeSet();
-        String output = replacer.replace(file, context.getEnvironment(), properties);
-        if (properties.isEmpty()) {
-          continue;
-        }
+    List<FilePattern> patterns = new ArrayList<>();
+    this.replacers.forEach(r -> patterns.add(FilePattern.of(r.getFilePattern())));
+    FileTreeMatching.match(context.getWorkingDir(), patterns, PropertyTask.IGNORES);
 
-        try (PrintWriter writer = new PrintWriter(file)) {
-          writer.write(output);
+    Map<File, List<Replacer>> files = new LinkedHashMap<>();
+    for (int index = 0; index < this.replacers.size(); index++) {
+      Replacer replacer = this.replacers.get(index);
+      for (FileMatcher matcher : patterns.get(index).getMappers()) {
+        if (!matcher.getFile().isDirectory()) {
+          files.computeIfAbsent(matcher.getFile(), f -> new ArrayList<>()).add(replacer);
         }
+      }
+    }
 
-        context.getLogger().onInfo("\nReplaced Properties in '{}'",
+    List<ChangeSet> changes = PropertyTask.process(files, environment, dryRun);
+
+    int index = 0;
+    for (File file : files.keySet()) {
+      ChangeSet properties = changes.get(index++);
+      if (!properties.isEmpty()) {
+        context.getLogger().onInfo(dryRun ? "\nWould replace Properties in '{}'" : "\nReplaced Properties in '{}'",
             context.getWorkingDir().toPath().relativize(Paths.get(file.getPath())));
         properties.forEach(p -> context.getLogger().onInfo("  {}\t= {} ({})", p.PROPERTY, p.NEW_VALUE, p.OLD_VALUE));
       }
     }
+
+    if (environment.isSet(Build.PROPERTY_REPORT)) {
+      File report = FileSystem.getFile(environment.get(Build.PROPERTY_REPORT), context.getWorkingDir());
+      PropertyTask.writeReport(report, context.getWorkingDir(), files.keySet(), changes, dryRun);
+      context.getLogger().onInfo("\nProperty report written to '{}'", report);
+    }
+  }
+
+  /**
+   * Writes the changes of all files as JSON report. The report is shared by all invocations of the
+   * build, the changes are merged into the existing report. A file is reported with the changes of
+   * the last invocation, that has changed it. The invocations of parallel stages write the report
+   * one after the other.
+   *
+   * @param report
+   * @param workingDir
+   * @param files
+   * @param changes
+   * @param dryRun
+   */
+  private static void writeReport(File report, File workingDir, Collection<File> files, List<ChangeSet> changes,
+      boolean dryRun) throws IOException {
+    Map<String, JsonObject> entries = new LinkedHashMap<>();
+    int index = 0;
+    for (File file : files) {
+      ChangeSet properties = changes.get(index++);
+      if (properties.isEmpty()) {
+        continue;
+      }
+
+      JsonArrayBuilder items = Json.createArrayBuilder();
+      for (ChangeSet.Change change : properties.getChanges()) {
+        JsonObjectBuilder item = Json.createObjectBuilder();
+        item.add("property", change.PROPERTY);
+        if (change.OLD_VALUE == null) {
+          item.addNull("oldValue");
+        } else {
+          item.add("oldValue", change.OLD_VALUE);
+        }
+        item.add("newValue", change.NEW_VALUE);
+        item.add("offset", change.OFFSET);
+        item.add("length", change.LENGTH);
+        items.add(item);
+      }
+
+      String name = workingDir.toPath().relativize(file.toPath()).toString().replace('\\', '/');
+      JsonObjectBuilder object = Json.createObjectBuilder();
+      object.add("file", name);
+      object.add("charset", properties.getCharset().name());
+      object.add("changes", items);
+      entries.put(name, object.build());
+    }
+
+    Map<String, Boolean> config = new HashMap<>();
+    config.put(JsonGenerator.PRETTY_PRINTING, true);
+    JsonWriterFactory factory = Json.createWriterFactory(config);
+
+    synchronized (PropertyTask.REPORT) {
+      Map<String, JsonObject> merged = new LinkedHashMap<>();
+      if (report.exists()) {
+        try (Reader input = Files.newBufferedReader(report.toPath(), StandardCharsets.UTF_8);
+            JsonReader reader = Json.createReader(input)) {
+          JsonArray previous = reader.readObject().getJsonArray("files");
+          if (previous != null) {
+            previous.getValuesAs(JsonObject.class).forEach(o -> merged.put(o.getString("file"), o));
+          }
+        } catch (JsonException | ClassCastException e) {
+          // An invalid report is replaced
+        }
+      }
+      merged.putAll(entries);
+
+      JsonArrayBuilder array = Json.createArrayBuilder();
+      merged.values().forEach(array::add);
+
+      Path path = report.getAbsoluteFile().toPath();
+      Files.createDirectories(path.getParent());
+      Path temp = Files.createTempFile(path.getParent(), "." + report.getName(), ".tmp");
+      try {
+        try (JsonWriter writer = factory.createWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+          writer.writeObject(Json.createObjectBuilder().add("dryRun", dryRun).add("files", array).build());
+        }
+        try {
+          Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  /**
+   * Removes the report of a previous build, so that the invocations of the build start with an
+   * empty report.
+   *
+   * @param environment
+   * @param workingDir
+   */
+  public static void resetReport(Environment environment, File workingDir) throws IOException {
+    if (environment.isSet(Build.PROPERTY_REPORT)) {
+      File report = FileSystem.getFile(environment.get(Build.PROPERTY_REPORT), workingDir);
+      synchronized (PropertyTask.REPORT) {
+        Files.deleteIfExists(report.toPath());
+      }
+    }
+  }
+
+  /**
+   * Processes the files, concurrently if there are many of them. The {@link ChangeSet}'s are
+   * returned in the order of the files.
+   *
+   * @param files
+   * @param environment
+   * @param dryRun
+   */
+  private static List<ChangeSet> process(Map<File, List<Replacer>> files, Environment environment, boolean dryRun)
+      throws IOException {
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(), files.size() / PropertyTask.THRESHOLD);
+    if (threads <= 1) {
+      List<ChangeSet> changes = new ArrayList<>();
+      for (Map.Entry<File, List<Replacer>> entry : files.entrySet()) {
+        changes.add(PropertyTask.process(entry.getKey(), entry.getValue(), environment, dryRun));
+      }
+      return changes;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<ChangeSet>> futures = new ArrayList<>();
+      for (Map.Entry<File, List<Replacer>> entry : files.entrySet()) {
+        futures.add(executor.submit(() -> PropertyTask.process(entry.getKey(), entry.getValue(), environment, dryRun)));
+      }
+
+      List<ChangeSet> changes = new ArrayList<>();
+      for (Future<ChangeSet> future : futures) {
+        changes.add(future.get());
+      }
+      return changes;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Reads the file once, applies all replacers and writes the file only if properties have been
+   * replaced. Large files are streamed through the replacers.
+   *
+   * @param file
+   * @param replacers
+   * @param environment
+   * @param dryRun
+   */
+  private static ChangeSet process(File file, List<Replacer> replacers, Environment environment, boolean dryRun)
+      throws IOException {
+    if (PropertyFile.isLarge(file)) {
+      return PropertyFile.replace(file, replacers, environment, dryRun);
+    }
+
+    PropertyFile input = PropertyFile.read(file);
+    ChangeSet properties = new ChangeSet(input.getCharset());
+    String content = input.getContent();
+    for (Replacer replacer : replacers) {
+      content = replacer.replace(content, environment, properties);
+    }
+    if (!properties.isEmpty() && !dryRun) {
+      input.write(content);
+    }
+    return properties;
   }
 
   /**
@@ -17,7 +17,13 @@ package it.smartio.task.property;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,8 +35,13 @@ import it.smartio.util.file.FilePattern;
  */
 public abstract class Replacer {
 
-  private final String  file;
-  private final Pattern pattern;
+  private static final int CHUNK     = 1 << 20;
+  private static final int LOOKAHEAD = 1 << 16;
+
+
+  private final String   file;
+  private final Pattern  pattern;
+  private final String[] keys;
 
   /**
    * Constructs an instance of {@link Replacer}.
@@ -41,6 +52,7 @@ public abstract class Replacer {
   protected Replacer(String file, String pattern) {
     this.file = Replacer.toFilePattern(file);
     this.pattern = Pattern.compile(pattern);
+    this.keys = Replacer.toKeys(pattern);
   }
 
   /**
@@ -50,6 +62,13 @@ public abstract class Replacer {
     return this.file;
   }
 
+  /**
+   * Get the pattern of the properties.
+   */
+  final Pattern getPattern() {
+    return this.pattern;
+  }
+
   /**
    * Get the value from the environment variable.
    *
@@ -66,25 +85,121 @@ public abstract class Replacer {
    * @param environment
    */
   public final String replace(File file, Environment environment, ChangeSet values) throws IOException {
-    String input = new String(Files.readAllBytes(file.toPath()));
+    return replace(PropertyFile.read(file).getContent(), environment, values);
+  }
+
+  /**
+   * Replaces the keys of the content with the provided environment variables. The changes are
+   * committed, so that they refer to the returned content.
+   *
+   * @param input
+   * @param environment
+   * @param values
+   */
+  public final String replace(String input, Environment environment, ChangeSet values) {
+    if (!isCandidate(input::indexOf)) {
+      return input;
+    }
 
-    int offset = 0;
-    StringBuffer content = new StringBuffer();
     Matcher matcher = this.pattern.matcher(input);
-    while (matcher.find()) {
-      content.append(input.substring(offset, matcher.start()));
+    if (!matcher.find()) {
+      return input;
+    }
+
+    StringBuilder content = new StringBuilder(input.length() + 64);
+    int offset = append(matcher, input, input.length(), content, new Position(), environment, values);
+    content.append(input, offset, input.length());
+    values.commit();
+    return content.toString();
+  }
+
+  /**
+   * Replaces the keys of a stream with the provided environment variables. The input is processed
+   * in chunks, so that it is never held completely on the heap. A chunk ends at a line break, the
+   * text following the chunk is a lookahead for matches that span the end of the chunk. A match is
+   * only found if it is shorter than the lookahead. A window without any of the keys is passed
+   * through without evaluating the pattern. The changes are committed, so that they refer to the
+   * written content.
+   *
+   * @param reader
+   * @param writer
+   * @param environment
+   * @param values
+   */
+  public final void replace(Reader reader, Writer writer, Environment environment, ChangeSet values)
+      throws IOException {
+    char[] buffer = new char[8192];
+    StringBuilder window = new StringBuilder(Replacer.CHUNK + Replacer.LOOKAHEAD + buffer.length);
+    StringBuilder content = new StringBuilder(Replacer.CHUNK + buffer.length);
+    Position position = new Position();
+
+    boolean eof = false;
+    while (!eof || (window.length() > 0)) {
+      while (!eof && (window.length() < Replacer.CHUNK + Replacer.LOOKAHEAD)) {
+        int length = reader.read(buffer);
+        if (length < 0) {
+          eof = true;
+        } else {
+          window.append(buffer, 0, length);
+        }
+      }
+
+      int limit = window.length();
+      if (!eof) {
+        int index = window.lastIndexOf("\n", limit - Replacer.LOOKAHEAD - 1);
+        limit = (index < 0) ? limit - Replacer.LOOKAHEAD : index + 1;
+      }
+
+      int offset = 0;
+      if (isCandidate(window::indexOf)) {
+        Matcher matcher = this.pattern.matcher(window);
+        if (matcher.find() && (matcher.start() < limit)) {
+          offset = append(matcher, window, limit, content, position, environment, values);
+        }
+      }
+      if (offset < limit) {
+        content.append(window, offset, limit);
+        offset = limit;
+      }
+
+      writer.append(content);
+      content.setLength(0);
+      position.advance(window, offset, values);
+      position.index = 0;
+      window.delete(0, offset);
+    }
+    values.commit();
+  }
+
+  /**
+   * Appends the input up to the last match starting before the limit, with the replaced values.
+   * The matcher must have found the first match. Returns the offset of the input that has been
+   * processed.
+   *
+   * @param matcher
+   * @param input
+   * @param limit
+   * @param content
+   * @param position
+   * @param environment
+   * @param values
+   */
+  private int append(Matcher matcher, CharSequence input, int limit, StringBuilder content, Position position,
+      Environment environment, ChangeSet values) {
+    int offset = 0;
+    do {
+      content.append(input, offset, matcher.start());
       if (matcher.groupCount() == 2) {
         String name = matcher.group(2);
         String value = getValue(name, null, environment);
         if (value != null) {
           content.append(value);
-        }
-
-        if (value != null) {
-          values.add(name, null, value);
+          long start = position.advance(input, matcher.start(), values);
+          long length = position.advance(input, matcher.end(), values) - start;
+          values.add(name, null, value, start, length);
         }
       } else {
-        content.append(matcher.group(1));
+        content.append(input, matcher.start(1), matcher.end(1));
 
         String name = matcher.group(2);
         String valueOld = matcher.group(3);
@@ -94,16 +209,135 @@ public abstract class Replacer {
         }
 
         if ((valueNew != null) && !valueNew.equals(valueOld)) {
-          values.add(name, valueOld, valueNew);
+          long start = position.advance(input, matcher.start(3), values);
+          long length = position.advance(input, matcher.end(3), values) - start;
+          values.add(name, valueOld, valueNew, start, length);
         }
 
-        content.append(matcher.group(4));
+        content.append(input, matcher.start(4), matcher.end(4));
       }
       offset = matcher.end();
+    } while (matcher.find() && (matcher.start() < limit));
+    return offset;
+  }
+
+  /**
+   * Returns <code>true</code> if the input contains any of the keys, that each match of the
+   * pattern contains. Without keys any input is a candidate.
+   *
+   * @param indexOf
+   */
+  private boolean isCandidate(ToIntFunction<String> indexOf) {
+    if (this.keys == null) {
+      return true;
+    }
+    for (String key : this.keys) {
+      if (indexOf.applyAsInt(key) >= 0) {
+        return true;
+      }
     }
+    return false;
+  }
 
-    content.append(input.substring(offset));
-    return content.toString();
+  /**
+   * Gets the literal keys of the pattern, that are the alternatives of the name group, e.g.
+   * <code>CFBundleVersion</code> or <code>android:versionCode</code>. Returns <code>null</code> if
+   * the keys can't be determined, or a match might not contain any of them.
+   *
+   * @param pattern
+   */
+  static String[] toKeys(String pattern) {
+    int name = -1;
+    int groups = 0;
+    int[] close = new int[pattern.length()];
+    Deque<Integer> open = new ArrayDeque<>();
+    List<int[]> alternatives = new ArrayList<>();
+    for (int index = 0; index < pattern.length(); index++) {
+      char c = pattern.charAt(index);
+      if (c == '\\') {
+        if (pattern.startsWith("Q", ++index)) {
+          return null; // Quoted text
+        }
+      } else if (c == '[') {
+        index = Replacer.skipClass(pattern, index);
+        if (index < 0) {
+          return null;
+        }
+      } else if (c == '(') {
+        if (pattern.startsWith("(?", index) && !pattern.startsWith("(?:", index)) {
+          return null; // Inline flags or look-around
+        } else if (!pattern.startsWith("(?", index) && (++groups == 2)) {
+          name = index;
+        }
+        open.push(index);
+      } else if ((c == ')') && !open.isEmpty()) {
+        close[open.pop()] = index;
+      } else if (c == '|') {
+        alternatives.add(new int[] { open.isEmpty() ? -1 : open.peek(), index });
+      }
+    }
+
+    int end = (name < 0) ? -1 : close[name];
+    if ((end <= name) || (pattern.substring(name + 1, end).matches(".*[(\\[].*"))
+        || ((end + 1 < pattern.length()) && ("?*{".indexOf(pattern.charAt(end + 1)) >= 0))) {
+      return null;
+    }
+
+    // An alternative or an optional group, that encloses the name group, allows matches without a key
+    for (int[] alternative : alternatives) {
+      int group = alternative[0];
+      if ((group != name) && ((group < 0) || ((group < name) && (close[group] > end)))) {
+        return null;
+      }
+    }
+    for (int group = 0; group < name; group++) {
+      if ((close[group] > end) && (close[group] + 1 < pattern.length())
+          && ("?*{".indexOf(pattern.charAt(close[group] + 1)) >= 0)) {
+        return null;
+      }
+    }
+
+    String[] keys = pattern.substring(name + 1, end).split("\\|", -1);
+    for (int index = 0; index < keys.length; index++) {
+      String key = keys[index];
+      int length = 0;
+      while ((length < key.length())
+          && (Character.isLetterOrDigit(key.charAt(length)) || ("-_:".indexOf(key.charAt(length)) >= 0))) {
+        length++;
+      }
+      if ((length < key.length()) && ("?*{".indexOf(key.charAt(length)) >= 0)) {
+        length--; // The last character is optional
+      }
+      if (length <= 0) {
+        return null;
+      }
+      keys[index] = key.substring(0, length);
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the index of the bracket, that closes the character class at the index, or -1. A
+   * bracket at the start of the class is a literal.
+   *
+   * @param pattern
+   * @param index
+   */
+  private static int skipClass(String pattern, int index) {
+    int depth = 0;
+    int start = index + 1;
+    for (; index < pattern.length(); index++) {
+      char c = pattern.charAt(index);
+      if (c == '\\') {
+        index++;
+      } else if (c == '[') {
+        depth++;
+        start = index + (pattern.startsWith("^", index + 1) ? 2 : 1);
+      } else if ((c == ']') && (index > start) && (--depth == 0)) {
+        return index;
+      }
+    }
+    return -1;
   }
 
   /**
@@ -118,4 +352,27 @@ public abstract class Replacer {
   private static String toFilePattern(String pattern) {
     return String.format("^[^.]+%s$", FilePattern.toRegExp(pattern));
   }
+
+  /**
+   * The {@link Position} converts the character index of the input into the byte offset of the
+   * file. The index only moves forward, so that each character is encoded at most once.
+   */
+  private static class Position {
+
+    private int  index;
+    private long bytes;
+
+    /**
+     * Moves to the index of the input and returns its byte offset.
+     *
+     * @param input
+     * @param index
+     * @param values
+     */
+    private long advance(CharSequence input, int index, ChangeSet values) {
+      this.bytes += values.getLength(input, this.index, index);
+      this.index = index;
+      return this.bytes;
+    }
+  }
 }
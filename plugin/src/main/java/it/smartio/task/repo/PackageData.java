@@ -168,7 +168,7 @@ final class PackageData {
    */
   public void build(File workingDir, Environment environment) throws IOException {
     Map<String, String> map = new HashMap<>();
-    Environment env = environment.map(map);
+    Environment env = environment;
     LocalDate releaseDate = null;
 
     String subPath = null;
@@ -181,6 +181,7 @@ final class PackageData {
     Path workingPath = workingDir.toPath().resolve(getName()).resolve(PackageBuilder.DATA);
     for (FileMatcher matcher : FileMatcher.of(getWorkingDir(), source)) {
       map.putAll(matcher.getEnvironment().toMap());
+      env = environment.map(map);
 
       String target = getTarget();
       if (target.isEmpty() && !matcher.getFile().isDirectory()) {
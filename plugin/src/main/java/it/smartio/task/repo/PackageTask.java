@@ -14,12 +14,14 @@ import java.util.regex.Pattern;
 import it.smartio.common.env.EnvironmentUtil;
 import it.smartio.common.task.Task;
 import it.smartio.common.task.TaskContext;
+import it.smartio.task.TaskFingerprint;
+import it.smartio.task.TaskIncremental;
 
 
 /**
  * Defines a QMake task.
  */
-public class PackageTask implements Task {
+public class PackageTask implements TaskIncremental {
 
   private static final Pattern PATTERN = Pattern.compile("^([^:]+):([^=\\s]+)\\s*=>\\s*(.+)$");
 
@@ -57,6 +59,21 @@ public class PackageTask implements Task {
     return path.isAbsolute() ? path : context.getWorkingDir().toPath().resolve(path);
   }
 
+  /**
+   * Declares the sources and artifacts as inputs and the packages as output.
+   *
+   * @param fingerprint
+   * @param context
+   */
+  @Override
+  public final void declare(TaskFingerprint fingerprint, TaskContext context) throws IOException {
+    fingerprint.addValue("modulePath", this.modulePath);
+    fingerprint.addValue("modules", String.join(",", this.modules));
+    fingerprint.addInput(toPath(this.sources, context).toFile());
+    fingerprint.addInput(toPath(this.artifacts, context).toFile());
+    fingerprint.addOutput(toPath(this.packages, context).toFile());
+  }
+
   /**
    * Executes the {@link Task}.
    *
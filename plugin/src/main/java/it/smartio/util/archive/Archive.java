@@ -16,6 +16,7 @@ import java.io.UnsupportedEncodingException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.zip.Deflater;
 
 /**
  * Gzipped Tar archiver which preserves
@@ -34,6 +35,9 @@ public abstract class Archive {
   private final File   file;
   private final String name;
 
+  private int          threads = 1;
+  private int          level   = Deflater.DEFAULT_COMPRESSION;
+
   /**
    * Creates a .tar.gz file
    *
@@ -52,6 +56,41 @@ public abstract class Archive {
     return this.file;
   }
 
+  /**
+   * Gets the number of threads, that compress the archive.
+   */
+  protected final int getThreads() {
+    return this.threads;
+  }
+
+  /**
+   * Sets the number of threads, that compress the archive. With more than one thread the entries
+   * of a ZIP are deflated concurrently and a GZip is deflated in parallel blocks.
+   *
+   * @param threads
+   */
+  public final Archive setThreads(int threads) {
+    this.threads = Math.max(1, threads);
+    return this;
+  }
+
+  /**
+   * Gets the compression level.
+   */
+  protected final int getLevel() {
+    return this.level;
+  }
+
+  /**
+   * Sets the compression level, from 0 (no compression) to 9 (best compression).
+   *
+   * @param level
+   */
+  public final Archive setLevel(int level) {
+    this.level = level;
+    return this;
+  }
+
   /**
    * Relativize the entry for the path. Returns <code>null</code> if the name doesn't match the
    * path.
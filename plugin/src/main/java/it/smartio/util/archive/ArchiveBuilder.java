@@ -105,11 +105,20 @@ public abstract class ArchiveBuilder implements Closeable {
     }
   }
 
+  /**
+   * Completes the archive, before the stream is closed.
+   */
+  protected void finish() throws IOException {}
+
   /**
    * Closes this stream and releases any system resources associated with it.
    */
   @Override
   public final void close() throws IOException {
-    this.stream.close();
+    try {
+      finish();
+    } finally {
+      this.stream.close();
+    }
   }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ package it.smartio.util.archive;
 
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
 
 import java.io.File;
 import java.io.IOException;
@@ -43,10 +44,17 @@ class ArchiveTarGz extends ArchiveTar {
   }
 
   /**
-   * Creates a GZip {@link OutputStream}.
+   * Creates a GZip {@link OutputStream}, that deflates blocks in parallel if multiple threads are
+   * configured.
    */
   @Override
   protected final OutputStream getOutputStream() throws IOException {
-    return new GzipCompressorOutputStream(super.getOutputStream());
+    if (getThreads() > 1) {
+      return new ParallelGzipOutputStream(super.getOutputStream(), getThreads(), getLevel());
+    }
+
+    GzipParameters parameters = new GzipParameters();
+    parameters.setCompressionLevel(getLevel());
+    return new GzipCompressorOutputStream(super.getOutputStream(), parameters);
   }
 }
@@ -17,78 +17,19 @@ package it.smartio.util.archive;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import it.smartio.util.file.FileMatcher;
+import it.smartio.util.file.FilePattern;
+import it.smartio.util.file.FileTreeMatching;
 
 /**
  * The {@link ArchiveTree} class.
  */
-class ArchiveTree extends SimpleFileVisitor<Path> {
-
-  private final Path       root;
-  private final Pattern    pattern;
-
-  private final List<File> files = new ArrayList<>();
-
-
-  /**
-   * Constructs an instance of {@link ArchiveTree}.
-   *
-   * @param root
-   * @param pattern
-   */
-  private ArchiveTree(Path root, Pattern pattern) {
-    this.root = root;
-    this.pattern = pattern;
-  }
-
-  /**
-   * Invoked for a directory before entries in the directory are visited.
-   *
-   * @param path
-   * @param attrs
-   */
-  @Override
-  public final FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
-    checkPathPattern(path);
-    return FileVisitResult.CONTINUE;
-  }
-
-  /**
-   * Invoked for a file in a directory.
-   *
-   * @param path
-   * @param attrs
-   */
-  @Override
-  public final FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-    checkPathPattern(path);
-    return FileVisitResult.SKIP_SUBTREE;
-  }
-
-
-  /**
-   * Check against the pattern.
-   *
-   * @param path
-   */
-  private final void checkPathPattern(Path path) throws IOException {
-    String input = this.root.relativize(path).toString();
-    // Avoid problems on Windows
-    Matcher matcher = this.pattern.matcher(input.replace('\\', '/'));
-    if (matcher.find()) {
-      this.files.add(new File(this.root.toFile(), input));
-    }
-  }
+class ArchiveTree {
 
   /**
    * The {@link FileComparator} checks that the files are ordered in following order:
@@ -116,11 +57,12 @@ class ArchiveTree extends SimpleFileVisitor<Path> {
    * @param pattern
    */
   public static List<File> findFiles(File workingDir, String filePattern) throws IOException {
-    Path workingPath = workingDir.toPath();
-    Pattern pattern = Pattern.compile("^" + filePattern.replace(".", "\\.").replace("*", "[^/]*"));
-    ArchiveTree visitor = new ArchiveTree(workingPath, pattern);
-    Files.walkFileTree(workingPath, visitor);
-    Collections.sort(visitor.files, new FileComparator());
-    return visitor.files;
+    String pattern = filePattern.replace(".", "\\.").replace("*", "[^/]*") + ".*";
+    FilePattern matcher = FilePattern.ofNested(pattern);
+    FileTreeMatching.match(workingDir, Collections.singletonList(matcher), Collections.emptySet());
+
+    List<File> files = matcher.getMappers().stream().map(FileMatcher::getFile).collect(Collectors.toList());
+    Collections.sort(files, new FileComparator());
+    return files;
   }
 }
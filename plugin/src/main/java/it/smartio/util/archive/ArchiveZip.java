@@ -5,15 +5,30 @@
 package it.smartio.util.archive;
 
 
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -84,7 +99,15 @@ class ArchiveZip extends Archive {
   @Override
   public final ArchiveBuilder builder() throws IOException {
     getFile().getAbsoluteFile().getParentFile().mkdirs();
-    return new ZipBuilder(new ZipOutputStream(getOutputStream(), Charset.defaultCharset()));
+    if (getThreads() > 1) {
+      ZipArchiveOutputStream stream = new ZipArchiveOutputStream(getOutputStream());
+      stream.setEncoding(Charset.defaultCharset().name());
+      return new ParallelZipBuilder(stream);
+    }
+
+    ZipOutputStream stream = new ZipOutputStream(getOutputStream(), Charset.defaultCharset());
+    stream.setLevel(getLevel());
+    return new ZipBuilder(stream);
   }
 
   /**
@@ -126,6 +149,88 @@ class ArchiveZip extends Archive {
     }
   }
 
+  /**
+   * The {@link ParallelZipBuilder} deflates the entries concurrently into temporary files, that
+   * are written to the ZIP when the builder is closed. A duplicate entry is rejected when it is
+   * added, like by the {@link ZipOutputStream}.
+   */
+  private class ParallelZipBuilder extends ArchiveBuilder {
+
+    private final ParallelScatterZipCreator creator;
+    private final Set<String>               names = new HashSet<>();
+
+    /**
+     * Constructs an instance of {@link ParallelZipBuilder}.
+     *
+     * @param stream
+     */
+    private ParallelZipBuilder(ZipArchiveOutputStream stream) {
+      super(stream);
+      this.creator = new ParallelScatterZipCreator(Executors.newFixedThreadPool(getThreads()),
+          new DefaultBackingStoreSupplier(null), getLevel());
+    }
+
+    /**
+     * Gets the {@link OutputStream}.
+     */
+    @Override
+    protected final ZipArchiveOutputStream getOutputStream() {
+      return (ZipArchiveOutputStream) super.getOutputStream();
+    }
+
+    /**
+     * Add the files matching the pattern to the {@link Archive}. Optional adds the path as prefix.
+     *
+     * @param directory
+     * @param pattern
+     * @param targetPath
+     */
+    @Override
+    protected final void addToArchive(File directory, String pattern, String targetPath) throws IOException {
+      for (File file : ArchiveTree.findFiles(directory, pattern)) {
+        if (file.isFile()) {
+          String name = ArchiveUtil.relativePath(directory, file, targetPath);
+          if (!this.names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+          }
+
+          ZipArchiveEntry entry = new ZipArchiveEntry(name);
+          entry.setMethod(ZipEntry.DEFLATED);
+          entry.setTime(file.lastModified());
+          this.creator.addArchiveEntry(entry, () -> ArchiveZip.open(file));
+        }
+      }
+    }
+
+    /**
+     * Writes the deflated entries to the ZIP.
+     */
+    @Override
+    protected final void finish() throws IOException {
+      try {
+        this.creator.writeTo(getOutputStream());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = (e.getCause() instanceof UncheckedIOException) ? e.getCause().getCause() : e.getCause();
+        throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+      }
+    }
+  }
+
+  /**
+   * Opens the file, while the entry is deflated.
+   *
+   * @param file
+   */
+  private static InputStream open(File file) {
+    try {
+      return new BufferedInputStream(new FileInputStream(file));
+    } catch (FileNotFoundException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 
   /**
    * Create a {@link ZipEntry}.
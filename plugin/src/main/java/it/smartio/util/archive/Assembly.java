@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 /**
  * The {@link Assembly} class.
@@ -39,6 +40,9 @@ public class Assembly {
   private File               archive;
   private final List<String> patterns = new ArrayList<>();
 
+  private int                threads  = 1;
+  private int                level    = Deflater.DEFAULT_COMPRESSION;
+
   /**
    * Constructs an instance of {@link Assembly}.
    *
@@ -65,6 +69,26 @@ public class Assembly {
     return this;
   }
 
+  /**
+   * Set the number of threads, that compress the archive.
+   *
+   * @param threads
+   */
+  public final Assembly setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * Set the compression level of the archive.
+   *
+   * @param level
+   */
+  public final Assembly setLevel(int level) {
+    this.level = level;
+    return this;
+  }
+
   /**
    * Set the archive
    *
@@ -87,11 +111,26 @@ public class Assembly {
     return this;
   }
 
+  /**
+   * Get the files and directories, that are added to the archive.
+   */
+  public final List<File> getInputs() {
+    List<File> inputs = new ArrayList<>();
+    for (String input : this.patterns) {
+      Matcher matcher = Assembly.PATTERN_PATH.matcher(input);
+      if (matcher.find()) {
+        File file = new File(this.workingDir, matcher.group(1));
+        inputs.add(file.exists() ? file : new File(matcher.group(1)));
+      }
+    }
+    return inputs;
+  }
+
   /**
    * Build the archive
    */
   public final void build(Consumer<String> consumer) throws IOException {
-    try (ArchiveBuilder builder = Archive.builder(this.archive)) {
+    try (ArchiveBuilder builder = Archive.of(this.archive).setThreads(this.threads).setLevel(this.level).builder()) {
       for (String input : this.patterns) {
         Matcher matcher = Assembly.PATTERN_PATH.matcher(input);
         if (matcher.find()) {
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.util.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The {@link ParallelGzipOutputStream} writes a single GZip member, whose blocks are deflated
+ * concurrently. Each block is deflated with the last 32 KB of the previous block as dictionary and
+ * ends with a sync flush, so that the deflated blocks can be concatenated. The checksum is computed
+ * while the data is written.
+ *
+ * The number of pending blocks is limited, so that the memory doesn't grow with the size of the
+ * archive.
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+  private static final int    BLOCK      = 1 << 20;
+  private static final int    DICTIONARY = 1 << 15;
+  private static final byte[] HEADER     = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+
+  private final OutputStream          stream;
+  private final int                   threads;
+  private final int                   level;
+  private final ExecutorService       executor;
+
+  private final CRC32                 crc     = new CRC32();
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+  private byte[]                      buffer  = new byte[ParallelGzipOutputStream.BLOCK];
+  private int                         count;
+  private byte[]                      dictionary;
+  private long                        size;
+  private boolean                     closed;
+
+  /**
+   * Constructs an instance of {@link ParallelGzipOutputStream}.
+   *
+   * @param stream
+   * @param threads
+   * @param level
+   */
+  ParallelGzipOutputStream(OutputStream stream, int threads, int level) throws IOException {
+    this.stream = stream;
+    this.threads = threads;
+    this.level = level;
+    this.executor = Executors.newFixedThreadPool(threads);
+    this.stream.write(ParallelGzipOutputStream.HEADER);
+  }
+
+  /**
+   * Writes the specified byte to this output stream.
+   *
+   * @param b
+   */
+  @Override
+  public final void write(int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  /**
+   * Writes the bytes to this output stream.
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   */
+  @Override
+  public final void write(byte[] bytes, int offset, int length) throws IOException {
+    this.crc.update(bytes, offset, length);
+    this.size += length;
+    while (length > 0) {
+      int chunk = Math.min(length, this.buffer.length - this.count);
+      System.arraycopy(bytes, offset, this.buffer, this.count, chunk);
+      this.count += chunk;
+      offset += chunk;
+      length -= chunk;
+      if (this.count == this.buffer.length) {
+        submit(false);
+      }
+    }
+  }
+
+  /**
+   * Deflates the remaining data, writes the trailer and closes the stream.
+   */
+  @Override
+  public final void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+
+    try {
+      submit(true);
+      while (!this.pending.isEmpty()) {
+        drain();
+      }
+
+      byte[] trailer = new byte[8];
+      ParallelGzipOutputStream.writeInt(trailer, 0, this.crc.getValue());
+      ParallelGzipOutputStream.writeInt(trailer, 4, this.size);
+      this.stream.write(trailer);
+    } finally {
+      this.executor.shutdownNow();
+      this.stream.close();
+    }
+  }
+
+  /**
+   * Submits the buffered block to be deflated, and writes the completed blocks if there are too
+   * many pending.
+   *
+   * @param last
+   */
+  private void submit(boolean last) throws IOException {
+    byte[] block = this.buffer;
+    int length = this.count;
+    byte[] dictionary = this.dictionary;
+    this.pending.add(this.executor.submit(() -> deflate(block, length, dictionary, last)));
+
+    if (length >= ParallelGzipOutputStream.DICTIONARY) {
+      this.dictionary = Arrays.copyOfRange(block, length - ParallelGzipOutputStream.DICTIONARY, length);
+    }
+    this.buffer = new byte[ParallelGzipOutputStream.BLOCK];
+    this.count = 0;
+
+    while (this.pending.size() > (2 * this.threads)) {
+      drain();
+    }
+  }
+
+  /**
+   * Writes the first pending block.
+   */
+  private void drain() throws IOException {
+    try {
+      this.stream.write(this.pending.poll().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Deflates a block without the GZip header. The last block finishes the deflate stream.
+   *
+   * @param block
+   * @param length
+   * @param dictionary
+   * @param last
+   */
+  private byte[] deflate(byte[] block, int length, byte[] dictionary, boolean last) {
+    Deflater deflater = new Deflater(this.level, true);
+    try {
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(block, 0, length);
+
+      ByteArrayBuffer output = new ByteArrayBuffer(length / 2 + 64);
+      if (last) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          output.deflate(deflater, Deflater.NO_FLUSH);
+        }
+      } else {
+        while (!output.deflate(deflater, Deflater.SYNC_FLUSH)) {}
+      }
+      return output.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Writes the value as unsigned 32-bit little endian.
+   *
+   * @param bytes
+   * @param offset
+   * @param value
+   */
+  private static void writeInt(byte[] bytes, int offset, long value) {
+    for (int index = 0; index < 4; index++) {
+      bytes[offset + index] = (byte) (value >> (8 * index));
+    }
+  }
+
+  /**
+   * The {@link ByteArrayBuffer} collects the output of a {@link Deflater}.
+   */
+  private static class ByteArrayBuffer {
+
+    private byte[] bytes;
+    private int    count;
+
+    private ByteArrayBuffer(int capacity) {
+      this.bytes = new byte[capacity];
+    }
+
+    /**
+     * Deflates into the free space of the buffer. Returns <code>true</code> if the deflater didn't
+     * fill the free space, so that all pending output has been flushed.
+     *
+     * @param deflater
+     * @param flush
+     */
+    private boolean deflate(Deflater deflater, int flush) {
+      if (this.count == this.bytes.length) {
+        this.bytes = Arrays.copyOf(this.bytes, 2 * this.bytes.length);
+      }
+      int free = this.bytes.length - this.count;
+      int length = deflater.deflate(this.bytes, this.count, free, flush);
+      this.count += length;
+      return length < free;
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(this.bytes, this.count);
+    }
+  }
+}
@@ -17,12 +17,9 @@ package it.smartio.util.file;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,26 +31,37 @@ import it.smartio.common.env.Environment;
 import it.smartio.common.env.EnvironmentUtil;
 
 /**
- * The {@link FilePattern} class.
+ * The {@link FilePattern} matches the paths relative to a working directory with a regular
+ * expression. The literal prefix and suffix of the expression are used to reject paths without
+ * evaluating the expression, and to prune directories that can't contain any match.
  */
-public class FilePattern extends SimpleFileVisitor<Path> {
+public class FilePattern {
+
+  private static final String  LITERALS = "-_/,;:=!@#%&'\"<>~` ";
+  private static final Pattern FLAGS    = Pattern.compile("\\(\\?[a-zA-Z-]+[:)]");
 
-  private final Path              workingPath;
 
   private final Pattern           pattern;
   private final Set<String>       names;
+  private final boolean           nested;
+  private final String            prefix;
+  private final String            suffix;
   private final List<FileMatcher> mappers = new ArrayList<>();
 
   /**
    * Constructs an instance of {@link FilePattern}.
    *
-   * @param workingDir
    * @param pattern
+   * @param nested
    */
-  private FilePattern(File workingDir, String pattern) {
-    this.workingPath = workingDir.toPath();
+  private FilePattern(String pattern, boolean nested) {
     this.pattern = Pattern.compile("^" + pattern + "$");
     this.names = EnvironmentUtil.parseGroupNames(pattern);
+    this.nested = nested;
+
+    boolean literal = (pattern.indexOf('|') < 0) && !FilePattern.FLAGS.matcher(pattern).find();
+    this.prefix = literal ? FilePattern.getPrefix(pattern) : "";
+    this.suffix = literal ? FilePattern.getSuffix(pattern) : "";
   }
 
   /**
@@ -63,25 +71,45 @@ public class FilePattern extends SimpleFileVisitor<Path> {
     return this.mappers;
   }
 
-  @Override
-  public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
-    return visitPath(path, attrs);
+  /**
+   * Returns <code>true</code> if a directory can contain paths matching the pattern.
+   *
+   * @param directory
+   */
+  final boolean canContain(String directory) {
+    if (directory.isEmpty()) {
+      return true;
+    }
+    String path = directory + "/";
+    return this.prefix.startsWith(path) || path.startsWith(this.prefix);
   }
 
-  @Override
-  public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-    return visitPath(path, attrs);
+  /**
+   * Returns <code>true</code> if the paths in a matching directory can match too. Otherwise the
+   * directory is not visited for this pattern.
+   */
+  final boolean isNested() {
+    return this.nested;
   }
 
-  private FileVisitResult visitPath(Path path, BasicFileAttributes attrs) {
-    String input = this.workingPath.relativize(path).toString();
-    Matcher matcher = this.pattern.matcher(input.replace('\\', '/')); // for windows matches
+  /**
+   * Matches the relative path, that uses '/' as separator, and adds a {@link FileMatcher} for the
+   * file.
+   *
+   * @param input
+   * @param path
+   */
+  final boolean match(String input, Path path) {
+    if (!input.startsWith(this.prefix) || !input.endsWith(this.suffix)) {
+      return false;
+    }
+
+    Matcher matcher = this.pattern.matcher(input);
     if (matcher.find()) {
-      Environment e = FilePattern.getParameters(matcher, this.names);
-      this.mappers.add(new FileMatcher(path.toFile(), e));
-      return FileVisitResult.SKIP_SUBTREE;
+      this.mappers.add(new FileMatcher(path.toFile(), FilePattern.getParameters(matcher, this.names)));
+      return true;
     }
-    return FileVisitResult.CONTINUE;
+    return false;
   }
 
   /**
@@ -102,6 +130,108 @@ public class FilePattern extends SimpleFileVisitor<Path> {
     return Environment.of(params);
   }
 
+  /**
+   * Gets the literal text, all matches start with.
+   *
+   * @param pattern
+   */
+  private static String getPrefix(String pattern) {
+    StringBuilder prefix = new StringBuilder();
+    for (Character c : FilePattern.getLiterals(pattern)) {
+      if (c == null) {
+        break;
+      }
+      prefix.append(c.charValue());
+    }
+    return prefix.toString();
+  }
+
+  /**
+   * Gets the literal text, all matches end with.
+   *
+   * @param pattern
+   */
+  private static String getSuffix(String pattern) {
+    List<Character> literals = FilePattern.getLiterals(pattern);
+    StringBuilder suffix = new StringBuilder();
+    for (int index = literals.size() - 1; (index >= 0) && (literals.get(index) != null); index--) {
+      suffix.append(literals.get(index).charValue());
+    }
+    return suffix.reverse().toString();
+  }
+
+  /**
+   * Splits the expression into its elements, a literal character or <code>null</code> for any
+   * other element, e.g. a class, a group or an escape sequence. The anchors are skipped, a literal
+   * followed by an optional quantifier is no literal. The pattern is parsed from the start, because
+   * the end of an escape sequence like <code>A</code> or <code>\k&lt;name&gt;</code> looks like
+   * a literal.
+   *
+   * @param pattern
+   */
+  private static List<Character> getLiterals(String pattern) {
+    List<Character> literals = new ArrayList<>();
+    int index = 0;
+    while (index < pattern.length()) {
+      char c = pattern.charAt(index++);
+      if ((c == '\\') && (index < pattern.length())) {
+        char next = pattern.charAt(index++);
+        if (Character.isLetterOrDigit(next)) {
+          index = FilePattern.skipEscape(pattern, index, next);
+          literals.add(null);
+        } else {
+          literals.add(next);
+        }
+      } else if ((c == '?') || (c == '*') || (c == '{')) {
+        if (!literals.isEmpty()) {
+          literals.set(literals.size() - 1, null);
+        }
+        literals.add(null);
+      } else if ((c != '^') && (c != '$')) {
+        literals.add((Character.isLetterOrDigit(c) || (FilePattern.LITERALS.indexOf(c) >= 0)) ? c : null);
+      }
+    }
+    return literals;
+  }
+
+  /**
+   * Skips the arguments of an escape sequence and returns the index after it.
+   *
+   * @param pattern
+   * @param index
+   * @param c
+   */
+  private static int skipEscape(String pattern, int index, char c) {
+    int end = index;
+    switch (c) {
+      case 'Q':
+        end = pattern.indexOf("\\E", index);
+        return (end < 0) ? pattern.length() : end + 2;
+      case 'k':
+        end = pattern.indexOf('>', index);
+        return (end < 0) ? pattern.length() : end + 1;
+      case 'x':
+      case 'p':
+      case 'P':
+      case 'N':
+        if ((index < pattern.length()) && (pattern.charAt(index) == '{')) {
+          end = pattern.indexOf('}', index);
+          return (end < 0) ? pattern.length() : end + 1;
+        }
+        return Math.min(pattern.length(), index + ((c == 'x') ? 2 : 1));
+      case 'u':
+        return Math.min(pattern.length(), index + 4);
+      case 'c':
+        return Math.min(pattern.length(), index + 1);
+      default:
+        // Octal values and back references
+        while (Character.isDigit(c) && (end < pattern.length()) && Character.isDigit(pattern.charAt(end))) {
+          end++;
+        }
+        return end;
+    }
+  }
+
   /**
    * Converts the file pattern to a regular expression.
    *
@@ -112,14 +242,34 @@ public class FilePattern extends SimpleFileVisitor<Path> {
   }
 
   /**
-   * Copy the file tree using the environment variables.
+   * Creates a {@link FilePattern} for the regular expression. The files and directories inside of
+   * a matching directory are not matched.
+   *
+   * @param pattern
+   */
+  public static FilePattern of(String pattern) {
+    return new FilePattern(pattern, false);
+  }
+
+  /**
+   * Creates a {@link FilePattern} for the regular expression, that also matches the files and
+   * directories inside of a matching directory.
+   *
+   * @param pattern
+   */
+  public static FilePattern ofNested(String pattern) {
+    return new FilePattern(pattern, true);
+  }
+
+  /**
+   * Get all files and directories matching the pattern.
    *
    * @param workingDir
    * @param pattern
    */
   public static List<FileMatcher> matches(File workingDir, String pattern) throws IOException {
-    FilePattern visitor = new FilePattern(workingDir, pattern);
-    Files.walkFileTree(workingDir.toPath(), visitor);
-    return visitor.getMappers();
+    FilePattern filePattern = FilePattern.of(pattern);
+    FileTreeMatching.match(workingDir, Collections.singletonList(filePattern), Collections.emptySet());
+    return filePattern.getMappers();
   }
-}
\ No newline at end of file
+}
@@ -16,28 +16,52 @@
 package it.smartio.util.file;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * The {@link FileTreeCopying} copies a directory structure from source to the target path.
+ * The {@link FileTreeCopying} copies a directory structure from source to the target path. The
+ * source is walked once, files whose size and modification time match the target are skipped, the
+ * remaining files are copied concurrently. Files are copied with {@link FileChannel#transferTo}, or
+ * hard linked if links are allowed.
+ *
+ * Hard links are only safe if neither the source nor the target is modified in place.
  */
 public final class FileTreeCopying extends SimpleFileVisitor<Path> {
 
-  private final Path source;
-  private final Path target;
+  private static final int THRESHOLD = 16;
+
+
+  private final Path       source;
+  private final Path       target;
+  private final boolean    links;
 
+  private final List<Copy> copies  = new ArrayList<>();
+  private final AtomicLong bytes   = new AtomicLong();
+  private final AtomicLong files   = new AtomicLong();
+  private long             skipped;
 
-  private Instant instant;
+  private Instant          instant;
 
   /**
    *
@@ -45,19 +69,40 @@ public final class FileTreeCopying extends SimpleFileVisitor<Path> {
    *
    * @param source
    * @param target
+   * @param links
    */
-  private FileTreeCopying(Path source, Path target) {
+  private FileTreeCopying(Path source, Path target, boolean links) {
     this.source = source;
     this.target = target;
+    this.links = links;
   }
 
   /**
-   * Resolves the path.
-   *
-   * @param path
+   * Gets the number of bytes copied.
    */
-  private Path toPath(Path path) {
-    return this.target.resolve(this.source.relativize(path));
+  public final long getBytes() {
+    return this.bytes.get();
+  }
+
+  /**
+   * Gets the number of files copied.
+   */
+  public final long getFiles() {
+    return this.files.get();
+  }
+
+  /**
+   * Gets the number of files skipped, because they are up-to-date.
+   */
+  public final long getSkipped() {
+    return this.skipped;
+  }
+
+  /**
+   * Gets the date of the newest file.
+   */
+  public final LocalDate getDate() {
+    return this.instant == null ? LocalDate.now() : LocalDateTime.ofInstant(this.instant, ZoneOffset.UTC).toLocalDate();
   }
 
   /**
@@ -65,12 +110,8 @@ public final class FileTreeCopying extends SimpleFileVisitor<Path> {
    *
    * @param path
    */
-  private Instant toInstant(Path path) {
-    try {
-      BasicFileAttributes attr = Files.readAttributes(path, BasicFileAttributes.class);
-      return attr.creationTime().toInstant();
-    } catch (Throwable ex) {}
-    return null;
+  private Path toPath(Path path) {
+    return this.target.resolve(this.source.relativize(path));
   }
 
   /**
@@ -82,7 +123,13 @@ public final class FileTreeCopying extends SimpleFileVisitor<Path> {
   @Override
   public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
     Path dir = toPath(path);
-    if (!Files.exists(dir)) {
+    if (path.equals(this.source)) {
+      if (!Files.exists(dir)) {
+        Files.createDirectory(dir);
+      }
+    } else if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+      // A file or a link, that has been replaced by a directory
+      Files.deleteIfExists(dir);
       Files.createDirectory(dir);
     }
     return FileVisitResult.CONTINUE;
@@ -96,28 +143,185 @@ public final class FileTreeCopying extends SimpleFileVisitor<Path> {
    */
   @Override
   public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-    Path file = toPath(path);
-    Files.copy(path, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES,
-        LinkOption.NOFOLLOW_LINKS);
-
-    Instant current = toInstant(path);
+    Instant current = attrs.creationTime().toInstant();
     if ((this.instant == null) || current.isAfter(this.instant)) {
       this.instant = current;
     }
+
+    Path file = toPath(path);
+    if (FileTreeCopying.isUpToDate(path, file, attrs)) {
+      this.skipped++;
+    } else {
+      this.copies.add(new Copy(path, file, attrs));
+    }
     return FileVisitResult.CONTINUE;
   }
 
+  /**
+   * Copies the collected files, concurrently if there are many of them.
+   *
+   * @param processors
+   */
+  private void copyFiles(int processors) throws IOException {
+    int threads = Math.min(processors, this.copies.size() / FileTreeCopying.THRESHOLD);
+    if (threads <= 1) {
+      for (Copy copy : this.copies) {
+        copy(copy);
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Copy copy : this.copies) {
+        futures.add(executor.submit(() -> {
+          copy(copy);
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Copies a single file. The target is replaced and never written in place, because it might be a
+   * hard link. A directory, that has been replaced by a file, is deleted with its content.
+   *
+   * @param copy
+   */
+  private void copy(Copy copy) throws IOException {
+    if (Files.isDirectory(copy.target, LinkOption.NOFOLLOW_LINKS)) {
+      FileSystem.delete(copy.target.toFile());
+    } else {
+      Files.deleteIfExists(copy.target);
+    }
+    if (!copy.attrs.isRegularFile()) {
+      Files.copy(copy.source, copy.target, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+    } else if (!this.links || !FileTreeCopying.link(copy.source, copy.target)) {
+      FileTreeCopying.transfer(copy.source, copy.target, copy.attrs);
+    }
+    this.files.incrementAndGet();
+    this.bytes.addAndGet(copy.attrs.size());
+  }
+
+  /**
+   * Returns <code>true</code> if the target has the same size and modification time as the source,
+   * or if both are links to the same file.
+   *
+   * @param source
+   * @param target
+   * @param attrs
+   */
+  private static boolean isUpToDate(Path source, Path target, BasicFileAttributes attrs) throws IOException {
+    try {
+      BasicFileAttributes current = Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      if (attrs.isSymbolicLink()) {
+        return current.isSymbolicLink() && Files.readSymbolicLink(source).equals(Files.readSymbolicLink(target));
+      }
+      return attrs.isRegularFile() && current.isRegularFile() && (current.size() == attrs.size())
+          && current.lastModifiedTime().equals(attrs.lastModifiedTime());
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Creates a hard link, returns <code>false</code> if the file system doesn't support it.
+   *
+   * @param source
+   * @param target
+   */
+  private static boolean link(Path source, Path target) {
+    try {
+      Files.createLink(target, source);
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      return false;
+    }
+  }
 
   /**
-   * Copy the file tree using the environment variables.
+   * Transfers the content of the file and copies the modification time and the permissions.
+   *
+   * @param source
+   * @param target
+   * @param attrs
+   */
+  private static void transfer(Path source, Path target, BasicFileAttributes attrs) throws IOException {
+    try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+        FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      long size = input.size();
+      for (long position = 0; position < size;) {
+        position += input.transferTo(position, size - position, output);
+      }
+    }
+
+    PosixFileAttributeView view = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+    if (view != null) {
+      Files.setPosixFilePermissions(target, view.readAttributes().permissions());
+    }
+    Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+  }
+
+  /**
+   * Copy the file tree.
    *
    * @param source
    * @param target
    */
   public static LocalDate copyFileTree(Path source, Path target) throws IOException {
-    FileTreeCopying visitor = new FileTreeCopying(source, target);
+    return FileTreeCopying.copy(source, target, false).getDate();
+  }
+
+  /**
+   * Copy the file tree and returns the statistics of the copy. Unchanged files are skipped.
+   *
+   * @param source
+   * @param target
+   * @param links
+   */
+  public static FileTreeCopying copy(Path source, Path target, boolean links) throws IOException {
+    return FileTreeCopying.copy(source, target, links, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Copy the file tree with at most one thread per processor.
+   *
+   * @param source
+   * @param target
+   * @param links
+   * @param processors
+   */
+  static FileTreeCopying copy(Path source, Path target, boolean links, int processors) throws IOException {
+    FileTreeCopying visitor = new FileTreeCopying(source, target, links);
     Files.walkFileTree(source, visitor);
-    return visitor.instant == null ? LocalDate.now()
-        : LocalDateTime.ofInstant(visitor.instant, ZoneOffset.UTC).toLocalDate();
+    visitor.copyFiles(processors);
+    return visitor;
+  }
+
+  /**
+   * The {@link Copy} is a file to copy.
+   */
+  private static class Copy {
+
+    private final Path                source;
+    private final Path                target;
+    private final BasicFileAttributes attrs;
+
+    private Copy(Path source, Path target, BasicFileAttributes attrs) {
+      this.source = source;
+      this.target = target;
+      this.attrs = attrs;
+    }
   }
-}
\ No newline at end of file
+}
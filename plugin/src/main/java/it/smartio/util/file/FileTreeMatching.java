@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@link FileTreeMatching} evaluates many {@link FilePattern}'s with a single walk of the file
+ * tree. A directory is only visited, if it can contain a match of any pattern. Ignored directories,
+ * e.g. <code>.git</code> or <code>build</code>, are never visited. An ignored name is ignored at
+ * any depth, an ignored path only relative to the working directory.
+ */
+public final class FileTreeMatching extends SimpleFileVisitor<Path> {
+
+  private final Path              workingPath;
+  private final List<FilePattern> patterns;
+  private final Set<String>       ignores;
+
+  private final Deque<BitSet>     active = new ArrayDeque<>();
+
+  /**
+   * Constructs an instance of {@link FileTreeMatching}.
+   *
+   * @param workingPath
+   * @param patterns
+   * @param ignores
+   */
+  private FileTreeMatching(Path workingPath, List<FilePattern> patterns, Set<String> ignores) {
+    this.workingPath = workingPath;
+    this.patterns = patterns;
+    this.ignores = ignores;
+  }
+
+  /**
+   * Gets the path relative to the working directory, using '/' as separator.
+   *
+   * @param path
+   */
+  private String toRelative(Path path) {
+    return this.workingPath.relativize(path).toString().replace('\\', '/'); // for windows matches
+  }
+
+  /**
+   * Visit a directory.
+   *
+   * @param path
+   * @param attrs
+   */
+  @Override
+  public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
+    String input = toRelative(path);
+    if (!input.isEmpty()
+        && (this.ignores.contains(input) || this.ignores.contains(path.getFileName().toString()))) {
+      return FileVisitResult.SKIP_SUBTREE;
+    }
+
+    BitSet parent = this.active.peek();
+    BitSet current = new BitSet(this.patterns.size());
+    for (int index = 0; index < this.patterns.size(); index++) {
+      if ((parent != null) && !parent.get(index)) {
+        continue;
+      }
+
+      FilePattern pattern = this.patterns.get(index);
+      if (pattern.match(input, path) && !pattern.isNested()) {
+        continue;
+      }
+      if (pattern.canContain(input)) {
+        current.set(index);
+      }
+    }
+
+    if (current.isEmpty()) {
+      return FileVisitResult.SKIP_SUBTREE;
+    }
+    this.active.push(current);
+    return FileVisitResult.CONTINUE;
+  }
+
+  /**
+   * Leaves a directory.
+   *
+   * @param path
+   * @param exception
+   */
+  @Override
+  public FileVisitResult postVisitDirectory(Path path, IOException exception) throws IOException {
+    this.active.pop();
+    return super.postVisitDirectory(path, exception);
+  }
+
+  /**
+   * Visit a file.
+   *
+   * @param path
+   * @param attrs
+   */
+  @Override
+  public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+    String input = toRelative(path);
+    BitSet current = this.active.peek();
+    for (int index = current.nextSetBit(0); index >= 0; index = current.nextSetBit(index + 1)) {
+      this.patterns.get(index).match(input, path);
+    }
+    return FileVisitResult.CONTINUE;
+  }
+
+  /**
+   * Matches all patterns with a single walk of the working directory. The matches are collected by
+   * the {@link FilePattern}'s.
+   *
+   * @param workingDir
+   * @param patterns
+   * @param ignores
+   */
+  public static void match(File workingDir, List<FilePattern> patterns, Collection<String> ignores)
+      throws IOException {
+    if (patterns.isEmpty() || !workingDir.isDirectory()) {
+      return;
+    }
+
+    Set<String> names = new HashSet<>();
+    ignores.forEach(i -> names.add(i.replace('\\', '/').replaceAll("/+$", "")));
+    Files.walkFileTree(workingDir.toPath(), new FileTreeMatching(workingDir.toPath(), patterns, names));
+  }
+}
@@ -17,7 +17,6 @@ package it.smartio.util.git;
 
 import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.CommitCommand;
-import org.eclipse.jgit.api.CreateBranchCommand;
 import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
@@ -25,10 +24,16 @@ import org.eclipse.jgit.api.PullCommand;
 import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.PushCommand;
 import org.eclipse.jgit.api.StashCreateCommand;
+import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.TagCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.SubmoduleConfig.FetchRecurseSubmodulesMode;
 import org.eclipse.jgit.merge.ContentMergeStrategy;
@@ -36,12 +41,27 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
 import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.IndexDiffFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -57,26 +77,41 @@ import it.smartio.util.version.Version;
  */
 public class Repository implements AutoCloseable {
 
-  private static final Pattern HASH = Pattern.compile("^[0-9a-fA-F]{40,40}$");
+  private static final Pattern                           HASH    = Pattern.compile("^[0-9a-fA-F]{40,40}$");
+
+  private static final int                               CACHED  = 256;
+  private static final Map<String, NavigableSet<String>> CHANGES = new ConcurrentHashMap<>();
 
 
   private final Git                 git;
   private final AnyObjectId         oid;
   private final CredentialsProvider credentials;
+  private final RepositoryCommand   command;
+  private final ExecutorService     executor;
+  private final ProgressMonitor     monitor;
 
   private final List<Throwable>     exceptions;
 
   /**
-   * Constructs an instance of {@link Repository}.
+   * Constructs an instance of {@link Repository}. The sub modules of all levels are processed by
+   * the same pool of threads, that is terminated when the root {@link Repository} is closed.
    *
    * @param git
    * @param credentials
+   * @param command
+   * @param threads
+   * @param monitor
    */
-  Repository(Git git, CredentialsProvider credentials) {
+  Repository(Git git, CredentialsProvider credentials, RepositoryCommand command, int threads,
+      ProgressMonitor monitor) {
     this.git = git;
     this.oid = null;
     this.credentials = credentials;
-    this.exceptions = new ArrayList<>();
+    this.command = command;
+    // The waiting thread processes sub modules too
+    this.executor = (threads > 1) ? Executors.newFixedThreadPool(threads - 1) : null;
+    this.monitor = monitor;
+    this.exceptions = Collections.synchronizedList(new ArrayList<>());
   }
 
   /**
@@ -90,6 +125,9 @@ public class Repository implements AutoCloseable {
     this.git = git;
     this.oid = oid;
     this.credentials = parent.credentials;
+    this.command = parent.command;
+    this.executor = parent.executor;
+    this.monitor = parent.monitor;
     this.exceptions = parent.exceptions;
   }
 
@@ -125,9 +163,11 @@ public class Repository implements AutoCloseable {
    * Get exceptions for the current {@link Repository}.
    */
   public final List<Throwable> getExceptions() {
-    List<Throwable> errors = new ArrayList<>(this.exceptions);
-    this.exceptions.clear();
-    return errors;
+    synchronized (this.exceptions) {
+      List<Throwable> errors = new ArrayList<>(this.exceptions);
+      this.exceptions.clear();
+      return errors;
+    }
   }
 
   /**
@@ -142,7 +182,8 @@ public class Repository implements AutoCloseable {
   }
 
   /**
-   * Add an {@link Exception}.
+   * Add an {@link Exception}. The exceptions of all sub-modules are collected by the root
+   * {@link Repository}, also if they are processed concurrently.
    *
    * @param exception
    */
@@ -154,7 +195,7 @@ public class Repository implements AutoCloseable {
    * Create {@link Repository} related information for verbose.
    */
   protected final RepositoryVerbose getVerbose() {
-    return new RepositoryVerbose(this.git, this.credentials);
+    return new RepositoryVerbose(this.git, this.credentials, this.monitor);
   }
 
   /**
@@ -174,11 +215,109 @@ public class Repository implements AutoCloseable {
   }
 
   /**
-   * Fetch all remote changes to the local repository.
+   * Gets a key, that identifies the uncommitted changes of the working tree: the modified, added,
+   * removed and untracked files with their sizes and modification times. The key is empty, if the
+   * working tree is clean.
+   */
+  public final String getStatusKey() throws IOException {
+    Status status;
+    try {
+      status = getGit().status().call();
+    } catch (GitAPIException e) {
+      throw new IOException(e);
+    }
+
+    NavigableSet<String> files = new TreeSet<>(status.getUncommittedChanges());
+    files.addAll(status.getUntracked());
+
+    StringBuilder builder = new StringBuilder();
+    for (String path : files) {
+      File file = new File(getLocation(), path);
+      builder.append(String.format("%s:%s:%s\n", path, file.length(), file.lastModified()));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Gets the files changed since the commit, identified by a hash, branch- or tag-name: the files
+   * changed by the commits up to the HEAD and the modified or untracked files of the working tree.
+   * The files changed by the commits are cached per HEAD.
+   *
+   * @param since
+   */
+  public final RepositoryChanges getChanges(String since) throws IOException {
+    org.eclipse.jgit.lib.Repository repository = getGit().getRepository();
+    ObjectId baseId = repository.resolve(since + "^{commit}");
+    ObjectId headId = repository.resolve(Constants.HEAD);
+    if ((baseId == null) || (headId == null)) {
+      throw new IOException("Unknown revision '" + since + "'");
+    }
+
+    NavigableSet<String> files = new TreeSet<>(getChanges(repository, baseId, headId));
+    try (TreeWalk walk = new TreeWalk(repository)) {
+      try (RevWalk revWalk = new RevWalk(repository)) {
+        walk.addTree(revWalk.parseCommit(headId).getTree());
+      }
+      walk.addTree(new DirCacheIterator(repository.readDirCache()));
+      walk.addTree(new FileTreeIterator(repository));
+      walk.setFilter(new IndexDiffFilter(1, 2));
+      walk.setRecursive(true);
+      while (walk.next()) {
+        files.add(walk.getPathString());
+      }
+    }
+    return new RepositoryChanges(files);
+  }
+
+  /**
+   * Gets the files changed by the commits between base and head.
+   *
+   * @param repository
+   * @param baseId
+   * @param headId
+   */
+  private static NavigableSet<String> getChanges(org.eclipse.jgit.lib.Repository repository, ObjectId baseId,
+      ObjectId headId) throws IOException {
+    String key = String.format("%s:%s:%s", repository.getDirectory(), baseId.getName(), headId.getName());
+    NavigableSet<String> files = Repository.CHANGES.get(key);
+    if (files != null) {
+      return files;
+    }
+
+    files = new TreeSet<>();
+    try (RevWalk revWalk = new RevWalk(repository); TreeWalk walk = new TreeWalk(repository)) {
+      walk.addTree(revWalk.parseCommit(baseId).getTree());
+      walk.addTree(revWalk.parseCommit(headId).getTree());
+      walk.setFilter(TreeFilter.ANY_DIFF);
+      walk.setRecursive(true);
+      while (walk.next()) {
+        files.add(walk.getPathString());
+      }
+    }
+
+    if (Repository.CHANGES.size() >= Repository.CACHED) {
+      Repository.CHANGES.clear();
+    }
+    Repository.CHANGES.put(key, files);
+    return files;
+  }
+
+  /**
+   * Fetch all remote changes to the local repository. Shallow and partial repositories are fetched
+   * with the GIT command line.
    */
   public final void fetch() {
     forEach(r -> r.fetch());
 
+    if (RepositoryCommand.isRequired(getGit().getRepository())) {
+      try {
+        this.command.fetch(getLocation());
+      } catch (IOException e) {
+        handleException(e);
+      }
+      return;
+    }
+
     FetchCommand command = getGit().fetch();
     command.setCredentialsProvider(getCredentials());
     command.setTagOpt(TagOpt.FETCH_TAGS);
@@ -194,11 +333,22 @@ public class Repository implements AutoCloseable {
   }
 
   /**
-   * Pull all remote changes to the local repository.
+   * Pull all remote changes to the local repository. Shallow and partial repositories are pulled
+   * with the GIT command line. A shallow repository can only be fast-forwarded, if its commit is
+   * connected to the shallow history of the remote branch.
    */
   public final void pull() {
     forEach(r -> r.pull());
 
+    if (RepositoryCommand.isRequired(getGit().getRepository())) {
+      try {
+        this.command.pull(getLocation());
+      } catch (IOException e) {
+        handleException(e);
+      }
+      return;
+    }
+
     PullCommand command = getGit().pull();
     command.setCredentialsProvider(getCredentials());
     command.setFastForward(FastForwardMode.FF_ONLY);
@@ -218,29 +368,79 @@ public class Repository implements AutoCloseable {
   /**
    * Push all local changes to the remote repository.
    */
-  public final void push() {
-    forEach(r -> r.push());
+  public final List<String> push() {
+    return push(false);
+  }
 
-    PushCommand command = getGit().push();
-    command.setCredentialsProvider(getCredentials());
-    command.setForce(true);
+  /**
+   * Push the current branch and all tags of the repository and its sub-modules. Each repository is
+   * pushed by a single transport session, atomically if the remote supports it. Returns the name
+   * of the repository and the reference for each update. A dry-run only reports the references,
+   * that would be updated.
+   *
+   * @param dryRun
+   */
+  public final List<String> push(boolean dryRun) {
+    List<String> updates = Collections.synchronizedList(new ArrayList<>());
+    push(dryRun, updates);
+    return updates;
+  }
+
+  /**
+   * Push the repository and its sub-modules, collecting the updated references.
+   *
+   * @param dryRun
+   * @param updates
+   */
+  private void push(boolean dryRun, List<String> updates) {
+    forEach(r -> r.push(dryRun, updates));
 
     try {
-      command.call();
-    } catch (GitAPIException e) {
+      Iterable<PushResult> results;
+      try {
+        results = createPush(dryRun).setAtomic(true).call();
+      } catch (TransportException e) {
+        // The message is prefixed by the URI of the remote
+        String message = e.getMessage();
+        if ((message == null) || !message.endsWith(JGitText.get().atomicPushNotSupported)) {
+          throw e;
+        }
+        results = createPush(dryRun).call();
+      }
+
+      for (PushResult result : results) {
+        for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+          if ((update.getStatus() != RemoteRefUpdate.Status.OK)
+              && (update.getStatus() != RemoteRefUpdate.Status.UP_TO_DATE)) {
+            handleException(new RepositoryException(String.format("Push of '%s' to '%s' failed: %s",
+                update.getRemoteName(), result.getURI(), update.getStatus())));
+          } else if (update.getStatus() == RemoteRefUpdate.Status.OK) {
+            updates.add(String.format("%s %s", getLocation().getName(), update.getRemoteName()));
+          }
+        }
+      }
+    } catch (GitAPIException | IOException e) {
       handleException(e);
     }
+  }
 
-    command = getGit().push();
+  /**
+   * Creates a {@link PushCommand} for the current branch and all tags.
+   *
+   * @param dryRun
+   */
+  private PushCommand createPush(boolean dryRun) throws IOException {
+    PushCommand command = getGit().push();
     command.setCredentialsProvider(getCredentials());
     command.setForce(true);
+    command.setDryRun(dryRun);
     command.setPushTags();
 
-    try {
-      command.call();
-    } catch (GitAPIException e) {
-      handleException(e);
+    Ref head = getGit().getRepository().exactRef(Constants.HEAD);
+    if ((head != null) && head.isSymbolic()) {
+      command.add(head.getLeaf().getName());
     }
+    return command;
   }
 
   /**
@@ -314,7 +514,9 @@ public class Repository implements AutoCloseable {
   }
 
   /**
-   * Pull all remote changes to the local repository.
+   * Creates the tag on the HEAD of the repository.
+   *
+   * @param tagName
    */
   public final void tag(String tagName) {
     TagCommand command = getGit().tag();
@@ -328,6 +530,17 @@ public class Repository implements AutoCloseable {
     }
   }
 
+  /**
+   * Creates the tag on the HEAD of the repository and of all sub-modules, so that the tags can be
+   * pushed with a single {@link #push(boolean)}.
+   *
+   * @param tagName
+   */
+  public final void tagAll(String tagName) {
+    forEach(r -> r.tagAll(tagName));
+    tag(tagName);
+  }
+
   /**
    * Pull all remote changes to the local repository.
    */
@@ -384,17 +597,22 @@ public class Repository implements AutoCloseable {
   }
 
   /**
-   * Checkout a commit to the current local brach.
+   * Checkout a commit to the local branch. The commit is checked out detached first, so that the
+   * working tree is updated even if the branch is the current one. Shallow and partial repositories
+   * are checked out with the GIT command line.
    *
    * @param commit
+   * @param branch
    */
-  protected final void checkout(RevCommit commit, String branch) throws GitAPIException {
-    String hash = commit.getId().getName();
+  protected final void checkout(RevCommit commit, String branch) throws GitAPIException, IOException {
+    if (RepositoryCommand.isRequired(getGit().getRepository())) {
+      this.command.checkout(getLocation(), commit.getName(), branch);
+      return;
+    }
 
-    getGit().branchRename().setNewName(hash).setOldName(branch).call();
-    getGit().branchDelete().setBranchNames(branch).setForce(true).call();
-    getGit().checkout().setCreateBranch(true).setName(branch).setStartPoint(commit).call();
-    getGit().branchDelete().setBranchNames(hash).setForce(true).call();
+    getGit().checkout().setName(commit.getName()).call();
+    getGit().branchCreate().setName(branch).setForce(true).setStartPoint(commit).call();
+    getGit().checkout().setName(branch).call();
   }
 
   /**
@@ -404,32 +622,84 @@ public class Repository implements AutoCloseable {
    * @param branch
    */
   protected final void branch(RevCommit commit, String branch) throws GitAPIException, IOException {
-    CreateBranchCommand command = getGit().branchCreate();
-    command.setName(branch);
-    command.setForce(true);
-    command.setStartPoint(commit);
-    command.call();
     checkout(commit, branch);
   }
 
   /**
-   * Iterates of all {@link Repository}'s of the sub modules.
+   * Iterates of all {@link Repository}'s of the sub modules. The sub modules are processed
+   * concurrently by the pool of threads of the root {@link Repository}. While waiting, the current
+   * thread processes the sub modules, that haven't been started by the pool, so that the nested sub
+   * modules can't exhaust the pool. Exceptions are collected by {@link #handleException(Exception)}.
    *
    * @param consumer
    */
   public final void forEach(Consumer<Repository> consumer) {
+    List<Repository> modules = new ArrayList<>();
     try (SubmoduleWalk walk = SubmoduleWalk.forIndex(getGit().getRepository())) {
       while (walk.next()) {
         if (walk.getRepository() != null) {
-          Git git = new Git(walk.getRepository());
-          try (Repository repo = new Repository(git, walk.getObjectId(), this)) {
-            consumer.accept(repo);
-          }
+          modules.add(new Repository(new Git(walk.getRepository()), walk.getObjectId(), this));
         }
       }
     } catch (IOException e) {
       handleException(e);
     }
+
+    if (modules.isEmpty()) {
+      return;
+    }
+
+    // Only the sub modules of the root are reported, the nested are part of them
+    RepositoryVerbose verbose = ((this.monitor != null) && (this.oid == null)) ? getVerbose() : null;
+    if (verbose != null) {
+      verbose.onModules(modules.size());
+    }
+
+    List<FutureTask<?>> tasks = new ArrayList<>();
+    for (Repository module : modules) {
+      FutureTask<?> task = new FutureTask<>(() -> Repository.accept(module, consumer, verbose), null);
+      if (this.executor != null) {
+        this.executor.execute(task);
+      }
+      tasks.add(task);
+    }
+
+    try {
+      for (FutureTask<?> task : tasks) {
+        task.run(); // Does nothing, if already started by the pool
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      tasks.forEach(t -> t.cancel(true));
+      handleException(e);
+    } catch (ExecutionException e) {
+      // Unexpected errors, the exceptions of the modules are collected by accept
+      handleException(e);
+    }
+  }
+
+  /**
+   * Processes a sub module and closes it.
+   *
+   * @param module
+   * @param consumer
+   * @param verbose
+   */
+  private static void accept(Repository module, Consumer<Repository> consumer, RepositoryVerbose verbose) {
+    File location = module.getLocation();
+    long time = System.currentTimeMillis();
+    boolean failed = false;
+    try (Repository repo = module) {
+      consumer.accept(repo);
+    } catch (RuntimeException e) {
+      failed = true;
+      module.handleException(e);
+    } finally {
+      if (verbose != null) {
+        verbose.onModule(location, System.currentTimeMillis() - time, failed);
+      }
+    }
   }
 
   /**
@@ -439,5 +709,8 @@ public class Repository implements AutoCloseable {
   public final void close() {
     this.exceptions.forEach(e -> e.printStackTrace());
     this.git.getRepository().close();
+    if ((this.oid == null) && (this.executor != null)) {
+      this.executor.shutdownNow();
+    }
   }
 }
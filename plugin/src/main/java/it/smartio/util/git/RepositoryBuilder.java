@@ -19,6 +19,7 @@ import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.TextProgressMonitor;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -32,6 +33,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -43,6 +45,9 @@ import it.smartio.util.Builder;
  */
 public class RepositoryBuilder implements Builder<Repository> {
 
+  private static final int THREADS = 4;
+
+
   private final File location;
 
 
@@ -50,6 +55,13 @@ public class RepositoryBuilder implements Builder<Repository> {
   private String            branch;
   private String            username;
   private String            password;
+  private int               threads = RepositoryBuilder.THREADS;
+
+  private int               depth;
+  private String            filter;
+  private boolean           singleBranch;
+  private File              reference;
+  private File              mirrorDir;
 
   private ProgressMonitor   monitor;
   private final Set<String> modules = new LinkedHashSet<>();
@@ -95,6 +107,68 @@ public class RepositoryBuilder implements Builder<Repository> {
     return this;
   }
 
+  /**
+   * Sets the maximum number of sub modules, that are processed concurrently.
+   *
+   * @param threads
+   */
+  public final RepositoryBuilder setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * Sets the depth of a shallow clone, a depth of 0 clones the full history.
+   *
+   * @param depth
+   */
+  public final RepositoryBuilder setDepth(int depth) {
+    this.depth = depth;
+    return this;
+  }
+
+  /**
+   * Sets the filter of a partial clone, e.g. <code>blob:none</code>.
+   *
+   * @param filter
+   */
+  public final RepositoryBuilder setFilter(String filter) {
+    this.filter = filter;
+    return this;
+  }
+
+  /**
+   * Clones only the history of the branch.
+   *
+   * @param singleBranch
+   */
+  public final RepositoryBuilder setSingleBranch(boolean singleBranch) {
+    this.singleBranch = singleBranch;
+    return this;
+  }
+
+  /**
+   * Sets a local reference repository, whose objects are borrowed by the clone. The sub modules
+   * borrow the objects of the sub modules of the reference.
+   *
+   * @param reference
+   */
+  public final RepositoryBuilder setReference(File reference) {
+    this.reference = reference;
+    return this;
+  }
+
+  /**
+   * Sets the directory of the bare mirrors, that are shared by the workspaces of the host. The
+   * mirrors of the repository and of the sub modules are updated and used as reference.
+   *
+   * @param mirrorDir
+   */
+  public final RepositoryBuilder setMirror(File mirrorDir) {
+    this.mirrorDir = mirrorDir;
+    return this;
+  }
+
   /**
    * Adds a GIT sub modules.
    *
@@ -147,6 +221,51 @@ public class RepositoryBuilder implements Builder<Repository> {
     return command;
   }
 
+  /**
+   * Returns <code>true</code> if the clone requires the GIT command line, because JGit doesn't
+   * support shallow, partial or referenced clones. Clones from a mirror are referenced clones.
+   */
+  private boolean isNativeClone() {
+    return (this.depth > 0) || (this.filter != null) || (this.reference != null) || (this.mirrorDir != null);
+  }
+
+  /**
+   * Creates a {@link RepositoryCommand} for the clones, that are not supported by JGit.
+   */
+  private RepositoryCommand createCommand() {
+    RepositoryCommand command = new RepositoryCommand(this.depth, this.filter, this.singleBranch, this.monitor != null);
+    return command.setCredentials(this.username, this.password);
+  }
+
+  /**
+   * Resets the mirrors updated by the previous build, so that they are fetched again. Each build
+   * must call it before the first {@link Repository} is built.
+   */
+  public static void resetMirrors() {
+    RepositoryMirror.reset();
+  }
+
+  /**
+   * Opens the {@link Git} repository at the location.
+   *
+   * @param location
+   */
+  private static Git open(File location) throws IOException {
+    FileRepositoryBuilder builder = new FileRepositoryBuilder();
+    builder.findGitDir(location);
+    return new Git(builder.build());
+  }
+
+  /**
+   * Returns <code>true</code> if the remote is a local repository, as file URL or as path. Local
+   * repositories don't require credentials.
+   *
+   * @param remote
+   */
+  private static boolean isLocal(String remote) {
+    return remote.startsWith("file:") || new File(remote).exists();
+  }
+
   /**
    * Creates the root {@link Git} repository. If not available, it will be checked out.
    *
@@ -154,19 +273,60 @@ public class RepositoryBuilder implements Builder<Repository> {
    */
   private Git getRepository(CredentialsProvider credentials) throws GitAPIException, IOException {
     if (this.location.exists()) {
-      FileRepositoryBuilder builder = new FileRepositoryBuilder();
-      builder.findGitDir(this.location);
-      return new Git(builder.build());
+      return RepositoryBuilder.open(this.location);
     }
 
-    if ((this.remote == null) || (credentials == null)) {
+    if ((this.remote == null) || ((credentials == null) && !RepositoryBuilder.isLocal(this.remote))) {
       throw new IllegalArgumentException("Remote and credentials are required for a checkout");
     }
 
+    if (isNativeClone()) {
+      File reference = (this.mirrorDir == null) ? this.reference
+          : new RepositoryMirror(this.mirrorDir, credentials, this.monitor).update(this.remote);
+      createCommand().clone(this.location, this.remote, this.branch, reference, this.mirrorDir != null);
+      return RepositoryBuilder.open(this.location);
+    }
+
     CloneCommand command = createClone(this.location, this.remote, credentials);
+    if (this.singleBranch && (this.branch != null)) {
+      command.setCloneAllBranches(false);
+      command.setBranchesToClone(Collections.singleton(Constants.R_HEADS + this.branch));
+    }
     return command.setBranch(this.branch).call();
   }
 
+  /**
+   * Clones a sub module and checks out the commit of the parent.
+   *
+   * @param root
+   * @param walk
+   * @param credentials
+   */
+  private void cloneModule(Repository root, SubmoduleWalk walk, CredentialsProvider credentials)
+      throws GitAPIException, IOException, ConfigInvalidException {
+    File localPath = new File(root.getLocation(), walk.getPath());
+    Git git;
+    if (isNativeClone()) {
+      File reference = (this.reference == null) ? null : new File(this.reference, walk.getPath());
+      if (this.mirrorDir != null) {
+        reference = new RepositoryMirror(this.mirrorDir, credentials, this.monitor).update(walk.getRemoteUrl());
+      }
+      RepositoryCommand command = createCommand();
+      command.clone(localPath, walk.getRemoteUrl(), null, reference, this.mirrorDir != null);
+      git = RepositoryBuilder.open(localPath);
+      if (!git.getRepository().getObjectDatabase().has(walk.getObjectId())) {
+        command.fetch(localPath, walk.getObjectId().getName());
+      }
+    } else {
+      git = createClone(localPath, walk.getRemoteUrl(), credentials).call();
+    }
+
+    try (Repository repo = new Repository(git, walk.getObjectId(), root)) {
+      RevCommit commit = repo.getCommit(walk.getObjectId());
+      repo.branch(commit, this.branch);
+    }
+  }
+
   /**
    * Build the {@link Repository} from the configuration in the builder.
    */
@@ -175,7 +335,7 @@ public class RepositoryBuilder implements Builder<Repository> {
     CredentialsProvider credentials = getCredentials();
     try {
       Git git = getRepository(credentials);
-      Repository root = new Repository(git, credentials);
+      Repository root = new Repository(git, credentials, createCommand(), this.threads, this.monitor);
       try (SubmoduleWalk walk = SubmoduleWalk.forIndex(git.getRepository())) {
         while (walk.next()) {
           if (!this.modules.contains(walk.getModulesPath())) {
@@ -183,12 +343,7 @@ public class RepositoryBuilder implements Builder<Repository> {
           }
 
           if (walk.getRepository() == null) {
-            File localPath = new File(git.getRepository().getWorkTree(), walk.getPath());
-            CloneCommand command = createClone(localPath, walk.getRemoteUrl(), credentials);
-            try (Repository repo = new Repository(command.call(), walk.getObjectId(), root)) {
-              RevCommit commit = repo.getCommit(walk.getObjectId());
-              repo.branch(commit, this.branch);
-            }
+            cloneModule(root, walk, credentials);
           }
         }
       } catch (ConfigInvalidException e) {
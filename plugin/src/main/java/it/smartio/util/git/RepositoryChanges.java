@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.util.git;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * The {@link RepositoryChanges} is the set of files, that have been changed since a commit: the
+ * files changed by the commits up to the HEAD and the modified or untracked files of the working
+ * tree. The paths are relative to the working tree and use '/' as separator.
+ */
+public class RepositoryChanges {
+
+  private final NavigableSet<String> files;
+
+  /**
+   * Constructs an instance of {@link RepositoryChanges}.
+   *
+   * @param files
+   */
+  RepositoryChanges(NavigableSet<String> files) {
+    this.files = Collections.unmodifiableNavigableSet(files);
+  }
+
+  /**
+   * Gets the changed files.
+   */
+  public final NavigableSet<String> getFiles() {
+    return this.files;
+  }
+
+  /**
+   * Returns <code>true</code> if no file has been changed.
+   */
+  public final boolean isEmpty() {
+    return this.files.isEmpty();
+  }
+
+  /**
+   * Returns <code>true</code> if the file or any file in the directory has been changed, e.g. to
+   * check if a module is affected.
+   *
+   * @param path
+   */
+  public final boolean isChanged(String path) {
+    String file = path.replace('\\', '/').replaceAll("/+", "/").replaceAll("^(\\./)+|^\\.$|/$", "");
+    if (file.isEmpty()) {
+      return !isEmpty();
+    } else if (this.files.contains(file)) {
+      return true;
+    }
+    String next = this.files.ceiling(file + "/");
+    return (next != null) && next.startsWith(file + "/");
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.util.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.smartio.util.env.OS;
+
+/**
+ * The {@link RepositoryCommand} clones and fetches with the GIT command line, for the modes that
+ * are not supported by JGit: shallow clones with a limited depth, partial clones with a filter of
+ * the objects and clones that borrow the objects of a reference repository. The shallow and partial
+ * repositories are also checked out, fetched and pulled with the GIT command line, because JGit
+ * would fail on the missing objects.
+ *
+ * The credentials are passed to the GIT command line by a GIT_ASKPASS script, so that they are
+ * neither visible in the process list nor stored in the configuration of the repository.
+ */
+class RepositoryCommand {
+
+  private final int     depth;
+  private final String  filter;
+  private final boolean singleBranch;
+  private final boolean verbose;
+
+  private String        username;
+  private String        password;
+
+  /**
+   * Constructs an instance of {@link RepositoryCommand}.
+   *
+   * @param depth
+   * @param filter
+   * @param singleBranch
+   * @param verbose
+   */
+  RepositoryCommand(int depth, String filter, boolean singleBranch, boolean verbose) {
+    this.depth = depth;
+    this.filter = filter;
+    this.singleBranch = singleBranch;
+    this.verbose = verbose;
+  }
+
+  /**
+   * Sets the credentials.
+   *
+   * @param username
+   * @param password
+   */
+  final RepositoryCommand setCredentials(String username, String password) {
+    this.username = username;
+    this.password = password;
+    return this;
+  }
+
+  /**
+   * Clones the remote repository into the location. If a reference is provided, the objects of
+   * the reference are borrowed, as long as the reference exists. A dissociated clone only uses the
+   * reference during the clone and copies the borrowed objects, so that it doesn't depend on the
+   * reference afterwards.
+   *
+   * @param location
+   * @param remote
+   * @param branch
+   * @param reference
+   * @param dissociate
+   */
+  final void clone(File location, String remote, String branch, File reference, boolean dissociate)
+      throws IOException {
+    List<String> command = new ArrayList<>(Arrays.asList("git", "clone", "--no-recurse-submodules"));
+    if (this.depth > 0) {
+      command.add("--depth=" + this.depth);
+    }
+    if (this.filter != null) {
+      command.add("--filter=" + this.filter);
+    }
+    if (this.singleBranch) {
+      command.add("--single-branch");
+    }
+    if (branch != null) {
+      command.add("--branch=" + branch);
+    }
+    if (reference != null) {
+      command.add("--reference-if-able=" + reference.getAbsolutePath());
+      if (dissociate) {
+        command.add("--dissociate");
+      }
+    }
+    command.add(remote);
+    command.add(location.getAbsolutePath());
+    execute(command, null);
+  }
+
+  /**
+   * Fetches a single commit, that is not part of the shallow history of the repository.
+   *
+   * @param location
+   * @param commit
+   */
+  final void fetch(File location, String commit) throws IOException {
+    List<String> command = new ArrayList<>(Arrays.asList("git", "fetch", "--no-tags"));
+    if (this.depth > 0) {
+      command.add("--depth=" + this.depth);
+    }
+    command.add("origin");
+    command.add(commit);
+    execute(command, location);
+  }
+
+  /**
+   * Checks out the commit to the branch, or detached if no branch is provided. The missing objects
+   * of a partial clone are fetched on demand.
+   *
+   * @param location
+   * @param commit
+   * @param branch
+   */
+  final void checkout(File location, String commit, String branch) throws IOException {
+    List<String> command = new ArrayList<>(Arrays.asList("git", "checkout", "--quiet"));
+    if (branch == null) {
+      command.add("--detach");
+    } else {
+      command.add("-B");
+      command.add(branch);
+    }
+    command.add(commit);
+    execute(command, location);
+  }
+
+  /**
+   * Fetches all remote changes and tags, keeping the depth and the filter of the repository.
+   *
+   * @param location
+   */
+  final void fetch(File location) throws IOException {
+    execute(Arrays.asList("git", "fetch", "--tags", "--prune", "--no-recurse-submodules", "origin"), location);
+  }
+
+  /**
+   * Pulls the remote changes of the current branch, only if they can be fast-forwarded.
+   *
+   * @param location
+   */
+  final void pull(File location) throws IOException {
+    execute(Arrays.asList("git", "pull", "--ff-only", "--no-recurse-submodules"), location);
+  }
+
+  /**
+   * Returns <code>true</code> if the repository is shallow or partial, and can't be handled by
+   * JGit.
+   *
+   * @param repository
+   */
+  static boolean isRequired(org.eclipse.jgit.lib.Repository repository) {
+    return new File(repository.getDirectory(), "shallow").exists()
+        || (repository.getConfig().getString("extensions", null, "partialClone") != null)
+        || repository.getConfig().getBoolean("remote", "origin", "promisor", false);
+  }
+
+  /**
+   * Executes the GIT command line.
+   *
+   * @param command
+   * @param workingDir
+   */
+  private void execute(List<String> command, File workingDir) throws IOException {
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.directory(workingDir);
+    builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+    if (this.verbose) {
+      builder.inheritIO();
+    } else {
+      builder.redirectErrorStream(true);
+      builder.redirectOutput(new File(OS.isWindows() ? "NUL" : "/dev/null"));
+    }
+
+    File askpass = null;
+    try {
+      if ((this.username != null) && (this.password != null)) {
+        askpass = RepositoryCommand.createAskPass();
+        builder.environment().put("GIT_ASKPASS", askpass.getAbsolutePath());
+        builder.environment().put("SMARTIO_GIT_USERNAME", this.username);
+        builder.environment().put("SMARTIO_GIT_PASSWORD", this.password);
+      }
+
+      int exitCode = builder.start().waitFor();
+      if (exitCode != 0) {
+        throw new IOException(String.format("'%s' failed with exit code %d", String.join(" ", command), exitCode));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      if (askpass != null) {
+        askpass.delete();
+      }
+    }
+  }
+
+  /**
+   * Creates a GIT_ASKPASS script, that answers with the credentials from the environment.
+   */
+  private static File createAskPass() throws IOException {
+    File file = Files.createTempFile("smartio-askpass", ".sh").toFile();
+    try (PrintWriter writer = new PrintWriter(file)) {
+      writer.println("#!/bin/sh");
+      writer.println("case \"$1\" in");
+      writer.println("  Username*) echo \"$SMARTIO_GIT_USERNAME\" ;;");
+      writer.println("  *) echo \"$SMARTIO_GIT_PASSWORD\" ;;");
+      writer.println("esac");
+    }
+    file.setExecutable(true, true);
+    return file;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.util.git;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.transport.CredentialsProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.smartio.util.file.FileSystem;
+
+/**
+ * The {@link RepositoryMirror} manages bare mirrors of the remote repositories in a directory,
+ * that is shared by all workspaces of a host. The workspaces are cloned with the mirror as
+ * reference, so that only the objects missing in the mirror are fetched from the remote. The
+ * workspaces are dissociated from the mirror after the clone, because the deleted references are
+ * removed from the mirror and a garbage collection of the mirror may drop their objects.
+ *
+ * A mirror is updated at most once by each build. The updated mirrors are reset at the start of a
+ * build, because a daemon executes many builds in the same JVM. Concurrent builds are synchronized
+ * by a file lock next to the mirror.
+ */
+class RepositoryMirror {
+
+  private static final Set<File>         UPDATED = ConcurrentHashMap.newKeySet();
+  private static final Map<File, Object> LOCKS   = new ConcurrentHashMap<>();
+
+
+  private final File                mirrorDir;
+  private final CredentialsProvider credentials;
+  private final ProgressMonitor     monitor;
+
+  /**
+   * Constructs an instance of {@link RepositoryMirror}.
+   *
+   * @param mirrorDir
+   * @param credentials
+   * @param monitor
+   */
+  RepositoryMirror(File mirrorDir, CredentialsProvider credentials, ProgressMonitor monitor) {
+    this.mirrorDir = mirrorDir;
+    this.credentials = credentials;
+    this.monitor = monitor;
+  }
+
+  /**
+   * Gets the location of the mirror for the remote.
+   *
+   * @param remote
+   */
+  final File getMirror(String remote) throws IOException {
+    String name = remote.replaceAll("/+$", "").replaceAll("\\.git$", "");
+    name = name.substring(name.lastIndexOf('/') + 1).replaceAll("[^A-Za-z0-9._-]", "_");
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      String hash = ObjectId.fromRaw(digest.digest(remote.getBytes(StandardCharsets.UTF_8))).getName();
+      return new File(this.mirrorDir, String.format("%s-%s.git", name, hash.substring(0, 12)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Resets the updated mirrors, so that the next build fetches them again.
+   */
+  static void reset() {
+    RepositoryMirror.UPDATED.clear();
+  }
+
+  /**
+   * Creates or updates the mirror of the remote and returns its location.
+   *
+   * @param remote
+   */
+  final File update(String remote) throws GitAPIException, IOException {
+    File mirror = getMirror(remote);
+    synchronized (RepositoryMirror.LOCKS.computeIfAbsent(mirror, m -> new Object())) {
+      if (RepositoryMirror.UPDATED.contains(mirror)) {
+        return mirror;
+      }
+
+      this.mirrorDir.mkdirs();
+      File lockFile = new File(this.mirrorDir, mirror.getName() + ".lock");
+      try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+        if (new File(mirror, "HEAD").exists()) {
+          fetch(mirror);
+        } else {
+          clone(remote, mirror);
+        }
+      }
+      RepositoryMirror.UPDATED.add(mirror);
+    }
+    return mirror;
+  }
+
+  /**
+   * Fetches all references of the remote into the mirror.
+   *
+   * @param mirror
+   */
+  private void fetch(File mirror) throws GitAPIException, IOException {
+    try (Git git = Git.open(mirror)) {
+      git.fetch().setCredentialsProvider(this.credentials).setRemoveDeletedRefs(true)
+          .setProgressMonitor(this.monitor).call();
+    }
+  }
+
+  /**
+   * Clones the remote as bare mirror. The mirror is cloned into a temporary directory first, so
+   * that an aborted clone never leaves an incomplete mirror.
+   *
+   * @param remote
+   * @param mirror
+   */
+  private void clone(String remote, File mirror) throws GitAPIException, IOException {
+    File temp = new File(this.mirrorDir, mirror.getName() + ".tmp");
+    FileSystem.delete(temp);
+    try {
+      Git.cloneRepository().setURI(remote).setDirectory(temp).setBare(true).setMirror(true)
+          .setCredentialsProvider(this.credentials).setProgressMonitor(this.monitor).call().close();
+      Files.move(temp.toPath(), mirror.toPath());
+    } finally {
+      FileSystem.delete(temp);
+    }
+  }
+}
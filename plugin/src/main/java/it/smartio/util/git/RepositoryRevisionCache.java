@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2001-2024 Territorium Online Srl / TOL GmbH. All Rights Reserved.
+ *
+ * This file contains Original Code and/or Modifications of Original Code as defined in and that are
+ * subject to the Territorium Online License Version 1.0. You may not use this file except in
+ * compliance with the License. Please obtain a copy of the License at http://www.tol.info/license/
+ * and read it before using this file.
+ *
+ * The Original Code and all software distributed under the License are distributed on an 'AS IS'
+ * basis, WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESS OR IMPLIED, AND TERRITORIUM ONLINE HEREBY
+ * DISCLAIMS ALL SUCH WARRANTIES, INCLUDING WITHOUT LIMITATION, ANY WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE, QUIET ENJOYMENT OR NON-INFRINGEMENT. Please see the License for
+ * the specific language governing rights and limitations under the License.
+ */
+
+package it.smartio.util.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@link RepositoryRevisionCache} persists the number of reachable commits and the nearest
+ * version tag per commit in the GIT directory. The number of commits never changes for a commit,
+ * the nearest tags are only valid as long as the tags of the repository are unchanged.
+ *
+ * The entries are kept in the order of their last use, also in the file, so that the least recently
+ * used entries are removed first, if the cache exceeds the maximum number of entries.
+ */
+class RepositoryRevisionCache {
+
+  private static final String FILENAME    = "smartio-revisions";
+  private static final int    MAX_ENTRIES = 1000;
+
+  private static final String TAGS        = "tags";
+  private static final String COUNT       = "count.";
+  private static final String TAG         = "tag.";
+
+
+  private final File                file;
+  private final Map<String, Long>   counts   = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, String> versions = new LinkedHashMap<>(16, 0.75f, true);
+
+  private String                    tags;
+  private boolean                   modified;
+
+  /**
+   * Constructs an instance of {@link RepositoryRevisionCache}.
+   *
+   * @param file
+   */
+  private RepositoryRevisionCache(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Gets the number of commits, reachable from the commit.
+   *
+   * @param id
+   */
+  public final Long getCount(AnyObjectId id) {
+    Long count = this.counts.get(id.getName());
+    this.modified |= (count != null); // Save the order of use
+    return count;
+  }
+
+  /**
+   * Sets the number of commits, reachable from the commit.
+   *
+   * @param id
+   * @param count
+   */
+  public final void setCount(AnyObjectId id, long count) {
+    this.counts.put(id.getName(), count);
+    this.modified = true;
+  }
+
+  /**
+   * Gets the version of the nearest tag, an empty text if there is no tag or <code>null</code> if
+   * not cached.
+   *
+   * @param id
+   */
+  public final String getVersion(AnyObjectId id) {
+    String version = this.versions.get(id.getName());
+    this.modified |= (version != null); // Save the order of use
+    return version;
+  }
+
+  /**
+   * Sets the version of the nearest tag.
+   *
+   * @param id
+   * @param version
+   */
+  public final void setVersion(AnyObjectId id, String version) {
+    this.versions.put(id.getName(), version);
+    this.modified = true;
+  }
+
+  /**
+   * Invalidates the nearest tags, if the tags of the repository have been changed.
+   *
+   * @param tags
+   */
+  public final void setTags(String tags) {
+    if (!tags.equals(this.tags)) {
+      this.tags = tags;
+      this.versions.clear();
+      this.modified = true;
+    }
+  }
+
+  /**
+   * Saves the cache, limited to a maximum number of entries.
+   */
+  public final void save() throws IOException {
+    if (!this.modified) {
+      return;
+    }
+
+    RepositoryRevisionCache.trim(this.counts);
+    RepositoryRevisionCache.trim(this.versions);
+
+    // Concurrent builds on the same repository never read a partially written cache
+    Path path = this.file.toPath();
+    Path temp = Files.createTempFile(path.getParent(), "." + this.file.getName(), ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        if (this.tags != null) {
+          RepositoryRevisionCache.write(writer, RepositoryRevisionCache.TAGS, this.tags);
+        }
+        for (Map.Entry<String, Long> entry : this.counts.entrySet()) {
+          RepositoryRevisionCache.write(writer, RepositoryRevisionCache.COUNT + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : this.versions.entrySet()) {
+          RepositoryRevisionCache.write(writer, RepositoryRevisionCache.TAG + entry.getKey(), entry.getValue());
+        }
+      }
+
+      try {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    this.modified = false;
+  }
+
+  /**
+   * Writes an entry as line.
+   *
+   * @param writer
+   * @param name
+   * @param value
+   */
+  private static void write(BufferedWriter writer, String name, Object value) throws IOException {
+    writer.write(name);
+    writer.write('=');
+    writer.write(value.toString());
+    writer.newLine();
+  }
+
+  /**
+   * Removes the least recently used entries from the map, until the maximum number of entries is reached.
+   *
+   * @param map
+   */
+  private static void trim(Map<String, ?> map) {
+    Iterator<String> iterator = map.keySet().iterator();
+    for (int size = map.size(); (size > RepositoryRevisionCache.MAX_ENTRIES) && iterator.hasNext(); size--) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Loads the {@link RepositoryRevisionCache} from the GIT directory.
+   *
+   * @param directory
+   */
+  public static RepositoryRevisionCache of(File directory) {
+    RepositoryRevisionCache cache = new RepositoryRevisionCache(new File(directory, RepositoryRevisionCache.FILENAME));
+    if (cache.file.exists()) {
+      try (BufferedReader reader = Files.newBufferedReader(cache.file.toPath(), StandardCharsets.UTF_8)) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          int index = line.indexOf('=');
+          if (line.startsWith("#") || (index < 0)) {
+            continue;
+          }
+
+          String name = line.substring(0, index);
+          String value = line.substring(index + 1);
+          if (name.equals(RepositoryRevisionCache.TAGS)) {
+            cache.tags = value;
+          } else if (name.startsWith(RepositoryRevisionCache.COUNT)) {
+            try {
+              cache.counts.put(name.substring(RepositoryRevisionCache.COUNT.length()), Long.parseLong(value));
+            } catch (NumberFormatException e) {}
+          } else if (name.startsWith(RepositoryRevisionCache.TAG)) {
+            cache.versions.put(name.substring(RepositoryRevisionCache.TAG.length()), value);
+          }
+        }
+      } catch (IOException e) {
+        cache.tags = null;
+        cache.counts.clear();
+        cache.versions.clear();
+      }
+    }
+    return cache;
+  }
+}
@@ -18,12 +18,15 @@ package it.smartio.util.git;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand.ListMode;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.eclipse.jgit.transport.CredentialsProvider;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -33,16 +36,22 @@ class RepositoryVerbose {
 
   private final Git                 repository;
   private final CredentialsProvider credentials;
+  private final ProgressMonitor     monitor;
+  private final AtomicInteger       completed = new AtomicInteger();
+
+  private volatile int              total;
 
   /**
    * Constructs an instance of {@link RepositoryVerbose}.
    *
    * @param repository
    * @param credentials
+   * @param monitor
    */
-  public RepositoryVerbose(Git repository, CredentialsProvider credentials) {
+  public RepositoryVerbose(Git repository, CredentialsProvider credentials, ProgressMonitor monitor) {
     this.repository = repository;
     this.credentials = credentials;
+    this.monitor = monitor;
   }
 
   /**
@@ -78,4 +87,32 @@ class RepositoryVerbose {
       }
     }
   }
+
+  /**
+   * Reports the start of the sub-modules. The {@link ProgressMonitor} is shared by the threads of
+   * the sub-modules.
+   *
+   * @param total
+   */
+  public final void onModules(int total) {
+    this.total = total;
+    this.completed.set(0);
+  }
+
+  /**
+   * Reports the completion of a sub-module, with the time elapsed in milliseconds. Each sub-module
+   * is reported as a task of the {@link ProgressMonitor}, that shows the progress of all sub-modules.
+   *
+   * @param location
+   * @param duration
+   * @param failed
+   */
+  public final void onModule(File location, long duration, boolean failed) {
+    synchronized (this.monitor) {
+      this.monitor.beginTask(String.format("Submodule %s %s in %d ms", location.getName(),
+          failed ? "failed" : "completed", duration), this.total);
+      this.monitor.update(this.completed.incrementAndGet());
+      this.monitor.endTask();
+    }
+  }
 }
@@ -16,34 +16,51 @@
 package it.smartio.util.git;
 
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.revwalk.RevWalkUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import it.smartio.util.version.Revision;
 import it.smartio.util.version.Version;
 
 /**
- * The {@link RepositoryVersion} class.
+ * The {@link RepositoryVersion} computes the {@link Revision} of a repository: the number of
+ * reachable commits as build number and the version of the nearest tag. The number of commits is
+ * only counted up to the nearest commit, that has already been counted before. The results are
+ * persisted with the {@link RepositoryRevisionCache}.
+ *
+ * The nearest tag is the reachable tag with the fewest commits between the tag and HEAD, like
+ * {@link org.eclipse.jgit.revwalk.RevWalkUtils#count}. For a reachable tag, this distance is the
+ * difference of the commit counts, so the tags are checked by descending count. Ties, including
+ * several tags on the same commit, are resolved by the order of {@link Version}, which is the
+ * highest version first.
  */
 abstract class RepositoryVersion {
 
   private static final Pattern PATTERN = Pattern.compile(
       "(?<major>\\d+)[./](?<minor>\\d+)(?:[./](?<patch>\\d+))?(?:-(?<name>[a-zA-Z0-9.]+))?(?:\\+(?<build>[a-zA-Z0-9.]+))?");
 
+  private static final int     LOOKUP  = 10000;
+
 
   /**
    * Constructs an instance of {@link RepositoryVersion}.
@@ -61,121 +78,195 @@ abstract class RepositoryVersion {
   }
 
   /**
-   * Count the number of commits {@link #getCount}.
+   * Count the number of commits reachable from HEAD.
    *
    * @param git
    */
-  public static long getCommitCount(Git git) throws GitAPIException {
-    return StreamSupport.stream(git.log().call().spliterator(), false).count();
+  public static long getCommitCount(Git git) throws IOException {
+    org.eclipse.jgit.lib.Repository repository = git.getRepository();
+    RepositoryRevisionCache cache = RepositoryRevisionCache.of(repository.getDirectory());
+    long count = RepositoryVersion.getCommitCount(repository, repository.resolve("HEAD"), cache);
+    cache.save();
+    return count;
   }
 
   /**
-   * Get all reachable tags, ordered by version number.
+   * Count the number of commits reachable from the commit. If an ancestor has been counted before,
+   * only the commits that are not reachable from the ancestor are counted. The history of a shallow
+   * clone is incomplete, so that only the available commits are counted and not cached.
    *
-   * @param git
-   * @param version
+   * @param repository
+   * @param commitId
+   * @param cache
    */
-  public static Revision getRevision(Git git, Version version) throws IOException {
-    String branch = git.getRepository().getBranch();
-    ObjectId refId = git.getRepository().resolve("HEAD");
+  private static long getCommitCount(org.eclipse.jgit.lib.Repository repository, ObjectId commitId,
+      RepositoryRevisionCache cache) throws IOException {
+    Long cached = cache.getCount(commitId);
+    if (cached != null) {
+      return cached;
+    }
 
-    try (RevWalk walk = new RevWalk(git.getRepository())) {
-      RevCommit revCommit = walk.parseCommit(refId);
-      OffsetDateTime time = RepositoryVersion.getTime(revCommit);
-      String hash = revCommit.getName().substring(0, 9);
-      long buildNumber = RepositoryVersion.getCommitCount(git);
+    RevCommit base = null;
+    try (RevWalk walk = new RevWalk(repository)) {
+      walk.setRetainBody(false);
+      walk.markStart(walk.parseCommit(commitId));
+      int visited = 0;
+      for (RevCommit commit : walk) {
+        if (cache.getCount(commit) != null) {
+          base = commit;
+          break;
+        }
+        if (++visited > RepositoryVersion.LOOKUP) {
+          break;
+        }
+      }
+    }
 
-      if (Version.NONE.equals(version)) {
-        Stream<TagInfo> stream = RepositoryVersion.getTags(git, revCommit, walk).stream();
-        version = stream.map(tag -> tag.getVersion()).findFirst().orElse(Version.of(0, 0));
+    long count = (base == null) ? 0 : cache.getCount(base);
+    try (RevWalk walk = new RevWalk(repository)) {
+      walk.setRetainBody(false);
+      walk.markStart(walk.parseCommit(commitId));
+      if (base != null) {
+        walk.markUninteresting(walk.parseCommit(base));
       }
+      for (Iterator<RevCommit> iterator = walk.iterator(); iterator.hasNext(); iterator.next()) {
+        count++;
+      }
+    }
 
-      return new Revision(hash, time, version.build(buildNumber).preRelease(branch));
-    } catch (GitAPIException e) {
-      throw new IOException("Revision is not available on GIT", e);
+    if (!RepositoryVersion.isShallow(repository)) {
+      cache.setCount(commitId, count);
     }
+    return count;
   }
 
+  /**
+   * Returns <code>true</code> if the repository is a shallow clone.
+   *
+   * @param repository
+   */
+  private static boolean isShallow(org.eclipse.jgit.lib.Repository repository) {
+    return new File(repository.getDirectory(), "shallow").exists();
+  }
 
   /**
-   * Get all reachable tags, ordered by version number.
+   * Get the key of the tags of the repository.
    *
-   * @param git
-   * @param rev
+   * @param repository
+   */
+  private static String getTagsKey(org.eclipse.jgit.lib.Repository repository) throws IOException {
+    StringBuilder tags = new StringBuilder();
+    repository.getRefDatabase().getRefsByPrefix(Constants.R_TAGS).stream()
+        .sorted(Comparator.comparing(Ref::getName))
+        .forEach(r -> tags.append(r.getName()).append('=').append(r.getObjectId().getName()).append('\n'));
+
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return ObjectId.fromRaw(digest.digest(tags.toString().getBytes(StandardCharsets.UTF_8))).getName();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Get the version tags by the commit they point to. If a commit has several version tags, the
+   * highest version is used.
+   *
+   * @param repository
    * @param walk
    */
-  private static Collection<TagInfo> getTags(Git git, RevCommit rev, RevWalk walk) throws GitAPIException {
-    return git.tagList().call().stream().map(tag -> {
+  private static Map<ObjectId, Version> getVersionTags(org.eclipse.jgit.lib.Repository repository, RevWalk walk)
+      throws IOException {
+    Map<ObjectId, Version> tags = new HashMap<>();
+    for (Ref ref : repository.getRefDatabase().getRefsByPrefix(Constants.R_TAGS)) {
       try {
-        RevCommit tagCommit = walk.parseCommit(tag.getObjectId());
-        if (walk.isMergedInto(tagCommit, rev)) {
-          Version version = Version.parse(tag.getName(), RepositoryVersion.PATTERN);
-          int count = RevWalkUtils.count(walk, rev, tagCommit);
-          return new TagInfo(tag, count, version);
+        Version version = Version.parse(ref.getName(), RepositoryVersion.PATTERN);
+        RevObject object = walk.peel(walk.parseAny(ref.getObjectId()));
+        if (object instanceof RevCommit) {
+          tags.merge(object.copy(), version, (a, b) -> (a.compareTo(b) <= 0) ? a : b);
         }
-      } catch (Exception e) {
-        System.err.println(e.getMessage());
+      } catch (IllegalArgumentException | IOException e) {
+        // Not a version tag
       }
-      return new TagInfo(tag, -1, null);
-    }).filter(i -> i.count != -1).sorted().collect(Collectors.toList());
+    }
+    return tags;
   }
 
-
   /**
-   * The {@link TagInfo} class.
+   * Get the version of the nearest tag, reachable from the commit.
+   *
+   * @param repository
+   * @param commitId
+   * @param cache
    */
-  public static class TagInfo implements Comparable<TagInfo> {
-
-    private final Ref     ref;
-    private final int     count;
-    private final Version version;
-
-    /**
-     * Constructs an instance of {@link TagInfo}.
-     *
-     * @param ref
-     */
-    private TagInfo(Ref ref) {
-      this(ref, -1, null);
-    }
+  private static Version getNearestVersion(org.eclipse.jgit.lib.Repository repository, ObjectId commitId,
+      RepositoryRevisionCache cache) throws IOException {
+    cache.setTags(RepositoryVersion.getTagsKey(repository));
 
-    /**
-     * Constructs an instance of {@link TagInfo}.
-     *
-     * @param ref
-     * @param count
-     * @param version
-     */
-    private TagInfo(Ref ref, int count, Version version) {
-      this.ref = ref;
-      this.count = count;
-      this.version = version;
+    String cached = cache.getVersion(commitId);
+    if (cached != null) {
+      return cached.isEmpty() ? null : Version.of(cached);
     }
 
-    /**
-     * Gets the {@link #ref}.
-     */
-    public final Ref getRef() {
-      return this.ref;
-    }
+    Version version = null;
+    long count = RepositoryVersion.getCommitCount(repository, commitId, cache);
+    try (RevWalk walk = new RevWalk(repository)) {
+      walk.setRetainBody(false);
+      Map<ObjectId, Version> tags = RepositoryVersion.getVersionTags(repository, walk);
 
-    /**
-     * Gets the {@link #ref}.
-     */
-    public final String getName() {
-      return getRef().getName();
-    }
+      // Count the oldest commits first, so that the newer are counted incrementally
+      List<RevCommit> commits = new ArrayList<>();
+      for (ObjectId tagId : tags.keySet()) {
+        commits.add(walk.parseCommit(tagId));
+      }
+      commits.sort(Comparator.comparingInt(RevCommit::getCommitTime));
+      Map<ObjectId, Long> counts = new HashMap<>();
+      for (RevCommit commit : commits) {
+        counts.put(commit, RepositoryVersion.getCommitCount(repository, commit, cache));
+      }
 
-    /**
-     * Gets the {@link #version}.
-     */
-    public final Version getVersion() {
-      return this.version;
+      // Only an ancestor with fewer commits, or the commit itself, can be reachable
+      commits.sort(Comparator.comparing((RevCommit c) -> counts.get(c)).reversed().thenComparing(c -> tags.get(c)));
+      RevCommit head = walk.parseCommit(commitId);
+      for (RevCommit commit : commits) {
+        long distance = count - counts.get(commit);
+        if ((distance > 0 || commit.equals(head)) && walk.isMergedInto(commit, head)) {
+          version = tags.get(commit);
+          break;
+        }
+      }
     }
 
-    @Override
-    public int compareTo(TagInfo o) {
-      return (this.count == o.count) ? this.version.compareTo(o.version) : Integer.compare(this.count, o.count);
+    cache.setVersion(commitId, (version == null) ? "" : version.toString());
+    return version;
+  }
+
+  /**
+   * Get the {@link Revision} of the HEAD. If no version is provided, the version of the nearest
+   * tag is used.
+   *
+   * @param git
+   * @param version
+   */
+  public static Revision getRevision(Git git, Version version) throws IOException {
+    org.eclipse.jgit.lib.Repository repository = git.getRepository();
+    String branch = repository.getBranch();
+    ObjectId refId = repository.resolve("HEAD");
+
+    RepositoryRevisionCache cache = RepositoryRevisionCache.of(repository.getDirectory());
+    try (RevWalk walk = new RevWalk(repository)) {
+      RevCommit revCommit = walk.parseCommit(refId);
+      OffsetDateTime time = RepositoryVersion.getTime(revCommit);
+      String hash = revCommit.getName().substring(0, 9);
+      long buildNumber = RepositoryVersion.getCommitCount(repository, refId, cache);
+
+      if (Version.NONE.equals(version)) {
+        Version nearest = RepositoryVersion.getNearestVersion(repository, refId, cache);
+        version = (nearest == null) ? Version.of(0, 0) : nearest;
+      }
+
+      cache.save();
+      return new Revision(hash, time, version.build(buildNumber).preRelease(branch));
     }
   }
 }
@@ -0,0 +1,131 @@
+
+package it.smartio.common.env;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+public class EnvironmentTemplateTest {
+
+  private static final Pattern PARAMS = Pattern.compile("\\$([0-9]+|[a-z][a-z_0-9]*)", Pattern.CASE_INSENSITIVE);
+
+  private static final String  CHARS  = "$${}()-:_aZ09 \n";
+
+
+  private static Environment environment() {
+    Map<String, String> map = new HashMap<>();
+    map.put("1", "one");
+    map.put("12", "twelve");
+    map.put("name", "value");
+    map.put("Name_2", "$name");
+    map.put("a", "");
+    map.put("Z", "{z}");
+    return Environment.of(map);
+  }
+
+  /**
+   * The regex implementation of {@link EnvironmentUtil#replace} before the templates.
+   */
+  private static String replace(String pattern, Environment environment) {
+    StringBuffer buffer = new StringBuffer();
+    int offset = 0;
+
+    Matcher matcher = EnvironmentTemplateTest.PARAMS.matcher(pattern);
+    while (matcher.find()) {
+      String name = matcher.group(1);
+      String value = environment.get(name);
+      buffer.append(pattern.substring(offset, matcher.start(1) - 1));
+      if (value == null) {
+        buffer.append("$" + name);
+      } else {
+        buffer.append(value);
+      }
+      offset = matcher.end(1);
+    }
+    buffer.append(pattern.substring(offset, pattern.length()));
+    return buffer.toString();
+  }
+
+  private static void assertEquivalent(String pattern, Environment environment) {
+    Assertions.assertEquals(EnvironmentTemplateTest.replace(pattern, environment),
+        EnvironmentUtil.replace(pattern, environment), pattern);
+    Assertions.assertEquals(EnvironmentTemplateTest.replace(pattern, environment),
+        EnvironmentTemplate.compile(pattern).render(environment, new StringBuilder()).toString(), pattern);
+  }
+
+  @Test
+  public void testPlaceholders() {
+    Environment environment = EnvironmentTemplateTest.environment();
+    Assertions.assertEquals("value-one-twelve", EnvironmentUtil.replace("$name-$1-$12", environment));
+    Assertions.assertEquals("$name", EnvironmentUtil.replace("$Name_2", environment));
+    Assertions.assertEquals("$unknown/$3", EnvironmentUtil.replace("$unknown/$3", environment));
+    Assertions.assertEquals("one2x", EnvironmentUtil.replace("$1x", Environment.of(map("1x", "-", "1", "one2"))));
+
+    String[] patterns = { "", "$", "$$", "$$name", "name$", "$_name", "$-", "$1name", "$name$", "$name_$a$Z",
+        "${name}", "${${name}}", "{$name}", "${name:-default}", "$name:-default", "${unknown:-$name}",
+        "${a${Z}}", "$(name)", "\\$name", "$$$1$$", "$NAME", "$ä", "€$name€" };
+    for (String pattern : patterns) {
+      EnvironmentTemplateTest.assertEquivalent(pattern, environment);
+    }
+  }
+
+  @Test
+  public void testRandom() {
+    Environment environment = EnvironmentTemplateTest.environment();
+    Random random = new Random(4711);
+    for (int i = 0; i < 20000; i++) {
+      StringBuilder pattern = new StringBuilder();
+      for (int c = random.nextInt(24); c > 0; c--) {
+        pattern.append(random.nextInt(4) == 0 ? "$name"
+            : EnvironmentTemplateTest.CHARS.charAt(random.nextInt(EnvironmentTemplateTest.CHARS.length())));
+      }
+      EnvironmentTemplateTest.assertEquivalent(pattern.toString(), environment);
+    }
+  }
+
+  @Test
+  public void testConstant() {
+    Assertions.assertTrue(EnvironmentTemplate.compile("no $ placeholder").isConstant());
+    Assertions.assertFalse(EnvironmentTemplate.compile("a $name").isConstant());
+  }
+
+  @Test
+  public void testLargePattern() {
+    Environment environment = EnvironmentTemplateTest.environment();
+    StringBuilder pattern = new StringBuilder();
+    while (pattern.length() <= 1024) {
+      pattern.append("key=$name, ${1}, $unknown\n");
+    }
+    EnvironmentTemplateTest.assertEquivalent(pattern.toString(), environment);
+
+    // Large texts are compiled on each call, short patterns are cached
+    Assertions.assertNotSame(EnvironmentTemplate.of(pattern.toString()), EnvironmentTemplate.of(pattern.toString()));
+    Assertions.assertSame(EnvironmentTemplate.of("$name"), EnvironmentTemplate.of("$name"));
+  }
+
+  @Test
+  public void testCacheClear() {
+    EnvironmentTemplate template = EnvironmentTemplate.of("cached $name");
+    for (int i = 0; i <= 4096; i++) {
+      Assertions.assertEquals("value" + i, EnvironmentTemplate.of("$name" + i)
+          .render(Environment.of(map("name" + i, "value" + i))));
+    }
+    Assertions.assertNotSame(template, EnvironmentTemplate.of("cached $name"));
+    Assertions.assertEquals("cached value", EnvironmentTemplate.of("cached $name")
+        .render(EnvironmentTemplateTest.environment()));
+  }
+
+  private static Map<String, String> map(String... values) {
+    Map<String, String> map = new HashMap<>();
+    for (int i = 0; i < values.length; i += 2) {
+      map.put(values[i], values[i + 1]);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,88 @@
+
+package it.smartio.common.task.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.smartio.common.env.Environment;
+import it.smartio.gradle.pipeline.TestContext;
+import it.smartio.util.env.OS;
+
+
+public class ProcessWorkerTest {
+
+  @TempDir
+  File workingDir;
+
+  private static Map<String, String> getEnvironment() {
+    Map<String, String> environment = new HashMap<>();
+    environment.put("PATH", System.getenv("PATH"));
+    return environment;
+  }
+
+  @Test
+  public void testEnvironment() throws IOException, InterruptedException {
+    if (OS.isWindows()) {
+      return;
+    }
+
+    // Names, that aren't valid identifiers of the shell, are passed to the command too
+    Map<String, String> environment = ProcessWorkerTest.getEnvironment();
+    environment.put("BASH_FUNC_test%%", "() {  echo test\n}");
+    environment.put("VALUE", "it's a \"value\"");
+    ProcessWorker worker = ProcessWorker.acquire();
+    try (TestContext context = new TestContext(this.workingDir, Environment.empty())) {
+      int exitCode = worker.exec(Arrays.asList("sh", "-c", "printf %s \"$VALUE\" > value.txt"), this.workingDir,
+          environment, context.getLogger());
+      Assertions.assertEquals(0, exitCode);
+    } finally {
+      ProcessWorker.release(worker);
+    }
+    byte[] bytes = Files.readAllBytes(new File(this.workingDir, "value.txt").toPath());
+    Assertions.assertEquals("it's a \"value\"", new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testShutdown() throws IOException, InterruptedException, ExecutionException {
+    if (OS.isWindows()) {
+      return;
+    }
+
+    ProcessWorker busy = ProcessWorker.acquire();
+    ProcessWorker idle = ProcessWorker.acquire();
+    ProcessWorker.release(idle);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (TestContext context = new TestContext(this.workingDir, Environment.empty())) {
+      Future<Integer> exitCode = executor.submit(() -> busy.exec(Arrays.asList("sleep", "1"), this.workingDir,
+          ProcessWorkerTest.getEnvironment(), context.getLogger()));
+      Thread.sleep(200);
+
+      // Only the idle worker is terminated, the busy one completes its command
+      ProcessWorker.shutdown();
+      Assertions.assertEquals(0, exitCode.get().intValue());
+      Assertions.assertTrue(busy.isAlive());
+      for (int i = 0; idle.isAlive() && (i < 100); i++) {
+        Thread.sleep(50);
+      }
+      Assertions.assertFalse(idle.isAlive());
+    } finally {
+      executor.shutdown();
+      ProcessWorker.release(busy);
+      ProcessWorker.shutdown();
+    }
+  }
+}
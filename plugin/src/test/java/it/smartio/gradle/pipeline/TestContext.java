@@ -24,6 +24,11 @@ public class TestContext extends TaskContextAsync {
       TestContext.this.redirectStreams(input, error);
     }
 
+    @Override
+    public void onRedirect(String prefix, InputStream input, InputStream error) {
+      TestContext.this.redirectStreams(prefix, input, error);
+    }
+
     @Override
     public void onInfo(String message, Object... arguments) {
       System.out.println(String.format(message.replace("{}", "%s"), arguments));
@@ -0,0 +1,219 @@
+
+package it.smartio.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.common.task.Task;
+import it.smartio.gradle.Arguments;
+import it.smartio.gradle.pipeline.TestContext;
+import it.smartio.task.shell.ShellTask;
+import it.smartio.util.env.OS;
+
+
+public class TaskSchedulerTest {
+
+  @TempDir
+  File workingDir;
+
+  private void handle(TaskBuilder builder) throws IOException {
+    try (TestContext context = new TestContext(this.workingDir, Environment.empty())) {
+      builder.build().handle(context);
+    }
+  }
+
+  private static Task sleep(long millis, AtomicInteger running, AtomicInteger maximum) {
+    return c -> {
+      maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } finally {
+        running.decrementAndGet();
+      }
+    };
+  }
+
+  @Test
+  public void testAfter() throws IOException {
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    TaskBuilder builder = new TaskBuilder("test").setParallel(4);
+    TaskBuilder stage = builder.addTask("stage");
+    stage.addTask("a", c -> order.add("a")).after("b");
+    stage.addTask("b", c -> order.add("b"));
+    stage.addTask("c", c -> order.add("c")).after("a", "unknown");
+    handle(builder);
+
+    Assertions.assertEquals(Arrays.asList("b", "a", "c"), order);
+  }
+
+  @Test
+  public void testCycle() {
+    TaskBuilder builder = new TaskBuilder("test").setParallel(2);
+    builder.addTask("a", c -> {}).after("b");
+    builder.addTask("b", c -> {}).after("a");
+
+    Assertions.assertThrows(RuntimeException.class, () -> handle(builder));
+  }
+
+  @Test
+  public void testGlobalLimit() throws IOException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+
+    TaskBuilder builder = new TaskBuilder("test").setParallel(2);
+    for (int s = 0; s < 3; s++) {
+      TaskBuilder stage = builder.addTask("stage" + s);
+      for (int t = 0; t < 3; t++) {
+        stage.addTask("nested" + t).addTask("task", TaskSchedulerTest.sleep(100, running, maximum));
+      }
+    }
+    handle(builder);
+
+    Assertions.assertEquals(2, maximum.get());
+  }
+
+  @Test
+  public void testFailFast() throws InterruptedException {
+    CountDownLatch interrupted = new CountDownLatch(1);
+    AtomicBoolean started = new AtomicBoolean();
+
+    TaskBuilder builder = new TaskBuilder("test").setParallel(2);
+    builder.addTask("slow", c -> {
+      try {
+        Thread.sleep(30000);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    builder.addTask("fail", c -> {
+      throw new IOException("failed");
+    });
+    builder.addTask("later", c -> started.set(true)).after("fail");
+
+    long time = System.currentTimeMillis();
+    Assertions.assertThrows(RuntimeException.class, () -> handle(builder));
+    Assertions.assertTrue(System.currentTimeMillis() - time < 10000);
+    Assertions.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    Assertions.assertFalse(started.get());
+  }
+
+  @Test
+  public void testCancelProcess() throws IOException, InterruptedException {
+    if (OS.isWindows()) {
+      return;
+    }
+
+    File pidFile = new File(this.workingDir, "pid");
+    Map<String, Object> args = new HashMap<>();
+    args.put("command", new ArrayList<>(
+        Arrays.asList("sh", "-c", String.format("sleep 60 & echo $! > %s; wait", pidFile.getAbsolutePath()))));
+    args.put("workingDir", ".");
+
+    TaskBuilder builder = new TaskBuilder("test").setParallel(2);
+    builder.addTask("shell", new ShellTask(new Arguments(args), this.workingDir));
+    builder.addTask("fail", c -> {
+      try {
+        for (int i = 0; (i < 100) && (pidFile.length() == 0); i++) {
+          Thread.sleep(50);
+        }
+      } catch (InterruptedException e) {}
+      throw new IOException("failed");
+    });
+    Assertions.assertThrows(RuntimeException.class, () -> handle(builder));
+
+    // The cancelled task terminates the process tree asynchronously
+    String pid = new String(Files.readAllBytes(pidFile.toPath()), StandardCharsets.US_ASCII).trim();
+    boolean alive = true;
+    for (int i = 0; alive && (i < 100); i++) {
+      alive = new ProcessBuilder("kill", "-0", pid).start().waitFor() == 0;
+      Thread.sleep(50);
+    }
+    Assertions.assertFalse(alive);
+  }
+
+  @Test
+  public void testSequential() throws IOException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+
+    TaskBuilder builder = new TaskBuilder("test");
+    builder.addTask("a", TaskSchedulerTest.sleep(20, running, maximum));
+    builder.addTask("b", TaskSchedulerTest.sleep(20, running, maximum));
+    handle(builder);
+
+    Assertions.assertEquals(1, maximum.get());
+  }
+
+  /**
+   * Builds a pipeline with two tasks of the same name, the first reads a variable and the second
+   * fails on the first execution.
+   *
+   * @param journal
+   * @param counts
+   * @param fail
+   */
+  private static TaskBuilder createJournaled(TaskJournal journal, int[] counts, AtomicBoolean fail) {
+    TaskBuilder builder = new TaskBuilder("test").setJournal(journal);
+    TaskBuilder stage = builder.addTask("stage");
+    stage.addTask("task", c -> counts[0] += c.getEnvironment().get("VALUE").length());
+    stage.addTask("task", c -> {
+      counts[1]++;
+      if (fail.getAndSet(false)) {
+        throw new IOException("failed");
+      }
+    });
+    return builder;
+  }
+
+  @Test
+  public void testJournal() throws IOException {
+    Map<String, String> map = new HashMap<>();
+    map.put(Build.BUILD_DIR, new File(this.workingDir, "build").getAbsolutePath());
+    map.put(Build.GIT_HASH, "hash");
+    map.put("VALUE", "1");
+
+    int[] counts = new int[2];
+    AtomicBoolean fail = new AtomicBoolean(true);
+    try (TestContext context = new TestContext(this.workingDir, Environment.of(map))) {
+      TaskJournal journal = TaskJournal.of("test", Environment.of(map), false);
+      Task task = TaskSchedulerTest.createJournaled(journal, counts, fail).build();
+      Assertions.assertThrows(RuntimeException.class, () -> task.handle(context));
+      Assertions.assertArrayEquals(new int[] { 1, 1 }, counts);
+    }
+
+    // Only the failed task is executed again, although both tasks have the same name
+    try (TestContext context = new TestContext(this.workingDir, Environment.of(map))) {
+      TaskJournal journal = TaskJournal.of("test", Environment.of(map), true);
+      TaskSchedulerTest.createJournaled(journal, counts, fail).build().handle(context);
+      Assertions.assertArrayEquals(new int[] { 1, 2 }, counts);
+    }
+
+    // A changed variable only affects the task, that has read it
+    map.put("VALUE", "22");
+    try (TestContext context = new TestContext(this.workingDir, Environment.of(map))) {
+      TaskJournal journal = TaskJournal.of("test", Environment.of(map), true);
+      TaskSchedulerTest.createJournaled(journal, counts, fail).build().handle(context);
+      Assertions.assertArrayEquals(new int[] { 3, 2 }, counts);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+
+package it.smartio.task.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+
+
+public class PropertyFileTest {
+
+  private static final String[] LINES = { "GIT_VERSION = 1.0.0\n", "Implementation-Version: 1.0.0\n",
+      "<manifest android:versionCode=\"636\">\n", "<key>CFBundleVersion</key>\n  <string>22.02.0</string>\n",
+      "<finalName>app-1.2.3</finalName>\n", "<Version-Number>1.0</Version-Number>\n", "BUILD_NUMBER = 3\n",
+      "Item {\n  customServer: \"server\"\n}\n", "Build-Number: 3\n", "Version {{VERSION}} and {{VERSION;0.0.0}}\n" };
+
+  // Characters encoded with 1 to 4 bytes in UTF-8
+  private static final int[]    FILLER = { 'a', 'b', ' ', 0xE9, 0x20AC, 0x1F600 };
+
+  @TempDir
+  File tempDir;
+
+  private static Environment getEnvironment() {
+    Map<String, String> map = new HashMap<>();
+    map.put(Build.GIT_VERSION, "3.4.5");
+    map.put(Build.BUILDNUMBER, "77");
+    map.put(Build.GIT_HASH, "hash");
+    map.put(Build.GIT_DATE, "date");
+    map.put(Build.ANDROID_ID, "it.smartio.app");
+    map.put(Build.PRODUCT_RESOURCE, "resource");
+    return Environment.of(map);
+  }
+
+  private static void appendFiller(StringBuilder content, Random random, int length) {
+    for (int index = 0; index < length; index++) {
+      content.appendCodePoint(PropertyFileTest.FILLER[random.nextInt(PropertyFileTest.FILLER.length)]);
+    }
+  }
+
+  /**
+   * Creates a content larger than 8 MB. The lines with properties are followed by a single line
+   * without any line break, that spans several chunks of the stream and contains templates at any
+   * offset of the chunks.
+   */
+  private static String createContent() {
+    Random random = new Random(4711);
+    StringBuilder content = new StringBuilder(10 << 20);
+    while (content.length() < (6 << 20)) {
+      PropertyFileTest.appendFiller(content, random, random.nextInt(200));
+      content.append("\n");
+      content.append(PropertyFileTest.LINES[random.nextInt(PropertyFileTest.LINES.length)]);
+    }
+    while (content.length() < (9 << 20)) {
+      PropertyFileTest.appendFiller(content, random, random.nextInt(2000));
+      content.append("{{VERSION}}");
+    }
+    content.append("\n");
+    content.append(String.join("", PropertyFileTest.LINES));
+    return content.toString();
+  }
+
+  private static List<String> toList(ChangeSet changes) {
+    return changes.getChanges().stream()
+        .map(c -> String.format("%s %s %s %d %d", c.PROPERTY, c.OLD_VALUE, c.NEW_VALUE, c.OFFSET, c.LENGTH))
+        .collect(Collectors.toList());
+  }
+
+  private static String replace(String content, List<Replacer> replacers, ChangeSet changes) {
+    for (Replacer replacer : replacers) {
+      content = replacer.replace(content, PropertyFileTest.getEnvironment(), changes);
+    }
+    return content;
+  }
+
+  private File write(String name, byte[] bytes) throws IOException {
+    File file = new File(this.tempDir, name);
+    Files.write(file.toPath(), bytes);
+    return file;
+  }
+
+  @Test
+  public void testStreaming() throws IOException {
+    String input = PropertyFileTest.createContent();
+    Environment environment = PropertyFileTest.getEnvironment();
+    for (Replacer replacer : ReplacerBuilder.DEFAULTS) {
+      ChangeSet changes = new ChangeSet();
+      ChangeSet expected = new ChangeSet();
+      StringWriter writer = new StringWriter(input.length() + 1024);
+      replacer.replace(new StringReader(input), writer, environment, changes);
+
+      String name = replacer.getClass().getSimpleName();
+      Assertions.assertEquals(replacer.replace(input, environment, expected), writer.toString(), name);
+      Assertions.assertEquals(PropertyFileTest.toList(expected), PropertyFileTest.toList(changes), name);
+      Assertions.assertFalse(changes.isEmpty(), name);
+    }
+  }
+
+  @Test
+  public void testReplaceLarge() throws IOException {
+    String input = PropertyFileTest.createContent();
+    byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+    File file = write("large.txt", bytes);
+    Assertions.assertTrue(PropertyFile.isLarge(file));
+
+    // The replacers are applied in sequence, each one to the content of the previous one
+    List<Replacer> replacers = new ArrayList<>(Arrays.asList(ReplacerBuilder.DEFAULTS));
+    replacers.removeIf(r -> r instanceof ReplacerBuilder.QMake);
+    ChangeSet expected = new ChangeSet();
+    String output = PropertyFileTest.replace(input, replacers, expected);
+
+    // A dry run doesn't touch the file
+    ChangeSet changes = PropertyFile.replace(file, replacers, PropertyFileTest.getEnvironment(), true);
+    Assertions.assertEquals(PropertyFileTest.toList(expected), PropertyFileTest.toList(changes));
+    Assertions.assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+
+    changes = PropertyFile.replace(file, replacers, PropertyFileTest.getEnvironment(), false);
+    Assertions.assertEquals(PropertyFileTest.toList(expected), PropertyFileTest.toList(changes));
+    Assertions.assertEquals(output, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+    // Without any change the file is never written
+    Path path = file.toPath();
+    FileTime time = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(path, time);
+    Object key = Files.readAttributes(path, "unix:ino").get("ino");
+    Assertions.assertTrue(PropertyFile.replace(file, replacers, PropertyFileTest.getEnvironment(), false).isEmpty());
+    Assertions.assertEquals(time, Files.getLastModifiedTime(path));
+    Assertions.assertEquals(key, Files.readAttributes(path, "unix:ino").get("ino"));
+    Assertions.assertEquals(Arrays.asList("large.txt"), Arrays.asList(this.tempDir.list()));
+  }
+
+  @Test
+  public void testReplaceEncoding() throws IOException {
+    List<Replacer> replacers = Arrays.asList(new ReplacerBuilder.JavaProperties());
+    String input = "é GIT_VERSION = 1.0\n";
+    File file = write("latin.txt", input.getBytes(StandardCharsets.ISO_8859_1));
+
+    ChangeSet changes = PropertyFile.replace(file, replacers, PropertyFileTest.getEnvironment(), false);
+    Assertions.assertEquals(StandardCharsets.ISO_8859_1, changes.getCharset());
+    Assertions.assertEquals(Arrays.asList("GIT_VERSION 1.0 3.04.5 16 6"), PropertyFileTest.toList(changes));
+    Assertions.assertArrayEquals("é GIT_VERSION = 3.04.5\n".getBytes(StandardCharsets.ISO_8859_1),
+        Files.readAllBytes(file.toPath()));
+  }
+
+  @Test
+  public void testCharset() throws IOException {
+    StringBuilder content = new StringBuilder();
+    PropertyFileTest.appendFiller(content, new Random(4711), 1000);
+    byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+
+    // Characters across the chunks are decoded with the next chunk, for any alignment
+    for (int shift = 0; shift < 4; shift++) {
+      byte[] shifted = new byte[bytes.length + shift];
+      Arrays.fill(shifted, 0, shift, (byte) 'x');
+      System.arraycopy(bytes, 0, shifted, shift, bytes.length);
+      Path path = write("utf8.txt", shifted).toPath();
+      for (int chunk = 4; chunk < 20; chunk++) {
+        Assertions.assertEquals(StandardCharsets.UTF_8, PropertyFile.getCharset(path, chunk), "" + chunk);
+      }
+
+      // An incomplete character at the end of the file
+      byte[] incomplete = Arrays.copyOf(shifted, shifted.length + 2);
+      incomplete[shifted.length] = (byte) 0xE2;
+      incomplete[shifted.length + 1] = (byte) 0x82;
+      path = write("incomplete.txt", incomplete).toPath();
+      for (int chunk = 4; chunk < 20; chunk++) {
+        Assertions.assertEquals(StandardCharsets.ISO_8859_1, PropertyFile.getCharset(path, chunk), "" + chunk);
+      }
+    }
+
+    // An invalid byte in the middle of the file
+    byte[] invalid = bytes.clone();
+    invalid[bytes.length / 2] = (byte) 0xFF;
+    Path path = write("invalid.txt", invalid).toPath();
+    Assertions.assertEquals(StandardCharsets.ISO_8859_1, PropertyFile.getCharset(path, 16));
+    Assertions.assertEquals(StandardCharsets.ISO_8859_1, PropertyFile.read(path.toFile()).getCharset());
+
+    Charset[] charsets = { StandardCharsets.UTF_16BE, StandardCharsets.UTF_16LE };
+    for (Charset charset : charsets) {
+      path = write("bom.txt", ("\uFEFF" + content).getBytes(charset)).toPath();
+      Assertions.assertEquals(charset, PropertyFile.getCharset(path, 16));
+      Assertions.assertEquals(charset, PropertyFile.read(path.toFile()).getCharset());
+    }
+  }
+}
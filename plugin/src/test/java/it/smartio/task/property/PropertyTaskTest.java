@@ -0,0 +1,227 @@
+
+package it.smartio.task.property;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.common.task.TaskContext;
+import it.smartio.gradle.pipeline.TestContext;
+
+
+public class PropertyTaskTest {
+
+  private static final String EMOJI = "\uD83D\uDE00";
+
+  @TempDir
+  File tempDir;
+
+  private TaskContext getContext(boolean dryRun) {
+    Map<String, String> map = new HashMap<>();
+    map.put(Build.GIT_VERSION, "3.4.5");
+    map.put(Build.BUILDNUMBER, "77");
+    map.put(Build.PROPERTY_DRY_RUN, Boolean.toString(dryRun));
+    map.put(Build.PROPERTY_REPORT, "report.json");
+    return new TestContext(this.tempDir, Environment.of(map));
+  }
+
+  /**
+   * Creates the task with several replacers for the same files. The last replacer changes the
+   * values of the first one again.
+   */
+  private static PropertyTask createTask() {
+    Replacer build = new Replacer("version.properties", "((GIT_BUILD)\\s+=\\s?)([^\\n]+)(\\n)") {
+
+      @Override
+      protected String getValue(String name, String value, Environment environment) {
+        return value + "-1";
+      }
+    };
+    return new PropertyTask(new ReplacerBuilder.JavaProperties(),
+        new ReplacerBuilder.TemplateReplacer("version.properties"), build);
+  }
+
+  private File write(String path, String content, Charset charset) throws IOException {
+    File file = new File(this.tempDir, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(charset));
+    Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(0));
+    return file;
+  }
+
+  private JsonObject readReport() throws IOException {
+    try (Reader reader = Files.newBufferedReader(new File(this.tempDir, "report.json").toPath());
+        JsonReader json = Json.createReader(reader)) {
+      return json.readObject();
+    }
+  }
+
+  private static String toString(JsonObject change) {
+    return String.format("%s %s %s %d %d", change.getString("property"),
+        change.isNull("oldValue") ? null : change.getString("oldValue"), change.getString("newValue"),
+        change.getJsonNumber("offset").longValue(), change.getJsonNumber("length").longValue());
+  }
+
+  /**
+   * Asserts that the offset and length of each change refer to its new value in the file. A change,
+   * that has been replaced by a later one, refers to the value of the later one.
+   *
+   * @param file
+   * @param charset
+   * @param changes
+   */
+  private static void assertOffsets(File file, Charset charset, JsonArray changes) throws IOException {
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    for (int index = 0; index < changes.size(); index++) {
+      JsonObject change = changes.getJsonObject(index);
+      int offset = change.getJsonNumber("offset").intValue();
+      int length = change.getJsonNumber("length").intValue();
+      String value = new String(bytes, offset, length, charset);
+      String expected = change.getString("newValue");
+      for (int next = index + 1; next < changes.size(); next++) {
+        JsonObject later = changes.getJsonObject(next);
+        if (later.getJsonNumber("offset").intValue() == offset) {
+          expected = later.getString("newValue");
+        }
+      }
+      Assertions.assertEquals(expected, value, PropertyTaskTest.toString(change));
+    }
+  }
+
+  @Test
+  public void testReport() throws IOException {
+    String text = "\uFEFF" + PropertyTaskTest.EMOJI + " GIT_VERSION = 1.0\nVERSION = {{VERSION}}\nGIT_BUILD = 1\n";
+    File bom = write("bom/version.properties", text, StandardCharsets.UTF_8);
+    File utf16 = write("utf16/version.properties", "\uFEFFé GIT_VERSION = 1.0\nGIT_BUILD = 1\n",
+        StandardCharsets.UTF_16LE);
+    File other = write("other/version.properties", "NOTHING = 1\n", StandardCharsets.UTF_8);
+
+    // A large file is streamed through the replacers
+    StringBuilder content = new StringBuilder();
+    for (int line = 0; content.length() < (8 << 20); line++) {
+      content.append(PropertyTaskTest.EMOJI).append(" é€ line ").append(line).append("\n");
+      if ((line % 1000) == 0) {
+        content.append("GIT_VERSION = 1.").append(line).append("\nVERSION = {{VERSION}}\nGIT_BUILD = 1\n");
+      }
+    }
+    File large = write("large/version.properties", content.toString(), StandardCharsets.UTF_8);
+    Assertions.assertTrue(PropertyFile.isLarge(large));
+
+    // A dry run reports the changes, but doesn't touch any file
+    File[] files = { bom, utf16, large, other };
+    byte[][] bytes = new byte[files.length][];
+    for (int index = 0; index < files.length; index++) {
+      bytes[index] = Files.readAllBytes(files[index].toPath());
+    }
+    PropertyTaskTest.createTask().handle(getContext(true));
+    JsonObject dryRun = readReport();
+    Assertions.assertTrue(dryRun.getBoolean("dryRun"));
+    for (int index = 0; index < files.length; index++) {
+      Assertions.assertArrayEquals(bytes[index], Files.readAllBytes(files[index].toPath()));
+      Assertions.assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(files[index].toPath()));
+    }
+    Assertions.assertEquals(1, this.tempDir.toPath().resolve("large").toFile().list().length);
+
+    PropertyTaskTest.createTask().handle(getContext(false));
+    JsonObject report = readReport();
+    Assertions.assertFalse(report.getBoolean("dryRun"));
+    Assertions.assertEquals(dryRun.getJsonArray("files"), report.getJsonArray("files"));
+    Assertions.assertArrayEquals(bytes[3], Files.readAllBytes(other.toPath()));
+
+    // The files are reported in the order they are found
+    Map<String, JsonObject> entries = new HashMap<>();
+    report.getJsonArray("files").forEach(f -> entries.put(((JsonObject) f).getString("file"), (JsonObject) f));
+    Assertions.assertEquals(new HashSet<>(Arrays.asList("bom/version.properties", "utf16/version.properties",
+        "large/version.properties")), entries.keySet());
+    Assertions.assertEquals("UTF-8", entries.get("bom/version.properties").getString("charset"));
+    Assertions.assertEquals("UTF-16LE", entries.get("utf16/version.properties").getString("charset"));
+    Assertions.assertEquals("UTF-8", entries.get("large/version.properties").getString("charset"));
+
+    // The offsets refer to the final content, after all replacers
+    JsonArray changes = entries.get("bom/version.properties").getJsonArray("changes");
+    Assertions.assertEquals(
+        Arrays.asList("GIT_VERSION 1.0 3.04.5 22 6", "GIT_BUILD 1 77 56 4", "VERSION null 3.04 39 4",
+            "GIT_BUILD 77 77-1 56 4"),
+        Arrays.asList(changes.stream().map(c -> PropertyTaskTest.toString((JsonObject) c)).toArray()));
+    text = "\uFEFF" + PropertyTaskTest.EMOJI + " GIT_VERSION = 3.04.5\nVERSION = 3.04\nGIT_BUILD = 77-1\n";
+    Assertions.assertEquals(text, new String(Files.readAllBytes(bom.toPath()), StandardCharsets.UTF_8));
+    PropertyTaskTest.assertOffsets(bom, StandardCharsets.UTF_8, changes);
+
+    changes = entries.get("utf16/version.properties").getJsonArray("changes");
+    Assertions.assertEquals(Arrays.asList("GIT_VERSION 1.0 3.04.5 34 12", "GIT_BUILD 1 77 72 8",
+        "GIT_BUILD 77 77-1 72 8"),
+        Arrays.asList(changes.stream().map(c -> PropertyTaskTest.toString((JsonObject) c)).toArray()));
+    PropertyTaskTest.assertOffsets(utf16, StandardCharsets.UTF_16LE, changes);
+
+    changes = entries.get("large/version.properties").getJsonArray("changes");
+    Assertions.assertTrue(changes.size() > 100);
+    PropertyTaskTest.assertOffsets(large, StandardCharsets.UTF_8, changes);
+  }
+
+  @Test
+  public void testReportMerged() throws Exception {
+    int count = 8;
+    for (int index = 0; index < count; index++) {
+      write("module" + index + "/version.properties", "GIT_VERSION = 1.0\n", StandardCharsets.UTF_8);
+    }
+
+    // The invocations of parallel stages merge their changes into the same report
+    ExecutorService executor = Executors.newFixedThreadPool(count);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int index = 0; index < count; index++) {
+        String pattern = "module" + index + "/version.properties";
+        futures.add(executor.submit(() -> {
+          new PropertyTask(new ReplacerBuilder.JavaProperties() {
+
+            @Override
+            public String getFilePattern() {
+              return pattern;
+            }
+          }).handle(getContext(false));
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Set<String> names = new HashSet<>();
+    readReport().getJsonArray("files").forEach(f -> names.add(((JsonObject) f).getString("file")));
+    Assertions.assertEquals(count, names.size());
+    for (int index = 0; index < count; index++) {
+      Assertions.assertTrue(names.contains("module" + index + "/version.properties"));
+    }
+
+    PropertyTask.resetReport(getContext(false).getEnvironment(), this.tempDir);
+    Assertions.assertFalse(new File(this.tempDir, "report.json").exists());
+  }
+}
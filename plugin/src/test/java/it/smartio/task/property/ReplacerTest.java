@@ -0,0 +1,148 @@
+
+package it.smartio.task.property;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import it.smartio.build.Build;
+import it.smartio.common.env.Environment;
+import it.smartio.task.product.Branding;
+
+
+public class ReplacerTest {
+
+  private static final List<String> SAMPLES = Arrays.asList("GIT_VERSION = 1.0.0\nGIT_BUILD = 12\nOTHER = x\n",
+      "Manifest-Version: 1.0\nImplementation-Version: 1.0.0\n",
+      "<manifest package=\"info.tol.fm\" android:versionName=\"22.02.1\" android:versionCode=\"636\">\n",
+      "<key>CFBundleVersion</key>\n  <string>22.02.0</string>\n<key>bundle-version</key><string>1</string>\n",
+      "<finalName>app-1.2.3</finalName>\n", "<Version-Number>1.0</Version-Number>\n<Version-Id>abc</Version-Id>\n",
+      "BUILD_VERSION = 1.0\nBUILD_NUMBER = 3\nGIT_VERSION = 2.0\n",
+      "Item {\n  customServer: \"server\"\n  customModel : \"model\"\n}\n", "Version-Id: a\nBuild-Number: 3\n",
+      "Version {{VERSION}} and {{VERSION;0.0.0}}\n", "Nothing to replace\n", "");
+
+  private static Environment getEnvironment() {
+    Map<String, String> map = new HashMap<>();
+    map.put(Build.GIT_VERSION, "3.4.5");
+    map.put(Build.BUILDNUMBER, "77");
+    map.put(Build.GIT_HASH, "hash");
+    map.put(Build.GIT_DATE, "date");
+    map.put(Build.ANDROID_ID, "it.smartio.app");
+    map.put(Build.IOS_EXPORT_ID, "it.smartio.ios");
+    map.put(Build.PRODUCT_RESOURCE, "resource");
+    map.put(Build.PRODUCT_MODEL, "model");
+    map.put(Branding.NAME, "name");
+    map.put("BUILD_VERSION", "3.4");
+    return Environment.of(map);
+  }
+
+  /**
+   * Creates a {@link Replacer} with the same pattern and values, but without keys. The inline flag
+   * doesn't change the matches.
+   *
+   * @param replacer
+   */
+  private static Replacer withoutKeys(Replacer replacer) {
+    return new Replacer("*", "(?-i)" + replacer.getPattern().pattern()) {
+
+      @Override
+      protected String getValue(String name, String value, Environment environment) {
+        return replacer.getValue(name, value, environment);
+      }
+    };
+  }
+
+  private static List<String> toList(ChangeSet changes) {
+    return changes.getChanges().stream()
+        .map(c -> String.format("%s %s %s %d %d", c.PROPERTY, c.OLD_VALUE, c.NEW_VALUE, c.OFFSET, c.LENGTH))
+        .collect(Collectors.toList());
+  }
+
+  private static void assertKeys(Replacer replacer, String... keys) {
+    Assertions.assertEquals(new HashSet<>(Arrays.asList(keys)),
+        new HashSet<>(Arrays.asList(Replacer.toKeys(replacer.getPattern().pattern()))));
+  }
+
+  @Test
+  public void testDefaultKeys() {
+    Replacer[] replacers = ReplacerBuilder.DEFAULTS;
+    ReplacerTest.assertKeys(replacers[0], "GIT_VERSION", "GIT_BUILD");
+    ReplacerTest.assertKeys(replacers[1], "Implementation-Version");
+    ReplacerTest.assertKeys(replacers[2], "package", "android:versionName", "android:versionCode");
+    ReplacerTest.assertKeys(replacers[3], "CFBundleDisplayName", "CFBundleIdentifier", "CFBundleVersion",
+        "CFBundleShortVersionString", "bundle-identifier", "bundle-version");
+    ReplacerTest.assertKeys(replacers[4], "finalName", "warName");
+    ReplacerTest.assertKeys(replacers[5], "Version-Number", "Version-Id", "Version-Date");
+    ReplacerTest.assertKeys(replacers[6], "BUILD_VERSION", "BUILD_NUMBER", "GIT_VERSION");
+    ReplacerTest.assertKeys(replacers[7], "custom");
+    ReplacerTest.assertKeys(replacers[8], "Version-Id", "Version-Date", "Version-Number", "Build-Number");
+    Assertions.assertNull(Replacer.toKeys(replacers[9].getPattern().pattern()));
+  }
+
+  @Test
+  public void testDefaultReplace() {
+    Environment environment = ReplacerTest.getEnvironment();
+    List<String> samples = new ArrayList<>(ReplacerTest.SAMPLES);
+    samples.add(String.join("", ReplacerTest.SAMPLES));
+
+    for (int index = 0; index < ReplacerBuilder.DEFAULTS.length; index++) {
+      Replacer replacer = ReplacerBuilder.DEFAULTS[index];
+      Replacer unfiltered = ReplacerTest.withoutKeys(replacer);
+      Assertions.assertNull(Replacer.toKeys(unfiltered.getPattern().pattern()));
+
+      String sample = ReplacerTest.SAMPLES.get(index);
+      Assertions.assertNotEquals(sample, replacer.replace(sample, environment, new ChangeSet()), sample);
+      for (String input : samples) {
+        ChangeSet changes = new ChangeSet();
+        ChangeSet expected = new ChangeSet();
+        Assertions.assertEquals(unfiltered.replace(input, environment, expected),
+            replacer.replace(input, environment, changes), input);
+        Assertions.assertEquals(ReplacerTest.toList(expected), ReplacerTest.toList(changes), input);
+      }
+    }
+  }
+
+  @Test
+  public void testKeys() {
+    Assertions.assertEquals(Arrays.asList("KEY", "OTHER"),
+        Arrays.asList(Replacer.toKeys("((KEY|OTHER)\\s*=)(\\w+)(\\n)")));
+    Assertions.assertEquals(Arrays.asList("KE"), Arrays.asList(Replacer.toKeys("((KEY?)=)(\\w+)(\\n)")));
+    Assertions.assertEquals(Arrays.asList("KE"), Arrays.asList(Replacer.toKeys("((KE\\w+)=)(\\w+)(\\n)")));
+    Assertions.assertEquals(Arrays.asList("KEY"), Arrays.asList(Replacer.toKeys("(<(KEY)>)(\\w+)(</(?:KEY|A)>)")));
+
+    // Brackets and parentheses in character classes
+    Assertions.assertEquals(Arrays.asList("KEY"), Arrays.asList(Replacer.toKeys("([\\](](KEY)=)(\\w+)(\\n)")));
+    Assertions.assertEquals(Arrays.asList("KEY"), Arrays.asList(Replacer.toKeys("([](](KEY)=)(\\w+)(\\n)")));
+    Assertions.assertEquals(Arrays.asList("KEY"), Arrays.asList(Replacer.toKeys("([a[(]](KEY)=)(\\w+)(\\n)")));
+
+    // Inline flags and look-arounds
+    Assertions.assertNull(Replacer.toKeys("(?i)((KEY)=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((?i:KEY)=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((?<=\\n)(KEY)=)(\\w+)(\\n)"));
+
+    // Optional name groups and keys
+    Assertions.assertNull(Replacer.toKeys("((KEY)?=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((KEY)*=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((KEY){0,1}=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((K?EY)=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((KEY|)=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("(?:((KEY)=))?(\\w+)(\\n)"));
+
+    // Enclosing alternations
+    Assertions.assertNull(Replacer.toKeys("(x|(KEY)=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((KEY)=)(\\w+)(\\n)|x"));
+    Assertions.assertNull(Replacer.toKeys("(?:x|((KEY)=))(\\w+)(\\n)"));
+
+    // Name groups, that aren't literal
+    Assertions.assertNull(Replacer.toKeys("(([^=]+)=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("((\\w+)=)(\\w+)(\\n)"));
+    Assertions.assertNull(Replacer.toKeys("(\\Q(\\E(KEY)=)(\\w+)(\\n)"));
+  }
+}
@@ -0,0 +1,250 @@
+
+package it.smartio.util.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class ParallelArchiveTest {
+
+  private static final int BLOCK = 1 << 20;
+
+  @TempDir
+  File tempDir;
+
+  /**
+   * Creates data, that is partially compressible.
+   *
+   * @param random
+   * @param length
+   */
+  private static byte[] createData(Random random, int length) {
+    byte[] bytes = new byte[length];
+    for (int offset = 0; offset < length; offset += 4096) {
+      if (random.nextBoolean()) {
+        byte[] chunk = new byte[Math.min(4096, length - offset)];
+        random.nextBytes(chunk);
+        System.arraycopy(chunk, 0, bytes, offset, chunk.length);
+      } else {
+        for (int index = offset; index < Math.min(offset + 4096, length); index++) {
+          bytes[index] = (byte) ('a' + (index % 7));
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Compresses the data, written in chunks of random size.
+   *
+   * @param data
+   * @param threads
+   * @param level
+   */
+  private static byte[] gzip(byte[] data, int threads, int level) throws IOException {
+    Random random = new Random(4711);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ParallelGzipOutputStream stream = new ParallelGzipOutputStream(bytes, threads, level)) {
+      int offset = 0;
+      while (offset < data.length) {
+        int length = Math.min(data.length - offset, 1 + random.nextInt(ParallelArchiveTest.BLOCK / 3));
+        stream.write(data, offset, length);
+        offset += length;
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (InputStream stream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      byte[] buffer = new byte[8192];
+      for (int length = stream.read(buffer); length > 0; length = stream.read(buffer)) {
+        output.write(buffer, 0, length);
+      }
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Inflates the deflate stream between header and trailer, which must end exactly before the
+   * trailer, so that the blocks form a single GZip member.
+   *
+   * @param bytes
+   */
+  private static byte[] inflate(byte[] bytes) throws DataFormatException {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(bytes, 10, bytes.length - 18);
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int length = inflater.inflate(buffer);
+        Assertions.assertFalse((length == 0) && inflater.needsInput() && !inflater.finished(), "Truncated");
+        output.write(buffer, 0, length);
+      }
+      Assertions.assertEquals(0, inflater.getRemaining(), "Data after the deflate stream");
+      return output.toByteArray();
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Creates the files to archive, with nested directories and an empty file.
+   */
+  private File createSources() throws IOException {
+    File source = new File(this.tempDir, "source");
+    Random random = new Random(4711);
+    String[] names = { "large.bin", "text.txt", "empty.dat", "dir/small.txt", "dir/sub/block.bin", "other/x.cfg" };
+    int[] lengths =
+        { 3 * ParallelArchiveTest.BLOCK + 17, ParallelArchiveTest.BLOCK, 0, 10, 2 * ParallelArchiveTest.BLOCK, 70000 };
+    for (int index = 0; index < names.length; index++) {
+      File file = new File(source, names[index]);
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), ParallelArchiveTest.createData(random, lengths[index]));
+    }
+    return source;
+  }
+
+  /**
+   * Builds the archive of the sources and extracts it again.
+   *
+   * @param source
+   * @param name
+   * @param threads
+   * @param level
+   */
+  private File build(File source, String name, int threads, int level) throws IOException {
+    Archive archive = Archive.of(new File(this.tempDir, name)).setThreads(threads).setLevel(level);
+    try (ArchiveBuilder builder = archive.builder()) {
+      builder.addDirectory(source);
+    }
+
+    File target = new File(this.tempDir, name + ".extracted");
+    archive.extractTo(target);
+    return target;
+  }
+
+  /**
+   * Gets the content of all files in the directory by their relative path.
+   *
+   * @param directory
+   */
+  private static TreeMap<String, String> getFiles(File directory) throws IOException {
+    TreeMap<String, String> files = new TreeMap<>();
+    try (Stream<Path> paths = Files.walk(directory.toPath())) {
+      for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        String content = new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1);
+        files.put(directory.toPath().relativize(path).toString(), content);
+      }
+    }
+    return files;
+  }
+
+  private static List<String> getEntries(File zip) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (ZipInputStream stream = new ZipInputStream(Files.newInputStream(zip.toPath()))) {
+      for (ZipEntry entry = stream.getNextEntry(); entry != null; entry = stream.getNextEntry()) {
+        names.add(entry.getName());
+      }
+    }
+    return names;
+  }
+
+  @Test
+  public void testGzip() throws IOException, DataFormatException {
+    Random random = new Random(4711);
+    int[] lengths = { 0, 1, ParallelArchiveTest.BLOCK - 1, ParallelArchiveTest.BLOCK, ParallelArchiveTest.BLOCK + 1,
+        3 * ParallelArchiveTest.BLOCK, 5 * ParallelArchiveTest.BLOCK + 12345 };
+    for (int length : lengths) {
+      byte[] data = ParallelArchiveTest.createData(random, length);
+      for (int level : new int[] { Deflater.DEFAULT_COMPRESSION, 0, 1, 9 }) {
+        for (int threads : new int[] { 1, 2, 4 }) {
+          String message = String.format("length=%d level=%d threads=%d", length, level, threads);
+          byte[] bytes = ParallelArchiveTest.gzip(data, threads, level);
+          Assertions.assertArrayEquals(data, ParallelArchiveTest.gunzip(bytes));
+          Assertions.assertArrayEquals(data, ParallelArchiveTest.inflate(bytes));
+          Assertions.assertTrue(bytes.length > 18, message);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testGzipLevel() throws IOException {
+    byte[] data = new byte[4 * ParallelArchiveTest.BLOCK];
+    Arrays.fill(data, (byte) 'a');
+    byte[] stored = ParallelArchiveTest.gzip(data, 4, 0);
+    byte[] best = ParallelArchiveTest.gzip(data, 4, 9);
+    Assertions.assertTrue(stored.length > data.length, "Level 0 stores the data");
+    Assertions.assertTrue(best.length < (data.length / 100), "Level 9 compresses the data");
+    Assertions.assertArrayEquals(data, ParallelArchiveTest.gunzip(stored));
+    Assertions.assertArrayEquals(data, ParallelArchiveTest.gunzip(best));
+  }
+
+  @Test
+  public void testTarGz() throws IOException {
+    File source = createSources();
+    TreeMap<String, String> files = ParallelArchiveTest.getFiles(source);
+    for (int level : new int[] { 0, 9 }) {
+      File sequential = build(source, "sequential-" + level + ".tar.gz", 1, level);
+      File parallel = build(source, "parallel-" + level + ".tar.gz", 4, level);
+      Assertions.assertEquals(files, ParallelArchiveTest.getFiles(sequential));
+      Assertions.assertEquals(files, ParallelArchiveTest.getFiles(parallel));
+    }
+  }
+
+  @Test
+  public void testZip() throws IOException {
+    File source = createSources();
+    TreeMap<String, String> files = ParallelArchiveTest.getFiles(source);
+    for (int level : new int[] { 0, 9 }) {
+      File sequential = build(source, "sequential-" + level + ".zip", 1, level);
+      File parallel = build(source, "parallel-" + level + ".zip", 4, level);
+      Assertions.assertEquals(files, ParallelArchiveTest.getFiles(sequential));
+      Assertions.assertEquals(files, ParallelArchiveTest.getFiles(parallel));
+      Assertions.assertEquals(ParallelArchiveTest.getEntries(new File(this.tempDir, "sequential-" + level + ".zip")),
+          ParallelArchiveTest.getEntries(new File(this.tempDir, "parallel-" + level + ".zip")));
+    }
+  }
+
+  @Test
+  public void testZipDuplicate() throws IOException {
+    File source = createSources();
+    for (int threads : new int[] { 1, 4 }) {
+      File zip = new File(this.tempDir, "duplicate-" + threads + ".zip");
+      try (ArchiveBuilder builder = Archive.of(zip).setThreads(threads).builder()) {
+        builder.addFile(source, "dir/small.txt", null);
+        ZipException exception =
+            Assertions.assertThrows(ZipException.class, () -> builder.addFile(source, "dir/small.txt", null));
+        Assertions.assertEquals("duplicate entry: dir/small.txt", exception.getMessage());
+      }
+      Assertions.assertEquals(Arrays.asList("dir/small.txt"), ParallelArchiveTest.getEntries(zip));
+    }
+  }
+}
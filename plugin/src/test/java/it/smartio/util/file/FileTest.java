@@ -3,15 +3,43 @@ package it.smartio.util.file;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.FileVisitResult;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 
 public class FileTest {
 
+  @TempDir
+  File tempDir;
+
+  private static void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
   @Test
   public void testFilePattern() throws GitAPIException, IOException {
     File workingDir = new File("/home/brigl/Downloads/artifacts");
@@ -26,4 +54,213 @@ public class FileTest {
       System.out.println(file.getAbsolutePath());
     }
   }
+
+  @Test
+  public void testCopySkip() throws IOException {
+    Path source = this.tempDir.toPath().resolve("source");
+    Path target = this.tempDir.toPath().resolve("target");
+    FileTest.write(source.resolve("a.txt"), "a");
+    FileTest.write(source.resolve("dir/b.txt"), "b");
+
+    FileTreeCopying copying = FileTreeCopying.copy(source, target, false);
+    Assertions.assertEquals(2, copying.getFiles());
+    Assertions.assertEquals(2, copying.getBytes());
+    Assertions.assertEquals(0, copying.getSkipped());
+    Assertions.assertEquals(Files.getLastModifiedTime(source.resolve("a.txt")),
+        Files.getLastModifiedTime(target.resolve("a.txt")));
+
+    copying = FileTreeCopying.copy(source, target, false);
+    Assertions.assertEquals(0, copying.getFiles());
+    Assertions.assertEquals(2, copying.getSkipped());
+
+    // The size and the modification time decide, not the content
+    FileTime time = Files.getLastModifiedTime(source.resolve("a.txt"));
+    FileTest.write(source.resolve("a.txt"), "x");
+    Files.setLastModifiedTime(source.resolve("a.txt"), time);
+    FileTest.write(source.resolve("dir/b.txt"), "bb");
+    Files.setLastModifiedTime(source.resolve("dir/b.txt"), time);
+    copying = FileTreeCopying.copy(source, target, false);
+    Assertions.assertEquals(1, copying.getFiles());
+    Assertions.assertEquals("a", FileTest.read(target.resolve("a.txt")));
+    Assertions.assertEquals("bb", FileTest.read(target.resolve("dir/b.txt")));
+
+    Files.setLastModifiedTime(source.resolve("a.txt"), FileTime.fromMillis(time.toMillis() + 2000));
+    copying = FileTreeCopying.copy(source, target, false);
+    Assertions.assertEquals(1, copying.getFiles());
+    Assertions.assertEquals("x", FileTest.read(target.resolve("a.txt")));
+  }
+
+  @Test
+  public void testCopySymlinks() throws IOException {
+    Path source = this.tempDir.toPath().resolve("source");
+    Path target = this.tempDir.toPath().resolve("target");
+    FileTest.write(source.resolve("dir/a.txt"), "a");
+    Files.createSymbolicLink(source.resolve("file"), Paths.get("dir/a.txt"));
+    Files.createSymbolicLink(source.resolve("link"), Paths.get("dir"));
+
+    FileTreeCopying copying = FileTreeCopying.copy(source, target, false);
+    Assertions.assertEquals(3, copying.getFiles());
+    Assertions.assertTrue(Files.isSymbolicLink(target.resolve("file")));
+    Assertions.assertTrue(Files.isSymbolicLink(target.resolve("link")));
+    Assertions.assertEquals(Paths.get("dir"), Files.readSymbolicLink(target.resolve("link")));
+    Assertions.assertEquals("a", FileTest.read(target.resolve("link/a.txt")));
+
+    Assertions.assertEquals(3, FileTreeCopying.copy(source, target, false).getSkipped());
+
+    // A changed link is replaced, its former target is untouched
+    Files.delete(source.resolve("file"));
+    Files.createSymbolicLink(source.resolve("file"), Paths.get("link/a.txt"));
+    copying = FileTreeCopying.copy(source, target, false);
+    Assertions.assertEquals(1, copying.getFiles());
+    Assertions.assertEquals(Paths.get("link/a.txt"), Files.readSymbolicLink(target.resolve("file")));
+    Assertions.assertEquals("a", FileTest.read(target.resolve("dir/a.txt")));
+  }
+
+  @Test
+  public void testCopyHardLinks() throws IOException {
+    Path source = this.tempDir.toPath().resolve("source");
+    Path target = this.tempDir.toPath().resolve("target");
+    FileTest.write(source.resolve("a.txt"), "a");
+
+    FileTreeCopying copying = FileTreeCopying.copy(source, target, true);
+    Assertions.assertEquals(1, copying.getFiles());
+    Assertions.assertTrue(Files.isSameFile(source.resolve("a.txt"), target.resolve("a.txt")));
+    Assertions.assertEquals(2, Files.getAttribute(target.resolve("a.txt"), "unix:nlink"));
+    Assertions.assertEquals(1, FileTreeCopying.copy(source, target, true).getSkipped());
+
+    // A source, that is replaced, isn't shared anymore
+    Files.delete(source.resolve("a.txt"));
+    FileTest.write(source.resolve("a.txt"), "new");
+    Assertions.assertEquals(1, FileTreeCopying.copy(source, target, false).getFiles());
+    Assertions.assertFalse(Files.isSameFile(source.resolve("a.txt"), target.resolve("a.txt")));
+    Assertions.assertEquals("new", FileTest.read(target.resolve("a.txt")));
+  }
+
+  @Test
+  public void testCopyParallel() throws IOException {
+    Path source = this.tempDir.toPath().resolve("source");
+    Path target = this.tempDir.toPath().resolve("target");
+    long bytes = 0;
+    for (int i = 0; i < 500; i++) {
+      String content = String.join("", Collections.nCopies(i, Integer.toString(i)));
+      FileTest.write(source.resolve(String.format("dir%d/file%d.txt", i % 7, i)), content);
+      bytes += content.length();
+    }
+
+    FileTreeCopying copying = FileTreeCopying.copy(source, target, false, 4);
+    Assertions.assertEquals(500, copying.getFiles());
+    Assertions.assertEquals(bytes, copying.getBytes());
+    for (int i = 0; i < 500; i++) {
+      String name = String.format("dir%d/file%d.txt", i % 7, i);
+      Assertions.assertEquals(FileTest.read(source.resolve(name)), FileTest.read(target.resolve(name)));
+    }
+    Assertions.assertEquals(500, FileTreeCopying.copy(source, target, false, 4).getSkipped());
+  }
+
+  @Test
+  public void testCopyReplaced() throws IOException {
+    Path source = this.tempDir.toPath().resolve("source");
+    Path target = this.tempDir.toPath().resolve("target");
+    FileTest.write(source.resolve("file/a.txt"), "a");
+    FileTest.write(source.resolve("dir"), "dir");
+    FileTest.write(target.resolve("file"), "file");
+    FileTest.write(target.resolve("dir/b/c.txt"), "c");
+
+    FileTreeCopying copying = FileTreeCopying.copy(source, target, false);
+    Assertions.assertEquals(2, copying.getFiles());
+    Assertions.assertEquals("a", FileTest.read(target.resolve("file/a.txt")));
+    Assertions.assertEquals("dir", FileTest.read(target.resolve("dir")));
+    Assertions.assertTrue(Files.isRegularFile(target.resolve("dir"), LinkOption.NOFOLLOW_LINKS));
+  }
+
+  private static final List<String> FILES = Arrays.asList("a", "A", "ab", "aab", "abbc", "ac", "aA", "abc-abc",
+      "xy", "xxy", "xyy", "x2", "readme.md", "README.txt", "dir.d/a.txt", "dirxd/b.txt", "src/main/x.java",
+      "src/maain/y.java", "src/min/z.java", "src/main/res/r.png", "test/a.txt", "v1.2/lib.jar", "lib/a.jar",
+      "build/out/a.txt", "build/out/b/c.txt", "build-x/d.txt", "q.*", "a+b");
+
+  /**
+   * The implementation of the pattern matching before {@link FileTreeMatching}: every path is
+   * matched, a matching directory is not entered, unless the pattern is nested.
+   *
+   * @param workingDir
+   * @param pattern
+   * @param nested
+   */
+  private static Set<String> walk(Path workingDir, String pattern, boolean nested) throws IOException {
+    Pattern regex = Pattern.compile("^" + pattern + "$");
+    Set<String> paths = new TreeSet<>();
+    Files.walkFileTree(workingDir, new SimpleFileVisitor<Path>() {
+
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        return ((visitFile(dir, attrs) == FileVisitResult.CONTINUE) || nested) ? FileVisitResult.CONTINUE
+            : FileVisitResult.SKIP_SUBTREE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        String input = workingDir.relativize(file).toString().replace('\\', '/');
+        if (regex.matcher(input).find()) {
+          paths.add(input);
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return paths;
+  }
+
+  private static Set<String> match(Path workingDir, FilePattern pattern) throws IOException {
+    FileTreeMatching.match(workingDir.toFile(), Collections.singletonList(pattern), Collections.emptySet());
+    return pattern.getMappers().stream().map(m -> workingDir.relativize(m.getFile().toPath()).toString())
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  @Test
+  public void testFilePatternLiterals() throws IOException {
+    Path workingDir = this.tempDir.toPath();
+    for (String file : FileTest.FILES) {
+      FileTest.write(workingDir.resolve(file), file);
+    }
+
+    List<String> patterns = Arrays.asList(".*", "a", "ab?c", "ab*c", "ab+c", "ab{2}c", "a*b", "x{2}y", "xy+",
+        "dir\\.d/.*\\.txt", "dir.d/.*", ".*\\.txt", "src/ma?in/.*", "src/ma*in/.*\\.java", "src/main",
+        ".*\\x41", "\\x61.*", "\\x{61}b", ".*\\u0041", "a\\0101", "(?<n>[a-z]+)-\\k<n>", "x\\d", "(x)\\12",
+        "\\Qq.*\\E", "\\Qa+\\Eb", "a\\+b", "\\p{Upper}", "a\\p{Lu}", "^ab$", "ab\\b",
+        "(?<dir>[a-z]+)/(?<name>[a-z]+)\\.txt", "(?<v>v[0-9.]+)/(?<name>.*)\\.jar", "(?i)readme\\..*",
+        "(?i:A)b", "a(?i)b", "a|xy", "(src|test)/.*", "build(-x)?/.*\\.txt", "[a-z]/[a-z]\\.txt");
+    for (String pattern : patterns) {
+      Assertions.assertEquals(FileTest.walk(workingDir, pattern, false),
+          FileTest.match(workingDir, FilePattern.of(pattern)), pattern);
+    }
+
+    // The patterns of the archives match the files inside of a matching directory
+    for (String pattern : Arrays.asList("build", "build/out", "build/.*", "src/ma", "src/[^/]*/res", "lib.*")) {
+      Assertions.assertEquals(FileTest.walk(workingDir, pattern + ".*", true),
+          FileTest.match(workingDir, FilePattern.ofNested(pattern + ".*")), pattern);
+    }
+
+    FilePattern pattern = FilePattern.of("(?<v>v[0-9.]+)/(?<name>.*)\\.jar");
+    FileTest.match(workingDir, pattern);
+    Assertions.assertEquals("v1.2", pattern.getMappers().get(0).getEnvironment().get("v"));
+    Assertions.assertEquals("lib", pattern.getMappers().get(0).getEnvironment().get("name"));
+  }
+
+  @Test
+  public void testFilePatternContain() {
+    FilePattern pattern = FilePattern.of("src/ma?in/.*");
+    Assertions.assertTrue(pattern.canContain(""));
+    Assertions.assertTrue(pattern.canContain("src"));
+    Assertions.assertTrue(pattern.canContain("src/min"));
+    Assertions.assertTrue(pattern.canContain("src/main/res"));
+    Assertions.assertFalse(pattern.canContain("sr"));
+    Assertions.assertFalse(pattern.canContain("test"));
+    Assertions.assertFalse(pattern.canContain("src2"));
+
+    // No prefix is known for alternations, inline flags and escape sequences
+    Assertions.assertTrue(FilePattern.of("src/.*|test/.*").canContain("build"));
+    Assertions.assertTrue(FilePattern.of("(?i)src/.*").canContain("SRC"));
+    Assertions.assertTrue(FilePattern.of("\\x73rc/.*").canContain("src"));
+    Assertions.assertFalse(FilePattern.of("\\.git/.*").canContain("git"));
+  }
 }
@@ -0,0 +1,101 @@
+
+package it.smartio.util.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class RepositoryChangesTest {
+
+  @TempDir
+  File tempDir;
+
+  private void write(String path, String content) throws IOException {
+    File file = new File(this.tempDir, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static RepositoryChanges of(String... files) {
+    return new RepositoryChanges(new TreeSet<>(Arrays.asList(files)));
+  }
+
+  @Test
+  public void testChanges() throws GitAPIException, IOException {
+    try (Git git = Git.init().setDirectory(this.tempDir).setInitialBranch("master").call()) {
+      write(".gitignore", "*.log\n");
+      write("a.txt", "a");
+      write("dir/b.txt", "b");
+      write("dir2/c.txt", "c");
+      write("d.txt", "d");
+      git.add().addFilepattern(".").call();
+      git.commit().setMessage("Base").call();
+      git.tag().setName("base").call();
+
+      // Changed by the commits since the base
+      write("dir/b.txt", "b2");
+      write("e.txt", "e");
+      git.rm().addFilepattern("a.txt").call();
+      git.add().addFilepattern(".").call();
+      git.commit().setMessage("Change").call();
+    }
+
+    try (Repository repo = new RepositoryBuilder(this.tempDir).build()) {
+      Assertions.assertTrue(repo.getChanges("HEAD").isEmpty());
+      Assertions.assertEquals(new TreeSet<>(Arrays.asList("a.txt", "dir/b.txt", "e.txt")),
+          repo.getChanges("base").getFiles());
+      Assertions.assertThrows(IOException.class, () -> repo.getChanges("unknown"));
+
+      // Modified, staged and untracked files of the working tree, but no ignored file
+      write("d.txt", "d2");
+      write("s.txt", "s");
+      repo.getGit().add().addFilepattern("s.txt").call();
+      write("u/x.txt", "x");
+      write("build.log", "log");
+
+      RepositoryChanges changes = repo.getChanges("base");
+      Assertions.assertEquals(new TreeSet<>(Arrays.asList("a.txt", "d.txt", "dir/b.txt", "e.txt", "s.txt", "u/x.txt")),
+          changes.getFiles());
+      Assertions.assertEquals(new TreeSet<>(Arrays.asList("d.txt", "s.txt", "u/x.txt")),
+          repo.getChanges("HEAD").getFiles());
+
+      Assertions.assertTrue(changes.isChanged("dir"));
+      Assertions.assertTrue(changes.isChanged("./dir/"));
+      Assertions.assertTrue(changes.isChanged("dir\\b.txt"));
+      Assertions.assertTrue(changes.isChanged("u"));
+      Assertions.assertFalse(changes.isChanged("dir2"));
+      Assertions.assertFalse(changes.isChanged("build.log"));
+    }
+  }
+
+  @Test
+  public void testIsChanged() {
+    RepositoryChanges changes = RepositoryChangesTest.of("dir-x/a.txt", "dir.txt", "dir0/b.txt", "module/sub/c.txt");
+    Assertions.assertTrue(changes.isChanged(""));
+    Assertions.assertTrue(changes.isChanged("."));
+    Assertions.assertTrue(changes.isChanged("dir.txt"));
+    Assertions.assertTrue(changes.isChanged("dir-x"));
+    Assertions.assertTrue(changes.isChanged("module"));
+    Assertions.assertTrue(changes.isChanged("module/sub"));
+    Assertions.assertTrue(changes.isChanged("module//sub//"));
+
+    // A path is only a prefix of its own files
+    Assertions.assertFalse(changes.isChanged("dir"));
+    Assertions.assertFalse(changes.isChanged("di"));
+    Assertions.assertFalse(changes.isChanged("module/su"));
+    Assertions.assertFalse(changes.isChanged("module/sub/c"));
+
+    Assertions.assertTrue(RepositoryChangesTest.of().isEmpty());
+    Assertions.assertFalse(RepositoryChangesTest.of().isChanged(""));
+  }
+}
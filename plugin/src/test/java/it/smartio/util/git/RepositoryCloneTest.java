@@ -0,0 +1,163 @@
+
+package it.smartio.util.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class RepositoryCloneTest {
+
+  @TempDir
+  File tempDir;
+
+  private File   root;
+  private File   module;
+  private String moduleCommit;
+
+  /**
+   * Creates a bare remote, that allows partial clones.
+   *
+   * @param name
+   */
+  private File createRemote(String name) throws GitAPIException, IOException {
+    File remote = new File(this.tempDir, name + ".git");
+    try (Git git = Git.init().setBare(true).setDirectory(remote).setInitialBranch("master").call()) {
+      StoredConfig config = git.getRepository().getConfig();
+      config.setBoolean("uploadpack", null, "allowFilter", true);
+      config.setBoolean("uploadpack", null, "allowAnySHA1InWant", true);
+      config.save();
+    }
+    return remote;
+  }
+
+  private static String toURL(File remote) {
+    return "file://" + remote.getAbsolutePath();
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Creates the remotes of the root and the module. The root refers to the first of two commits of
+   * the module, that is not the tip of the module.
+   */
+  private void createRemotes() throws GitAPIException, IOException {
+    this.root = createRemote("root");
+    this.module = createRemote("module");
+
+    File work = new File(this.tempDir, "module.init");
+    try (Git git = Git.cloneRepository().setURI(toURL(this.module)).setDirectory(work).call()) {
+      RepositoryCloneTest.write(new File(work, "file.txt"), "first");
+      git.add().addFilepattern("file.txt").call();
+      this.moduleCommit = git.commit().setMessage("First").call().getName();
+      RepositoryCloneTest.write(new File(work, "file.txt"), "second");
+      git.add().addFilepattern("file.txt").call();
+      git.commit().setMessage("Second").call();
+      git.push().call();
+    }
+
+    work = new File(this.tempDir, "root.init");
+    try (Git git = Git.cloneRepository().setURI(toURL(this.root)).setDirectory(work).call()) {
+      git.submoduleAdd().setURI(toURL(this.module)).setPath("module").call().close();
+      try (Git module = Git.open(new File(work, "module"))) {
+        module.checkout().setName(this.moduleCommit).call();
+      }
+      git.add().addFilepattern("module").call();
+      git.commit().setMessage("Add module").call();
+      git.push().call();
+    }
+  }
+
+  /**
+   * Adds a commit to the remote of the root.
+   */
+  private ObjectId commitRoot() throws GitAPIException, IOException {
+    File work = new File(this.tempDir, "root.init");
+    try (Git git = Git.open(work)) {
+      RepositoryCloneTest.write(new File(work, "root.txt"), "root");
+      git.add().addFilepattern("root.txt").call();
+      ObjectId commit = git.commit().setMessage("Root").call();
+      git.push().call();
+      return commit;
+    }
+  }
+
+  /**
+   * Clones the root with the module, checks the commit of the module and pulls a new commit of the
+   * root. The module is pulled to the tip of its branch, unless the history of a shallow module
+   * isn't connected to the tip.
+   *
+   * @param name
+   * @param mode
+   * @param connected
+   */
+  private void testClone(String name, Consumer<RepositoryBuilder> mode, boolean connected)
+      throws GitAPIException, IOException {
+    File location = new File(this.tempDir, name);
+    RepositoryBuilder builder = new RepositoryBuilder(location);
+    builder.setRemote(RepositoryCloneTest.toURL(this.root)).setBranch("master").addSubModules("module");
+    mode.accept(builder);
+
+    try (Repository repo = builder.build()) {
+      Assertions.assertTrue(repo.getExceptions().isEmpty());
+      try (Git git = Git.open(new File(location, "module"))) {
+        Assertions.assertEquals(this.moduleCommit, git.getRepository().resolve(Constants.HEAD).getName(), name);
+        Assertions.assertEquals("master", git.getRepository().getBranch(), name);
+      }
+      Assertions.assertEquals("first", RepositoryCloneTest.read(new File(location, "module/file.txt")), name);
+
+      ObjectId commit = commitRoot();
+      repo.pull();
+      Assertions.assertEquals(connected ? 0 : 1, repo.getExceptions().size(), name);
+      Assertions.assertEquals(commit, repo.getGit().getRepository().resolve(Constants.HEAD), name);
+      Assertions.assertEquals("root", RepositoryCloneTest.read(new File(location, "root.txt")), name);
+      Assertions.assertEquals(connected ? "second" : "first",
+          RepositoryCloneTest.read(new File(location, "module/file.txt")), name);
+    }
+  }
+
+  @Test
+  public void testJGit() throws GitAPIException, IOException {
+    createRemotes();
+    testClone("jgit", b -> {}, true);
+  }
+
+  @Test
+  public void testShallow() throws GitAPIException, IOException {
+    createRemotes();
+    testClone("shallow", b -> b.setDepth(1), false);
+    Assertions.assertTrue(new File(this.tempDir, "shallow/.git/shallow").exists());
+  }
+
+  @Test
+  public void testPartial() throws GitAPIException, IOException {
+    createRemotes();
+    testClone("partial", b -> b.setFilter("blob:none"), true);
+  }
+
+  @Test
+  public void testReference() throws GitAPIException, IOException {
+    createRemotes();
+    testClone("reference", b -> {}, true);
+    File reference = new File(this.tempDir, "reference");
+    testClone("referenced", b -> b.setReference(reference), true);
+    Assertions.assertTrue(new File(this.tempDir, "referenced/.git/objects/info/alternates").exists());
+  }
+}
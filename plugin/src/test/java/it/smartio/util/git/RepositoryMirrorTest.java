@@ -0,0 +1,102 @@
+
+package it.smartio.util.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class RepositoryMirrorTest {
+
+  @TempDir
+  File tempDir;
+
+  /**
+   * Creates a bare remote with a file on the master and on a feature branch.
+   *
+   * @param name
+   */
+  private File createRemote(String name) throws GitAPIException, IOException {
+    File remote = new File(this.tempDir, name + ".git");
+    Git.init().setBare(true).setDirectory(remote).setInitialBranch("master").call().close();
+
+    File work = new File(this.tempDir, name + ".init");
+    try (Git git = Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(work).call()) {
+      Files.write(new File(work, "file.txt").toPath(), name.getBytes(StandardCharsets.UTF_8));
+      git.add().addFilepattern("file.txt").call();
+      git.commit().setMessage("Initial").call();
+      git.branchCreate().setName("feature").call();
+      git.push().setPushAll().call();
+    }
+    return remote;
+  }
+
+  /**
+   * Runs the GIT command line and returns the exit code.
+   *
+   * @param workingDir
+   * @param command
+   */
+  private static int git(File workingDir, String... command) throws IOException, InterruptedException {
+    ProcessBuilder builder = new ProcessBuilder("git");
+    builder.command().addAll(Arrays.asList(command));
+    return builder.directory(workingDir).inheritIO().start().waitFor();
+  }
+
+  @Test
+  public void testMirror() throws GitAPIException, IOException, InterruptedException {
+    File remote = createRemote("root");
+    File module = createRemote("module");
+    try (Git git = Git.open(new File(this.tempDir, "root.init"))) {
+      git.submoduleAdd().setURI("file://" + module.getAbsolutePath()).setPath("module").call().close();
+      git.commit().setMessage("Add module").call();
+      git.push().call();
+    }
+
+    // A plain local path of the root and a file URL of the module don't require credentials
+    File mirrorDir = new File(this.tempDir, "mirrors");
+    File location = new File(this.tempDir, "workspace");
+    RepositoryBuilder builder = new RepositoryBuilder(location).setRemote(remote.getAbsolutePath());
+    builder.setBranch("master").setMirror(mirrorDir).addSubModules("module");
+    try (Repository repo = builder.build()) {
+      Assertions.assertTrue(repo.getExceptions().isEmpty());
+    }
+
+    RepositoryMirror mirrors = new RepositoryMirror(mirrorDir, null, null);
+    File rootMirror = mirrors.getMirror(remote.getAbsolutePath());
+    File moduleMirror = mirrors.getMirror("file://" + module.getAbsolutePath());
+    Assertions.assertTrue(new File(rootMirror, "HEAD").exists());
+    Assertions.assertTrue(new File(moduleMirror, "HEAD").exists());
+    Assertions.assertEquals("module", new String(Files.readAllBytes(new File(location, "module/file.txt").toPath()),
+        StandardCharsets.UTF_8));
+
+    // The workspaces don't borrow the objects of the mirror
+    Assertions.assertFalse(new File(location, ".git/objects/info/alternates").exists());
+    Assertions.assertFalse(new File(location, ".git/modules/module/objects/info/alternates").exists());
+
+    // Pruning the mirror doesn't affect the workspaces
+    for (File mirror : new File[] { rootMirror, moduleMirror }) {
+      try (Git git = Git.open(mirror)) {
+        for (String branch : new String[] { "master", "feature" }) {
+          RefUpdate update = git.getRepository().updateRef(Constants.R_HEADS + branch);
+          update.setForceUpdate(true);
+          update.delete();
+        }
+      }
+      Assertions.assertEquals(0, RepositoryMirrorTest.git(mirror, "gc", "--prune=now", "--quiet"));
+    }
+    Assertions.assertEquals(0, RepositoryMirrorTest.git(location, "fsck", "--full", "--no-dangling"));
+    File workspace = new File(location, "module");
+    Assertions.assertEquals(0, RepositoryMirrorTest.git(workspace, "fsck", "--full", "--no-dangling"));
+  }
+}
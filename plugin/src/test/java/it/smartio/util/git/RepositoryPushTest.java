@@ -0,0 +1,116 @@
+package it.smartio.util.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.ReceivePack;
+import org.eclipse.jgit.transport.TestProtocol;
+import org.eclipse.jgit.transport.Transport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class RepositoryPushTest {
+
+  @TempDir
+  File tempDir;
+
+  /**
+   * Creates a bare remote with an initial commit.
+   *
+   * @param name
+   */
+  private File createRemote(String name) throws GitAPIException {
+    File remote = new File(this.tempDir, name + ".git");
+    Git.init().setBare(true).setDirectory(remote).setInitialBranch("master").call().close();
+
+    File work = new File(this.tempDir, name + ".init");
+    try (Git git = Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(work).call()) {
+      git.commit().setMessage("Initial").setAllowEmpty(true).call();
+      git.push().call();
+    }
+    return remote;
+  }
+
+  /**
+   * Checks if the bare repository has the reference.
+   *
+   * @param remote
+   * @param name
+   */
+  private static boolean hasRef(File remote, String name) throws IOException {
+    try (Git git = Git.open(remote)) {
+      return git.getRepository().exactRef(name) != null;
+    }
+  }
+
+  @Test
+  public void testTagAndPush() throws GitAPIException, IOException {
+    File remote = createRemote("root");
+    File module = createRemote("module");
+
+    File location = new File(this.tempDir, "workspace");
+    try (Git git = Git.cloneRepository().setURI(remote.toURI().toString()).setDirectory(location).call()) {
+      git.submoduleAdd().setURI(module.toURI().toString()).setPath("module").call().close();
+      git.commit().setMessage("Add module").call();
+    }
+
+    try (Repository repo = new RepositoryBuilder(location).build()) {
+      repo.tagAll("version/1.0/0");
+
+      List<String> updates = repo.push(true);
+      Assertions.assertTrue(repo.getExceptions().isEmpty());
+      Assertions.assertTrue(updates.contains("workspace refs/tags/version/1.0/0"));
+      Assertions.assertTrue(updates.contains("module refs/tags/version/1.0/0"));
+      Assertions.assertFalse(RepositoryPushTest.hasRef(remote, Constants.R_TAGS + "version/1.0/0"));
+      Assertions.assertFalse(RepositoryPushTest.hasRef(module, Constants.R_TAGS + "version/1.0/0"));
+
+      repo.push();
+      Assertions.assertTrue(repo.getExceptions().isEmpty());
+      Assertions.assertTrue(RepositoryPushTest.hasRef(remote, Constants.R_TAGS + "version/1.0/0"));
+      Assertions.assertTrue(RepositoryPushTest.hasRef(module, Constants.R_TAGS + "version/1.0/0"));
+    }
+
+    try (Git git = Git.open(remote); Git local = Git.open(location)) {
+      Assertions.assertEquals(local.getRepository().resolve(Constants.HEAD), git.getRepository().resolve("master"));
+    }
+  }
+
+  @Test
+  public void testNonAtomicRemote() throws Exception {
+    // The remote doesn't advertise atomic pushes
+    InMemoryRepository remote = new InMemoryRepository(new DfsRepositoryDescription("remote"));
+    remote.setPerformsAtomicTransactions(false);
+    TestProtocol<Object> protocol = new TestProtocol<>(null, (request, db) -> new ReceivePack(db));
+    Transport.register(protocol);
+
+    File location = new File(this.tempDir, "workspace");
+    try (Git git = Git.init().setDirectory(location).setInitialBranch("master").call()) {
+      StoredConfig config = git.getRepository().getConfig();
+      config.setString("remote", "origin", "url", protocol.register(new Object(), remote).toString());
+      config.save();
+      git.commit().setMessage("Initial").setAllowEmpty(true).call();
+    }
+
+    try (Repository repo = new RepositoryBuilder(location).build()) {
+      repo.tagAll("version/1.0/0");
+      List<String> updates = repo.push();
+      Assertions.assertEquals(2, updates.size(), "updates");
+      Assertions.assertTrue(updates.contains("workspace refs/heads/master"));
+      Assertions.assertTrue(updates.contains("workspace refs/tags/version/1.0/0"));
+      Assertions.assertTrue(repo.getExceptions().isEmpty());
+      Assertions.assertNotNull(remote.exactRef(Constants.R_TAGS + "version/1.0/0"));
+    } finally {
+      Transport.unregister(protocol);
+    }
+  }
+}
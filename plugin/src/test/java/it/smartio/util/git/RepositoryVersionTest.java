@@ -0,0 +1,201 @@
+
+package it.smartio.util.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.RevWalkUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.smartio.util.version.Revision;
+import it.smartio.util.version.Version;
+
+
+public class RepositoryVersionTest {
+
+  private static final Pattern PATTERN = Pattern.compile(
+      "(?<major>\\d+)[./](?<minor>\\d+)(?:[./](?<patch>\\d+))?(?:-(?<name>[a-zA-Z0-9.]+))?(?:\\+(?<build>[a-zA-Z0-9.]+))?");
+
+  @TempDir
+  File tempDir;
+
+  private Git git;
+  private int time = 1600000000;
+
+  private Git init() throws GitAPIException {
+    this.git = Git.init().setDirectory(this.tempDir).setInitialBranch("master").call();
+    return this.git;
+  }
+
+  /**
+   * Creates a commit with an empty tree and the parents. The commit time increases with each commit.
+   *
+   * @param parents
+   */
+  private RevCommit commit(ObjectId... parents) throws IOException {
+    org.eclipse.jgit.lib.Repository repository = this.git.getRepository();
+    try (ObjectInserter inserter = repository.newObjectInserter(); RevWalk walk = new RevWalk(repository)) {
+      PersonIdent ident = new PersonIdent("test", "test@smartio.it", new Date(1000L * this.time++),
+          TimeZone.getTimeZone("UTC"));
+      CommitBuilder builder = new CommitBuilder();
+      builder.setTreeId(inserter.insert(Constants.OBJ_TREE, new byte[0]));
+      builder.setParentIds(parents);
+      builder.setAuthor(ident);
+      builder.setCommitter(ident);
+      builder.setMessage("Commit " + this.time);
+      ObjectId id = inserter.insert(builder);
+      inserter.flush();
+      return walk.parseCommit(id);
+    }
+  }
+
+  private void tag(String name, ObjectId commit) throws IOException {
+    RefUpdate update = this.git.getRepository().updateRef(Constants.R_TAGS + name);
+    update.setNewObjectId(commit);
+    update.forceUpdate();
+  }
+
+  private void checkout(ObjectId commit) throws IOException {
+    RefUpdate update = this.git.getRepository().getRefDatabase().newUpdate(Constants.HEAD, true);
+    update.setNewObjectId(commit);
+    update.forceUpdate();
+  }
+
+  /**
+   * The implementation of the nearest tag before the {@link RepositoryRevisionCache}: the reachable
+   * tag with the fewest commits in between, ties are resolved by the highest version.
+   */
+  private Version getNearestVersion() throws IOException, GitAPIException {
+    org.eclipse.jgit.lib.Repository repository = this.git.getRepository();
+    Version nearest = null;
+    int distance = Integer.MAX_VALUE;
+    try (RevWalk walk = new RevWalk(repository)) {
+      RevCommit head = walk.parseCommit(repository.resolve(Constants.HEAD));
+      for (Ref tag : this.git.tagList().call()) {
+        RevCommit commit = walk.parseCommit(tag.getObjectId());
+        if (walk.isMergedInto(commit, head)) {
+          Version version = Version.parse(tag.getName(), RepositoryVersionTest.PATTERN);
+          int count = RevWalkUtils.count(walk, head, commit);
+          if ((count < distance) || ((count == distance) && (version.compareTo(nearest) < 0))) {
+            nearest = version;
+            distance = count;
+          }
+        }
+      }
+    }
+    return (nearest == null) ? Version.of(0, 0) : nearest;
+  }
+
+  private static void assertVersion(Version expected, Revision revision) {
+    Assertions.assertEquals(expected.toString(), String.format("%s.%s%s", revision.getMajor(), revision.getMinor(),
+        (revision.getPatch() < 0) ? "" : "." + revision.getPatch()));
+  }
+
+  @Test
+  public void testSeveralTags() throws GitAPIException, IOException {
+    try (Git git = init()) {
+      RevCommit c1 = commit();
+      RevCommit c2 = commit(c1);
+      RevCommit c3 = commit(c2);
+      tag("1.0", c1);
+      tag("1.2", c2);
+      tag("1.1", c2);
+      tag("release", c3);
+      checkout(commit(c3));
+
+      Revision revision = RepositoryVersion.getRevision(git, Version.NONE);
+      RepositoryVersionTest.assertVersion(Version.of(1, 2), revision);
+      Assertions.assertEquals(4, revision.getBuildNumber());
+
+      // The cached and the tagged commit itself
+      RepositoryVersionTest.assertVersion(Version.of(1, 2), RepositoryVersion.getRevision(git, Version.NONE));
+      checkout(c1);
+      RepositoryVersionTest.assertVersion(Version.of(1, 0), RepositoryVersion.getRevision(git, Version.NONE));
+    }
+  }
+
+  @Test
+  public void testMergedBranch() throws GitAPIException, IOException {
+    try (Git git = init()) {
+      RevCommit base = commit();
+      RevCommit side1 = commit(base);
+      RevCommit side2 = commit(side1);
+      RevCommit side3 = commit(side2);
+      RevCommit main = commit(base);
+      tag("2.0", side2);
+      tag("1.0", main);
+      checkout(commit(main, side3));
+
+      // The newest tagged commit is 1.0, but 2.0 has fewer commits in between
+      Assertions.assertEquals(Version.of(2, 0), getNearestVersion());
+      RepositoryVersionTest.assertVersion(Version.of(2, 0), RepositoryVersion.getRevision(git, Version.NONE));
+
+      // The cache is invalidated by a new tag
+      tag("1.5", side3);
+      RepositoryVersionTest.assertVersion(Version.of(1, 5), RepositoryVersion.getRevision(git, Version.NONE));
+    }
+  }
+
+  @Test
+  public void testRandomHistory() throws GitAPIException, IOException {
+    Random random = new Random(4711);
+    try (Git git = init()) {
+      List<RevCommit> commits = new ArrayList<>();
+      commits.add(commit());
+      for (int i = 0; i < 200; i++) {
+        RevCommit parent = commits.get(commits.size() - 1 - random.nextInt(Math.min(commits.size(), 8)));
+        if (random.nextInt(4) == 0) {
+          RevCommit other = commits.get(random.nextInt(commits.size()));
+          commits.add(other.equals(parent) ? commit(parent) : commit(parent, other));
+        } else {
+          commits.add(commit(parent));
+        }
+        if (random.nextInt(6) == 0) {
+          tag(String.format("%d.%d", random.nextInt(3), random.nextInt(5)), commits.get(commits.size() - 1));
+        }
+
+        if ((i % 10) == 0) {
+          checkout(commits.get(random.nextInt(commits.size())));
+          RepositoryVersionTest.assertVersion(getNearestVersion(), RepositoryVersion.getRevision(git, Version.NONE));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCacheEviction() throws IOException {
+    File directory = new File(this.tempDir, "git");
+    Assertions.assertTrue(directory.mkdirs());
+
+    RepositoryRevisionCache cache = RepositoryRevisionCache.of(directory);
+    for (int i = 0; i <= 1000; i++) {
+      cache.setCount(ObjectId.fromString(String.format("%040x", i)), i);
+    }
+    cache.getCount(ObjectId.fromString(String.format("%040x", 0)));
+    cache.save();
+
+    cache = RepositoryRevisionCache.of(directory);
+    Assertions.assertEquals(Long.valueOf(0), cache.getCount(ObjectId.fromString(String.format("%040x", 0))));
+    Assertions.assertNull(cache.getCount(ObjectId.fromString(String.format("%040x", 1))));
+    Assertions.assertEquals(Long.valueOf(1000), cache.getCount(ObjectId.fromString(String.format("%040x", 1000))));
+  }
+}